@@ -0,0 +1,122 @@
+package org.cis120;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An AliasTable is a compiled, read-only copy of a ProbabilityDistribution
+ * that can pick an element in constant time, no matter how many different
+ * elements were recorded. (ProbabilityDistribution.pick has to scan its
+ * records until it reaches the randomly chosen index.)
+ * <p>
+ * The table is built with Vose's version of Walker's alias method. Each of
+ * the n recorded elements gets a column of equal width. Column i keeps
+ * element i with probability threshold[i] / total and otherwise hands the
+ * pick to element alias[i]. Picking therefore takes two random numbers: one
+ * to choose a column and one to choose between the column's two elements.
+ * All of the arithmetic is done on the integer counts, so the probability
+ * of picking each element is exactly count / total.
+ * <p>
+ * Because it uses the random numbers differently, an AliasTable does not
+ * pick the same element as ProbabilityDistribution.pick for a given
+ * NumberGenerator. Use the ProbabilityDistribution itself (for example via
+ * fixDistribution) when a walk has to be reproduced exactly.
+ */
+public class AliasTable<T extends Comparable<T>> {
+    private final List<T> elements;
+    private final int[] threshold;
+    private final int[] alias;
+    private final int total;
+
+    /**
+     * Builds an AliasTable with the same elements and counts as pd.
+     *
+     * @param pd - a (non-null, non-empty) ProbabilityDistribution
+     * @throws IllegalArgumentException if pd is null or has no records
+     */
+    public AliasTable(ProbabilityDistribution<T> pd) {
+        if (pd == null || pd.getTotal() == 0) {
+            throw new IllegalArgumentException(
+                    "cannot build an AliasTable from an empty distribution"
+            );
+        }
+        Map<T, Integer> records = pd.getRecords();
+        int n = records.size();
+        this.elements = new ArrayList<T>(n);
+        this.threshold = new int[n];
+        this.alias = new int[n];
+        this.total = pd.getTotal();
+
+        // scaled[i] is count * n, in units where each column holds total
+        long[] scaled = new long[n];
+        for (Map.Entry<T, Integer> r : records.entrySet()) {
+            scaled[elements.size()] = (long) r.getValue() * n;
+            elements.add(r.getKey());
+        }
+
+        Deque<Integer> small = new ArrayDeque<Integer>();
+        Deque<Integer> large = new ArrayDeque<Integer>();
+        for (int i = 0; i < n; i++) {
+            if (scaled[i] < total) {
+                small.push(i);
+            } else {
+                large.push(i);
+            }
+        }
+        while (!small.isEmpty() && !large.isEmpty()) {
+            int s = small.pop();
+            int l = large.pop();
+            threshold[s] = (int) scaled[s];
+            alias[s] = l;
+            scaled[l] -= total - scaled[s];
+            if (scaled[l] < total) {
+                small.push(l);
+            } else {
+                large.push(l);
+            }
+        }
+        // whatever is left fills its column exactly
+        while (!large.isEmpty()) {
+            int l = large.pop();
+            threshold[l] = total;
+            alias[l] = l;
+        }
+        while (!small.isEmpty()) {
+            int s = small.pop();
+            threshold[s] = total;
+            alias[s] = s;
+        }
+    }
+
+    /**
+     * Picks an element at random, with probability proportional to the
+     * number of times it was recorded.
+     *
+     * @param ng - the NumberGenerator used to make the choice
+     * @return the picked element
+     */
+    public T pick(NumberGenerator ng) {
+        int column = ng.next(threshold.length);
+        if (ng.next(total) < threshold[column]) {
+            return elements.get(column);
+        }
+        return elements.get(alias[column]);
+    }
+
+    /**
+     * @return the number of different elements in the table
+     */
+    public int size() {
+        return elements.size();
+    }
+
+    /**
+     * @return the total of all the counts in the table
+     */
+    public int getTotal() {
+        return total;
+    }
+}
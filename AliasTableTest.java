@@ -0,0 +1,74 @@
+package org.cis120;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Tests for AliasTable */
+public class AliasTableTest {
+
+    /**
+     * Picks from the table once for every possible pair of random numbers
+     * and counts how often each element comes up.
+     */
+    private static Map<String, Integer> enumerate(AliasTable<String> table) {
+        Map<String, Integer> seen = new HashMap<>();
+        for (int column = 0; column < table.size(); column++) {
+            for (int u = 0; u < table.getTotal(); u++) {
+                int[] draws = { column, u };
+                int[] i = { 0 };
+                String s = table.pick(bound -> draws[i[0]++]);
+                seen.put(s, seen.getOrDefault(s, 0) + 1);
+            }
+        }
+        return seen;
+    }
+
+    @Test
+    public void testProbabilitiesAreExact() {
+        ProbabilityDistribution<String> pd = new ProbabilityDistribution<>();
+        String[] words = { "the", "the", "the", "the", "the", "dog", "dog", "is", "a", "good" };
+        for (String w : words) {
+            pd.record(w);
+        }
+        AliasTable<String> table = new AliasTable<>(pd);
+        Map<String, Integer> seen = enumerate(table);
+        // each element should come up count * n times out of total * n
+        assertEquals(5, table.size());
+        assertEquals(5 * 5, seen.get("the"));
+        assertEquals(2 * 5, seen.get("dog"));
+        assertEquals(5, seen.get("is"));
+        assertEquals(5, seen.get("a"));
+        assertEquals(5, seen.get("good"));
+    }
+
+    @Test
+    public void testNullIsAnElement() {
+        ProbabilityDistribution<String> pd = new ProbabilityDistribution<>();
+        pd.record(null);
+        pd.record("end");
+        pd.record("end");
+        AliasTable<String> table = new AliasTable<>(pd);
+        Map<String, Integer> seen = enumerate(table);
+        assertEquals(2, seen.get(null));
+        assertEquals(4, seen.get("end"));
+    }
+
+    @Test
+    public void testSingleElement() {
+        ProbabilityDistribution<String> pd = new ProbabilityDistribution<>();
+        pd.record("only");
+        AliasTable<String> table = new AliasTable<>(pd);
+        assertEquals("only", table.pick(new RandomNumberGenerator()));
+    }
+
+    @Test
+    public void testEmptyDistribution() {
+        assertThrows(IllegalArgumentException.class, () -> {
+            new AliasTable<>(new ProbabilityDistribution<String>());
+        });
+    }
+}
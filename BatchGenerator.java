@@ -0,0 +1,237 @@
+package org.cis120;
+
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * A BatchGenerator generates large numbers of tweets from one TwitterBot on
+ * several threads at once.
+ * <p>
+ * Tweet number i of a batch is generated by
+ * bot.generateTweetChars(numChars, numberGenerator(seed, i)), so every tweet
+ * has its own independently seeded NumberGenerator and a batch is
+ * reproducible from its seed, whatever the parallelism or the order in which
+ * the tweets finish.
+ * <p>
+ * Tweets are handed to a sink on the calling thread, either in order or as
+ * soon as they are done, so the sink does not need to be thread-safe. At
+ * most maxInFlight tweets are generated ahead of the sink: when the sink is
+ * slow, no new work is started until it catches up, so memory use does not
+ * grow with the size of the batch.
+ */
+public class BatchGenerator {
+    private final TwitterBot bot;
+    private final int parallelism;
+    private final ExecutorService executor;
+    private final int maxInFlight;
+
+    /**
+     * Creates a BatchGenerator that runs each batch on its own ForkJoinPool
+     * of parallelism threads, keeping up to 4 * parallelism tweets in
+     * flight.
+     *
+     * @param bot         - the (non-null) trained TwitterBot
+     * @param parallelism - the number of threads to use
+     * @throws IllegalArgumentException if bot is null or parallelism is not
+     *                                  positive
+     */
+    public BatchGenerator(TwitterBot bot, int parallelism) {
+        this(bot, null, parallelism, (int) Math.min(Integer.MAX_VALUE, 4L * parallelism));
+    }
+
+    /**
+     * Creates a BatchGenerator that runs its tasks on the given executor,
+     * for example one that starts a virtual thread per task. The executor is
+     * not shut down by the BatchGenerator.
+     *
+     * @param bot         - the (non-null) trained TwitterBot
+     * @param executor    - the (non-null) executor to run tasks on
+     * @param maxInFlight - the most tweets to generate ahead of the sink
+     * @throws IllegalArgumentException if bot or executor is null or
+     *                                  maxInFlight is not positive
+     */
+    public BatchGenerator(TwitterBot bot, ExecutorService executor, int maxInFlight) {
+        this(bot, executor, 1, maxInFlight);
+        if (executor == null) {
+            throw new IllegalArgumentException("executor cannot be null");
+        }
+    }
+
+    private BatchGenerator(
+            TwitterBot bot, ExecutorService executor, int parallelism,
+            int maxInFlight
+    ) {
+        if (bot == null) {
+            throw new IllegalArgumentException("bot cannot be null");
+        }
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be positive");
+        }
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("maxInFlight must be positive");
+        }
+        this.bot = bot;
+        this.executor = executor;
+        this.parallelism = parallelism;
+        this.maxInFlight = maxInFlight;
+    }
+
+    /**
+     * Returns the NumberGenerator used for tweet number index of a batch
+     * with the given seed. Generators for different indexes (or seeds) are
+     * independent of each other.
+     *
+     * @param seed  - the seed of the batch
+     * @param index - the number of the tweet within the batch
+     * @return a new NumberGenerator
+     */
+    public static NumberGenerator numberGenerator(long seed, long index) {
+        SplittableRandom random = new SplittableRandom(mix(seed ^ mix(index)));
+        return random::nextInt;
+    }
+
+    /**
+     * A 64-bit mixing function (from SplittableRandom), used so that nearby
+     * seeds and indexes give unrelated random sequences.
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Generates numTweets tweets of at most numChars characters each and
+     * hands each one to sink.
+     *
+     * @param numTweets - the number of tweets to generate
+     * @param numChars  - the maximum number of characters in each tweet
+     * @param seed      - the seed that determines every tweet of the batch
+     * @param ordered   - whether the sink receives tweet 0, 1, 2, ... in
+     *                  order, rather than in the order they finish
+     * @param sink      - the (non-null) consumer of the tweets, called only
+     *                  on the calling thread
+     * @throws IllegalArgumentException if numTweets or numChars is negative
+     *                                  or sink is null
+     * @throws IllegalStateException    if the calling thread is interrupted
+     */
+    public void generate(
+            long numTweets, int numChars, long seed, boolean ordered,
+            Consumer<String> sink
+    ) {
+        if (numTweets < 0 || numChars < 0) {
+            throw new IllegalArgumentException(
+                    "numTweets and numChars cannot be negative"
+            );
+        }
+        if (sink == null) {
+            throw new IllegalArgumentException("sink cannot be null");
+        }
+        ExecutorService pool = (executor != null) ? executor : new ForkJoinPool(parallelism);
+        try {
+            if (ordered) {
+                generateInOrder(pool, numTweets, numChars, seed, sink);
+            } else {
+                generateAsCompleted(pool, numTweets, numChars, seed, sink);
+            }
+        } finally {
+            if (executor == null) {
+                pool.shutdownNow();
+            }
+        }
+    }
+
+    private Callable<String> task(long index, int numChars, long seed) {
+        return () -> bot.generateTweetChars(numChars, numberGenerator(seed, index));
+    }
+
+    /**
+     * Keeps a window of up to maxInFlight tasks and always waits for the
+     * oldest one, so tweets reach the sink in order.
+     */
+    private void generateInOrder(
+            ExecutorService pool, long numTweets, int numChars, long seed,
+            Consumer<String> sink
+    ) {
+        ArrayDeque<Future<String>> window = new ArrayDeque<>();
+        long next = 0;
+        try {
+            while (next < numTweets || !window.isEmpty()) {
+                while (next < numTweets && window.size() < maxInFlight) {
+                    window.add(pool.submit(task(next, numChars, seed)));
+                    next++;
+                }
+                sink.accept(await(window.poll()));
+            }
+        } finally {
+            for (Future<String> f : window) {
+                f.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Keeps up to maxInFlight tasks running and hands each tweet to the sink
+     * as soon as it is done.
+     */
+    private void generateAsCompleted(
+            ExecutorService pool, long numTweets, int numChars, long seed,
+            Consumer<String> sink
+    ) {
+        CompletionService<String> done = new ExecutorCompletionService<>(pool);
+        Set<Future<String>> running = new HashSet<>();
+        long next = 0;
+        try {
+            while (next < numTweets || !running.isEmpty()) {
+                while (next < numTweets && running.size() < maxInFlight) {
+                    running.add(done.submit(task(next, numChars, seed)));
+                    next++;
+                }
+                Future<String> f;
+                try {
+                    f = done.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("interrupted while generating tweets", e);
+                }
+                running.remove(f);
+                sink.accept(await(f));
+            }
+        } finally {
+            for (Future<String> f : running) {
+                f.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Waits for a task, rethrowing whatever it threw.
+     */
+    private static String await(Future<String> f) {
+        try {
+            return f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while generating tweets", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+}
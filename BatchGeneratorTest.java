@@ -0,0 +1,161 @@
+package org.cis120;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Tests for BatchGenerator */
+public class BatchGeneratorTest {
+
+    private static TwitterBot bot() {
+        String words = "0, the dog is good. the cat is bad.\n"
+                + "1, a dog sat on the mat! the dog ran far.\n"
+                + "2, is the cat on the mat? a cat ran to the dog.";
+        return new TwitterBot(new BufferedReader(new StringReader(words)), 1);
+    }
+
+    private static List<String> serial(TwitterBot bot, int n, int numChars, long seed) {
+        List<String> tweets = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            tweets.add(bot.generateTweetChars(numChars, BatchGenerator.numberGenerator(seed, i)));
+        }
+        return tweets;
+    }
+
+    @Test
+    public void testOrderedMatchesSerial() {
+        TwitterBot bot = bot();
+        List<String> tweets = new ArrayList<>();
+        new BatchGenerator(bot, 4).generate(500, 140, 120, true, tweets::add);
+        assertEquals(serial(bot, 500, 140, 120), tweets);
+    }
+
+    @Test
+    public void testUnorderedHasSameTweets() {
+        TwitterBot bot = bot();
+        List<String> tweets = new ArrayList<>();
+        new BatchGenerator(bot, 4).generate(500, 140, 120, false, tweets::add);
+        List<String> expected = serial(bot, 500, 140, 120);
+        Collections.sort(tweets);
+        Collections.sort(expected);
+        assertEquals(expected, tweets);
+    }
+
+    @Test
+    public void testSameSeedSameBatch() {
+        TwitterBot bot = bot();
+        List<String> one = new ArrayList<>();
+        List<String> four = new ArrayList<>();
+        new BatchGenerator(bot, 1).generate(100, 280, 7, true, one::add);
+        new BatchGenerator(bot, 4).generate(100, 280, 7, true, four::add);
+        assertEquals(one, four);
+        List<String> other = new ArrayList<>();
+        new BatchGenerator(bot, 4).generate(100, 280, 8, true, other::add);
+        assertNotEquals(one, other);
+    }
+
+    @Test
+    public void testCustomExecutorBoundsWorkInFlight() {
+        TwitterBot bot = bot();
+        AtomicInteger started = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(3);
+        try {
+            ExecutorService counting = new AbstractExecutorService() {
+                @Override
+                public void execute(Runnable r) {
+                    started.incrementAndGet();
+                    pool.execute(r);
+                }
+
+                @Override
+                public void shutdown() {
+                }
+
+                @Override
+                public List<Runnable> shutdownNow() {
+                    return Collections.emptyList();
+                }
+
+                @Override
+                public boolean isShutdown() {
+                    return false;
+                }
+
+                @Override
+                public boolean isTerminated() {
+                    return false;
+                }
+
+                @Override
+                public boolean awaitTermination(long t, TimeUnit u) {
+                    return false;
+                }
+            };
+            int[] consumed = { 0 };
+            new BatchGenerator(bot, counting, 5).generate(200, 140, 1, true, tweet -> {
+                assertTrue(started.get() <= consumed[0] + 5);
+                consumed[0]++;
+            });
+            assertEquals(200, consumed[0]);
+            assertEquals(200, started.get());
+            assertFalse(pool.isShutdown());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testSinkExceptionStopsBatch() {
+        BatchGenerator batch = new BatchGenerator(bot(), 2);
+        AtomicInteger seen = new AtomicInteger();
+        assertThrows(IllegalStateException.class, () -> {
+            batch.generate(1000, 140, 1, false, tweet -> {
+                if (seen.incrementAndGet() == 10) {
+                    throw new IllegalStateException("full");
+                }
+            });
+        });
+        assertEquals(10, seen.get());
+    }
+
+    @Test
+    public void testEmptyBatch() {
+        List<String> tweets = new ArrayList<>();
+        new BatchGenerator(bot(), 2).generate(0, 140, 1, true, tweets::add);
+        assertTrue(tweets.isEmpty());
+    }
+
+    @Test
+    public void testBadArguments() {
+        assertThrows(IllegalArgumentException.class, () -> {
+            new BatchGenerator(null, 2);
+        });
+        assertThrows(IllegalArgumentException.class, () -> {
+            new BatchGenerator(bot(), 0);
+        });
+        assertThrows(IllegalArgumentException.class, () -> {
+            new BatchGenerator(bot(), null, 4);
+        });
+        BatchGenerator batch = new BatchGenerator(bot(), 2);
+        assertThrows(IllegalArgumentException.class, () -> {
+            batch.generate(-1, 140, 1, true, tweet -> { });
+        });
+        assertThrows(IllegalArgumentException.class, () -> {
+            batch.generate(1, -1, 1, true, tweet -> { });
+        });
+        assertThrows(IllegalArgumentException.class, () -> {
+            batch.generate(1, 140, 1, true, null);
+        });
+    }
+}
@@ -0,0 +1,411 @@
+package org.cis120;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A BlendedMarkovChain generates from a weighted mixture of several trained
+ * MarkovChains without retraining any of them. For example, blending a chain
+ * trained on dog tweets with weight 0.7 and a chain trained on news with
+ * weight 0.3 gives a persona that picks each next word from
+ * <p>
+ * 0.7 * P_dog(next | word) + 0.3 * P_news(next | word)
+ * <p>
+ * If only some of the chains have ever seen the current word, the weights of
+ * those chains are scaled up to sum to 1, so a word known to one corpus is
+ * continued the way that corpus continues it. Start words are mixed the same
+ * way.
+ * <p>
+ * The mixture for a word is compiled into a cumulative table (as in
+ * CompactMarkovChain) the first time it is needed, with probabilities
+ * rounded to multiples of 1 / RESOLUTION (every successor keeps at least
+ * one). Up to cacheSize tables are kept in a ConcurrentHashMap. When the
+ * cache is full, a table is dropped by the CLOCK algorithm: a hand sweeps
+ * the cached words, sparing (once) each one that was used since the hand
+ * last passed it, so the words visited most often stay compiled. Finding a
+ * cached table takes no lock; only adding a table to the cache does.
+ * <p>
+ * A table remembers the version (MarkovChain.version()) of each chain and
+ * the Rows (MarkovChain.Row) it was built from. While no chain's version
+ * has changed, the table is used as it is, which costs one read of a field
+ * of each chain. When a chain has been trained further, its Row for the word
+ * is looked up again, and the table is only rebuilt if one of its Rows was
+ * replaced, so training that does not touch a word keeps its table.
+ * <p>
+ * A BlendedMarkovChain may be shared between threads; each thread walks it
+ * with its own walker(), and walkers never wait for each other except when
+ * they add tables to the cache.
+ */
+public class BlendedMarkovChain {
+    static final int RESOLUTION = 1 << 24;
+    static final int DEFAULT_CACHE_SIZE = 1 << 14;
+
+    private final MarkovChain[] chains;
+    private final double[] weights;
+    private final int cacheSize;
+    private final Map<String, Mixture> mixtures;
+    // the cached words in the order the clock hand visits them, and the
+    // position of the hand; guarded by clock, which is held while words
+    // are added to or removed from mixtures
+    private final List<String> clock;
+    private int hand;
+    private volatile Mixture startMixture;
+    private final LongAdder compiles;
+
+    /**
+     * A compiled mixture: the successors in order, their running totals, and
+     * the versions of the chains and the Rows (null where a chain had none)
+     * it was built from.
+     */
+    private static final class Mixture {
+        final String[] targets;
+        final int[] cumulative;
+        final long[] versions;
+        final MarkovChain.Row[] sources;
+        // set when the table is used, cleared by the clock hand
+        volatile boolean referenced;
+
+        Mixture(String[] targets, int[] cumulative, long[] versions, MarkovChain.Row[] sources) {
+            this.targets = targets;
+            this.cumulative = cumulative;
+            this.versions = versions;
+            this.sources = sources;
+        }
+    }
+
+    /**
+     * Creates a blend of chains, caching up to DEFAULT_CACHE_SIZE mixtures.
+     *
+     * @param chains  - the (non-null) trained chains to blend
+     * @param weights - the weight of each chain; they need not sum to 1
+     * @throws IllegalArgumentException if the arguments are invalid (see the
+     *                                  three-argument constructor)
+     */
+    public BlendedMarkovChain(List<MarkovChain> chains, double... weights) {
+        this(chains, weights, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * Creates a blend of chains.
+     *
+     * @param chains    - the (non-null) trained chains to blend
+     * @param weights   - the weight of each chain; they need not sum to 1
+     * @param cacheSize - the most mixture tables to keep compiled
+     * @throws IllegalArgumentException if chains or weights is null or empty,
+     *                                  any chain is null, the lengths differ,
+     *                                  any weight is negative or not finite,
+     *                                  all weights are 0, or cacheSize is
+     *                                  negative
+     */
+    public BlendedMarkovChain(List<MarkovChain> chains, double[] weights, int cacheSize) {
+        if (chains == null || weights == null || chains.isEmpty()) {
+            throw new IllegalArgumentException("chains and weights cannot be null or empty");
+        }
+        if (chains.size() != weights.length) {
+            throw new IllegalArgumentException("need exactly one weight per chain");
+        }
+        if (cacheSize < 0) {
+            throw new IllegalArgumentException("cacheSize cannot be negative");
+        }
+        double sum = 0;
+        for (double w : weights) {
+            if (!(w >= 0) || Double.isInfinite(w)) {
+                throw new IllegalArgumentException("weights must be finite and non-negative");
+            }
+            sum += w;
+        }
+        if (sum == 0) {
+            throw new IllegalArgumentException("at least one weight must be positive");
+        }
+        this.chains = chains.toArray(new MarkovChain[0]);
+        for (MarkovChain mc : this.chains) {
+            if (mc == null) {
+                throw new IllegalArgumentException("chains cannot contain null");
+            }
+        }
+        this.weights = new double[weights.length];
+        for (int i = 0; i < weights.length; i++) {
+            this.weights[i] = weights[i] / sum;
+        }
+        this.cacheSize = cacheSize;
+        this.mixtures = new ConcurrentHashMap<String, Mixture>();
+        this.clock = new ArrayList<String>();
+        this.compiles = new LongAdder();
+    }
+
+    /**
+     * Returns the probability that word is followed by next in the blend.
+     *
+     * @param word - the current word
+     * @param next - the successor, or null for the end of the sentence
+     * @return the blended probability, rounded as in the compiled table
+     */
+    public double probability(String word, String next) {
+        Mixture m = (word == null) ? start() : mixture(word);
+        return (m == null) ? 0 : weightOf(m, next) / (double) total(m);
+    }
+
+    /**
+     * @return the number of mixture tables currently compiled
+     */
+    public int cachedMixtures() {
+        return mixtures.size();
+    }
+
+    /**
+     * @return true if the mixture for word is currently compiled
+     */
+    boolean isCached(String word) {
+        return mixtures.containsKey(word);
+    }
+
+    /**
+     * @return the number of mixture tables compiled so far
+     */
+    long compiles() {
+        return compiles.sum();
+    }
+
+    /**
+     * Returns a walker that generates sentences from the blend with its own
+     * position and NumberGenerator.
+     *
+     * @param ng - the (non-null) NumberGenerator for the walker
+     * @return a new walker
+     * @throws IllegalArgumentException if ng is null
+     */
+    public ChainWalker walker(NumberGenerator ng) {
+        if (ng == null) {
+            throw new IllegalArgumentException("NumberGenerator cannot be null");
+        }
+        return new Walker(ng);
+    }
+
+    /**
+     * Generates a tweet of at most numChars characters from the blend, in the
+     * same way as TwitterBot.generateTweetChars.
+     *
+     * @param numChars - The desired number of characters of the tweet
+     * @param ng       - the (non-null) NumberGenerator for this tweet
+     * @return a String representing a generated tweet
+     * @throws IllegalArgumentException if numChars is negative or ng is null
+     */
+    public String generateTweetChars(int numChars, NumberGenerator ng) {
+        return TwitterBot.generateTweetChars(walker(ng), numChars, ng);
+    }
+
+    private Mixture start() {
+        Mixture m = startMixture;
+        Mixture current = current(m, null);
+        if (current != m) {
+            startMixture = current;
+        }
+        return current;
+    }
+
+    private Mixture mixture(String word) {
+        Mixture m = mixtures.get(word);
+        if (m != null) {
+            m.referenced = true;
+        }
+        Mixture current = current(m, word);
+        if (current == m || current == null) {
+            return current;
+        }
+        if (m != null) {
+            // only replaces the table if it has not been dropped meanwhile
+            mixtures.replace(word, m, current);
+        } else {
+            cache(word, current);
+        }
+        return current;
+    }
+
+    /**
+     * Returns m if it is still up to date for word (or the start words if
+     * word is null), a copy of it with the current versions if only chains
+     * that did not change its Rows were trained, or a newly compiled table
+     * (null if no chain has successors for word).
+     */
+    private Mixture current(Mixture m, String word) {
+        if (m != null && sameVersions(m)) {
+            return m;
+        }
+        // read the versions before the Rows, so that training that happens
+        // in between makes the table look out of date, not up to date
+        long[] versions = new long[chains.length];
+        for (int i = 0; i < chains.length; i++) {
+            versions[i] = chains[i].version();
+        }
+        MarkovChain.Row[] sources = new MarkovChain.Row[chains.length];
+        for (int i = 0; i < chains.length; i++) {
+            sources[i] = (word == null) ? chains[i].startRow() : chains[i].row(word);
+        }
+        if (m != null && Arrays.equals(m.sources, sources)) {
+            Mixture same = new Mixture(m.targets, m.cumulative, versions, m.sources);
+            same.referenced = m.referenced;
+            return same;
+        }
+        return compile(versions, sources);
+    }
+
+    private boolean sameVersions(Mixture m) {
+        for (int i = 0; i < chains.length; i++) {
+            if (chains[i].version() != m.versions[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Adds a table for a word that is not cached, dropping the table of
+     * another word if the cache is full.
+     */
+    private void cache(String word, Mixture m) {
+        if (cacheSize == 0) {
+            return;
+        }
+        synchronized (clock) {
+            if (mixtures.putIfAbsent(word, m) != null) {
+                // another walker cached it first
+                return;
+            }
+            if (clock.size() < cacheSize) {
+                clock.add(word);
+                return;
+            }
+            // every word is spared at most once, so this ends within two
+            // sweeps of the hand
+            while (true) {
+                String victim = clock.get(hand);
+                Mixture v = mixtures.get(victim);
+                if (v != null && v.referenced) {
+                    v.referenced = false;
+                    hand = (hand + 1) % clock.size();
+                    continue;
+                }
+                mixtures.remove(victim);
+                clock.set(hand, word);
+                hand = (hand + 1) % clock.size();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Compiles the mixture of the Rows in sources, or returns null if no
+     * chain with a positive weight has any successors in them.
+     */
+    private Mixture compile(long[] versions, MarkovChain.Row[] sources) {
+        compiles.increment();
+        double known = 0;
+        for (int i = 0; i < chains.length; i++) {
+            if (sources[i] != null && sources[i].total > 0) {
+                known += weights[i];
+            }
+        }
+        if (known == 0) {
+            return null;
+        }
+
+        Map<String, Double> blend = new TreeMap<String, Double>(
+                Comparator.nullsFirst(Comparator.<String>naturalOrder())
+        );
+        for (int i = 0; i < chains.length; i++) {
+            MarkovChain.Row row = sources[i];
+            if (row == null || row.total == 0 || weights[i] == 0) {
+                continue;
+            }
+            double scale = weights[i] / known / row.total;
+            int previous = 0;
+            for (int k = 0; k < row.words.length; k++) {
+                blend.merge(row.words[k], scale * (row.cumulative[k] - previous), Double::sum);
+                previous = row.cumulative[k];
+            }
+        }
+
+        String[] targets = new String[blend.size()];
+        int[] cumulative = new int[blend.size()];
+        int k = 0;
+        int running = 0;
+        for (Map.Entry<String, Double> e : blend.entrySet()) {
+            targets[k] = e.getKey();
+            running += Math.max(1, (int) Math.round(e.getValue() * RESOLUTION));
+            cumulative[k] = running;
+            k++;
+        }
+        return new Mixture(targets, cumulative, versions, sources);
+    }
+
+    private static int total(Mixture m) {
+        return m.cumulative[m.cumulative.length - 1];
+    }
+
+    private static int weightOf(Mixture m, String next) {
+        for (int k = 0; k < m.targets.length; k++) {
+            if (next == null ? m.targets[k] == null : next.equals(m.targets[k])) {
+                return m.cumulative[k] - (k == 0 ? 0 : m.cumulative[k - 1]);
+            }
+        }
+        return 0;
+    }
+
+    private static String pick(Mixture m, NumberGenerator ng) {
+        int n = m.cumulative.length;
+        int index = ng.next(m.cumulative[n - 1]);
+        return m.targets[CompactMarkovChain.search(m.cumulative, 0, n, index)];
+    }
+
+    /**
+     * A Walker walks through the blend like a MarkovChain's walker, keeping
+     * its own position and NumberGenerator.
+     */
+    private class Walker implements ChainWalker {
+        private final NumberGenerator ng;
+        private String now;
+
+        Walker(NumberGenerator ng) {
+            this.ng = ng;
+        }
+
+        @Override
+        public void reset() {
+            Mixture m = start();
+            now = (m == null) ? null : pick(m, ng);
+        }
+
+        @Override
+        public void reset(String start) {
+            now = start;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return now != null;
+        }
+
+        @Override
+        public String next() {
+            if (now == null) {
+                throw new NoSuchElementException();
+            }
+            String current = now;
+            Mixture m = mixture(current);
+            now = (m == null) ? null : pick(m, ng);
+            return current;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "BlendedMarkovChain" + Arrays.toString(weights);
+    }
+}
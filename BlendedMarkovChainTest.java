@@ -0,0 +1,197 @@
+package org.cis120;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.cis120.TestChains.*;
+
+/** Tests for BlendedMarkovChain */
+public class BlendedMarkovChainTest {
+
+    @Test
+    public void testMixesSuccessorsByWeight() {
+        MarkovChain dogs = chainOf("the dog is good");
+        MarkovChain news = chainOf("the market is down", "the dog is lost");
+        BlendedMarkovChain blend = new BlendedMarkovChain(Arrays.asList(dogs, news), 0.7, 0.3);
+        // 0.7 * 1 + 0.3 * 1/2
+        assertEquals(0.85, blend.probability("the", "dog"), 1e-6);
+        assertEquals(0.15, blend.probability("the", "market"), 1e-6);
+        assertEquals(0.7 + 0.3 * 0.5, blend.probability("is", "good") + blend.probability("is", "down"), 1e-6);
+        assertEquals(1.0, blend.probability(null, "the"), 1e-6);
+    }
+
+    @Test
+    public void testUnknownWordUsesOnlyChainsThatKnowIt() {
+        MarkovChain dogs = chainOf("the dog is good");
+        MarkovChain news = chainOf("the market is down");
+        BlendedMarkovChain blend = new BlendedMarkovChain(Arrays.asList(dogs, news), 0.9, 0.1);
+        assertEquals(1.0, blend.probability("market", "is"), 1e-6);
+        assertEquals(1.0, blend.probability("down", null), 1e-6);
+        assertEquals(0.0, blend.probability("cat", "is"), 1e-6);
+    }
+
+    @Test
+    public void testWeightsNeedNotSumToOne() {
+        MarkovChain a = chainOf("a x");
+        MarkovChain b = chainOf("a y");
+        BlendedMarkovChain blend = new BlendedMarkovChain(Arrays.asList(a, b), 3, 1);
+        assertEquals(0.75, blend.probability("a", "x"), 1e-6);
+    }
+
+    @Test
+    public void testZeroWeightChainIsIgnored() {
+        MarkovChain a = chainOf("a x");
+        MarkovChain b = chainOf("a y");
+        BlendedMarkovChain blend = new BlendedMarkovChain(Arrays.asList(a, b), 1, 0);
+        assertEquals(1.0, blend.probability("a", "x"), 1e-6);
+        assertEquals(0.0, blend.probability("a", "y"), 1e-6);
+    }
+
+    @Test
+    public void testWalkerSamplesMixture() {
+        MarkovChain a = chainOf("a x");
+        MarkovChain b = chainOf("a y");
+        BlendedMarkovChain blend = new BlendedMarkovChain(Arrays.asList(a, b), 0.7, 0.3);
+        ChainWalker walker = blend.walker(seeded(120));
+        int xs = 0;
+        for (int i = 0; i < 10000; i++) {
+            walker.reset();
+            assertEquals("a", walker.next());
+            String second = walker.next();
+            assertFalse(walker.hasNext());
+            if (second.equals("x")) {
+                xs++;
+            }
+        }
+        assertEquals(7000, xs, 200);
+    }
+
+    @Test
+    public void testCacheIsBounded() {
+        MarkovChain a = chainOf("a b c d e");
+        BlendedMarkovChain blend = new BlendedMarkovChain(Arrays.asList(a), new double[] { 1 }, 2);
+        for (String w : new String[] { "a", "b", "c", "d", "e" }) {
+            blend.probability(w, null);
+        }
+        assertEquals(2, blend.cachedMixtures());
+        assertEquals(1.0, blend.probability("d", "e"), 1e-6);
+    }
+
+    @Test
+    public void testCacheKeepsRecentlyUsedMixtures() {
+        MarkovChain a = chainOf("a b c d e");
+        BlendedMarkovChain blend = new BlendedMarkovChain(Arrays.asList(a), new double[] { 1 }, 2);
+        blend.probability("a", "b");
+        blend.probability("b", "c");
+        blend.probability("a", "b");
+        blend.probability("c", "d");
+        assertTrue(blend.isCached("a"));
+        assertFalse(blend.isCached("b"));
+        assertTrue(blend.isCached("c"));
+
+        // a word compiled after the cache filled up is still cached
+        blend.probability("e", null);
+        assertTrue(blend.isCached("e"));
+        assertEquals(2, blend.cachedMixtures());
+    }
+
+    @Test
+    public void testSharedBetweenThreads() throws InterruptedException {
+        StringBuilder sentence = new StringBuilder("w0");
+        for (int i = 1; i < 50; i++) {
+            sentence.append(" w").append(i);
+        }
+        MarkovChain a = chainOf(sentence.toString());
+        MarkovChain b = chainOf("w0 w2 w4 w8 w16 w32");
+        BlendedMarkovChain blend = new BlendedMarkovChain(Arrays.asList(a, b), new double[] { 1, 1 }, 4);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            long seed = t;
+            threads.add(new Thread(() -> {
+                try {
+                    ChainWalker walker = blend.walker(seeded(seed));
+                    for (int i = 0; i < 200; i++) {
+                        walker.reset();
+                        while (walker.hasNext()) {
+                            assertNotNull(walker.next());
+                        }
+                    }
+                } catch (Throwable e) {
+                    failure.set(e);
+                }
+            }));
+        }
+        threads.add(new Thread(() -> {
+            for (int i = 0; i < 200; i++) {
+                b.update(Arrays.asList(Arrays.asList("w" + (i % 50), "w" + ((i * 7) % 50))));
+            }
+        }));
+        for (Thread t : threads) {
+            t.start();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        assertNull(failure.get());
+        assertTrue(blend.cachedMixtures() <= 4);
+    }
+
+    @Test
+    public void testTrainingOtherWordsKeepsMixture() {
+        MarkovChain a = chainOf("a x");
+        MarkovChain b = chainOf("a y");
+        BlendedMarkovChain blend = new BlendedMarkovChain(Arrays.asList(a, b), 0.5, 0.5);
+        assertEquals(0.5, blend.probability("a", "x"), 1e-6);
+        long compiles = blend.compiles();
+        a.update(Arrays.asList(Arrays.asList("q", "r")));
+        b.update(Arrays.asList(Arrays.asList("s")));
+        assertEquals(0.5, blend.probability("a", "x"), 1e-6);
+        assertEquals(compiles, blend.compiles());
+        a.update(Arrays.asList(Arrays.asList("a", "z")));
+        assertEquals(0.25, blend.probability("a", "x"), 1e-6);
+        assertEquals(compiles + 1, blend.compiles());
+    }
+
+    @Test
+    public void testCachedMixtureSeesFurtherTraining() {
+        MarkovChain a = chainOf("a x");
+        MarkovChain b = chainOf("a y");
+        BlendedMarkovChain blend = new BlendedMarkovChain(Arrays.asList(a, b), 0.5, 0.5);
+        assertEquals(0.5, blend.probability("a", "x"), 1e-6);
+        a.update(Arrays.asList(Arrays.asList("a", "z")));
+        assertEquals(0.25, blend.probability("a", "x"), 1e-6);
+        assertEquals(0.25, blend.probability("a", "z"), 1e-6);
+        b.train(Arrays.asList("a", "y").iterator());
+        assertEquals(0.25, blend.probability("a", "x"), 1e-6);
+        assertEquals(0.5, blend.probability("a", "y"), 1e-6);
+    }
+
+    @Test
+    public void testGenerateTweetChars() {
+        MarkovChain dogs = chainOf("the dog is good");
+        BlendedMarkovChain blend = new BlendedMarkovChain(Arrays.asList(dogs), 1);
+        String tweet = blend.generateTweetChars(40, new ListNumberGenerator(Arrays.asList(0)));
+        assertTrue(tweet.startsWith("the dog is good"));
+        assertTrue(tweet.length() <= 40);
+    }
+
+    @Test
+    public void testBadArguments() {
+        List<MarkovChain> one = Arrays.asList(chainOf("a"));
+        assertThrows(IllegalArgumentException.class, () -> new BlendedMarkovChain(null, 1));
+        assertThrows(IllegalArgumentException.class, () -> new BlendedMarkovChain(one, 1, 2));
+        assertThrows(IllegalArgumentException.class, () -> new BlendedMarkovChain(one, -1));
+        assertThrows(IllegalArgumentException.class, () -> new BlendedMarkovChain(one, 0));
+        assertThrows(IllegalArgumentException.class, () -> new BlendedMarkovChain(one, Double.NaN));
+        assertThrows(IllegalArgumentException.class,
+                () -> new BlendedMarkovChain(Arrays.asList((MarkovChain) null), 1));
+        BlendedMarkovChain blend = new BlendedMarkovChain(one, 1);
+        assertThrows(IllegalArgumentException.class, () -> blend.walker(null));
+    }
+}
@@ -0,0 +1,264 @@
+package org.cis120;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * ChainSnapshot saves a trained Markov chain to a compact binary file and
+ * loads it back, so that a bot can start from a pre-built model instead of
+ * re-parsing its CSV file with TweetParser.
+ * <p>
+ * A snapshot holds the tables of a CompactMarkovChain. All numbers are
+ * big-endian 32-bit ints, laid out as follows:
+ * <pre>
+ *   magic "MKCH", version
+ *   V, then V words, each as a byte length followed by UTF-8 bytes
+ *   R, then R + 1 row offsets
+ *   E, then E successor ids, then E running counts
+ *   S, then S start word ids, then S running counts
+ * </pre>
+ * Word ids are the words' positions in the list of words, and END (-1)
+ * marks the end of a sentence. Loading maps the file into memory with
+ * FileChannel.map and copies each table out with one bulk read, so it takes
+ * time proportional to the size of the file, not the size of the corpus the
+ * chain was trained on. Snapshots are limited to 2 GB, the largest region
+ * FileChannel.map can map at once.
+ */
+public class ChainSnapshot {
+
+    static final int MAGIC = 0x4D4B4348; // "MKCH"
+    static final int VERSION = 1;
+
+    private ChainSnapshot() {
+    }
+
+    /**
+     * Saves a trained MarkovChain to a snapshot file, overwriting the file if
+     * it exists.
+     *
+     * @param mc       - a (non-null) trained MarkovChain
+     * @param filePath - the path of the file to write
+     * @throws IllegalArgumentException if an argument is null or the file
+     *                                  cannot be written
+     */
+    public static void save(MarkovChain mc, String filePath) {
+        if (mc == null) {
+            throw new IllegalArgumentException("MarkovChain cannot be null");
+        }
+        save(new CompactMarkovChain(mc), filePath);
+    }
+
+    /**
+     * Saves a CompactMarkovChain to a snapshot file, overwriting the file if
+     * it exists.
+     *
+     * @param cmc      - a (non-null) CompactMarkovChain
+     * @param filePath - the path of the file to write
+     * @throws IllegalArgumentException if an argument is null or the file
+     *                                  cannot be written
+     */
+    public static void save(CompactMarkovChain cmc, String filePath) {
+        if (cmc == null || filePath == null) {
+            throw new IllegalArgumentException(
+                    "chain and filePath cannot be null"
+            );
+        }
+        Path file = Paths.get(filePath);
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(file), 1 << 16)
+        )) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            // only the chain's own words, in local id order, so that the
+            // ids in the tables are the ids of the loaded Vocabulary
+            out.writeInt(cmc.words());
+            for (int id = 0; id < cmc.words(); id++) {
+                byte[] word = cmc.word(id).getBytes(StandardCharsets.UTF_8);
+                out.writeInt(word.length);
+                out.write(word);
+            }
+            out.writeInt(cmc.offsets.length - 1);
+            writeInts(out, cmc.offsets);
+            out.writeInt(cmc.targets.length);
+            writeInts(out, cmc.targets);
+            writeInts(out, cmc.cumulative);
+            out.writeInt(cmc.startTargets.length);
+            writeInts(out, cmc.startTargets);
+            writeInts(out, cmc.startCumulative);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("cannot write " + filePath, e);
+        }
+    }
+
+    private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+        for (int v : values) {
+            out.writeInt(v);
+        }
+    }
+
+    /**
+     * Loads a snapshot file as a CompactMarkovChain.
+     *
+     * @param filePath - the path of a file written by save()
+     * @return the chain stored in the file
+     * @throws IllegalArgumentException if filePath is null, or the file
+     *                                  cannot be read or is not a valid
+     *                                  snapshot
+     */
+    public static CompactMarkovChain load(String filePath) {
+        if (filePath == null) {
+            throw new IllegalArgumentException("filePath cannot be null");
+        }
+        try (FileChannel channel = FileChannel.open(
+                Paths.get(filePath), StandardOpenOption.READ
+        )) {
+            MappedByteBuffer in = channel.map(
+                    FileChannel.MapMode.READ_ONLY, 0, channel.size()
+            );
+            if (in.remaining() < 8 || in.getInt() != MAGIC) {
+                throw new IllegalArgumentException(
+                        filePath + " is not a MarkovChain snapshot"
+                );
+            }
+            int version = in.getInt();
+            if (version != VERSION) {
+                throw new IllegalArgumentException(
+                        "unsupported snapshot version " + version
+                );
+            }
+
+            int words = readCount(in);
+            Vocabulary vocab = new Vocabulary();
+            byte[] bytes = new byte[64];
+            for (int id = 0; id < words; id++) {
+                int length = readCount(in);
+                if (length > bytes.length) {
+                    bytes = new byte[length];
+                }
+                in.get(bytes, 0, length);
+                if (vocab.intern(new String(bytes, 0, length, StandardCharsets.UTF_8)) != id) {
+                    throw new IllegalArgumentException("duplicate word in snapshot");
+                }
+            }
+            int rows = readCount(in);
+            if (rows != words) {
+                throw new IllegalArgumentException(
+                        "corrupt snapshot: " + rows + " rows for " + words + " words"
+                );
+            }
+            int[] offsets = readInts(in, rows + 1);
+            int entries = readCount(in);
+            int[] targets = readInts(in, entries);
+            int[] cumulative = readInts(in, entries);
+            int starts = readCount(in);
+            int[] startTargets = readInts(in, starts);
+            int[] startCumulative = readInts(in, starts);
+
+            // check everything that walking the chain relies on, so that a
+            // corrupt file fails here rather than during generation
+            if (offsets[0] != 0 || offsets[rows] != entries) {
+                throw new IllegalArgumentException("corrupt snapshot: bad offsets");
+            }
+            for (int w = 0; w < rows; w++) {
+                if (offsets[w] > offsets[w + 1]) {
+                    throw new IllegalArgumentException("corrupt snapshot: bad offsets");
+                }
+            }
+            for (int w = 0; w < rows; w++) {
+                checkRow(cumulative, offsets[w], offsets[w + 1]);
+            }
+            for (int t : targets) {
+                if (t != CompactMarkovChain.END && (t < 0 || t >= words)) {
+                    throw new IllegalArgumentException("corrupt snapshot: bad word id " + t);
+                }
+            }
+            for (int t : startTargets) {
+                if (t < 0 || t >= words) {
+                    throw new IllegalArgumentException("corrupt snapshot: bad word id " + t);
+                }
+            }
+            checkRow(startCumulative, 0, starts);
+            return new CompactMarkovChain(
+                    vocab, offsets, targets, cumulative, startTargets, startCumulative
+            );
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException(filePath + " is truncated", e);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("cannot read " + filePath, e);
+        }
+    }
+
+    /**
+     * Loads a snapshot file back into a MarkovChain that can be trained
+     * further. This re-records every count, so it is slower than load().
+     *
+     * @param filePath - the path of a file written by save()
+     * @param ng       - the NumberGenerator for the new MarkovChain
+     * @return a MarkovChain with the same frequencies as the saved one
+     * @throws IllegalArgumentException as for load(), or if ng is null
+     */
+    public static MarkovChain loadMarkovChain(String filePath, NumberGenerator ng) {
+        CompactMarkovChain cmc = load(filePath);
+        MarkovChain mc = new MarkovChain(ng);
+        for (int id = 0; id < cmc.offsets.length - 1; id++) {
+            int previous = 0;
+            for (int i = cmc.offsets[id]; i < cmc.offsets[id + 1]; i++) {
+                String next = cmc.targets[i] == CompactMarkovChain.END
+                        ? null : cmc.word(cmc.targets[i]);
+                for (int n = previous; n < cmc.cumulative[i]; n++) {
+                    mc.addBigram(cmc.word(id), next);
+                }
+                previous = cmc.cumulative[i];
+            }
+        }
+        int previous = 0;
+        for (int i = 0; i < cmc.startTargets.length; i++) {
+            for (int n = previous; n < cmc.startCumulative[i]; n++) {
+                mc.startWords.record(cmc.word(cmc.startTargets[i]));
+            }
+            previous = cmc.startCumulative[i];
+        }
+        return mc;
+    }
+
+    /**
+     * Checks that the running totals in [from, to) are positive and strictly
+     * increasing, that is, that every count is at least 1.
+     */
+    private static void checkRow(int[] totals, int from, int to) {
+        int previous = 0;
+        for (int i = from; i < to; i++) {
+            if (totals[i] <= previous) {
+                throw new IllegalArgumentException("corrupt snapshot: bad counts");
+            }
+            previous = totals[i];
+        }
+    }
+
+    private static int readCount(MappedByteBuffer in) {
+        int n = in.getInt();
+        if (n < 0) {
+            throw new IllegalArgumentException("corrupt snapshot");
+        }
+        return n;
+    }
+
+    private static int[] readInts(MappedByteBuffer in, int n) {
+        if ((long) n * 4 > in.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        int[] values = new int[n];
+        in.asIntBuffer().get(values);
+        in.position(in.position() + n * 4);
+        return values;
+    }
+}
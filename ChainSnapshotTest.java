@@ -0,0 +1,179 @@
+package org.cis120;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Tests for ChainSnapshot */
+public class ChainSnapshotTest {
+
+    private static MarkovChain cisChain() {
+        MarkovChain mc = new MarkovChain();
+        mc.train(Arrays.stream("CIS 120 rocks".split(" ")).iterator());
+        mc.train(Arrays.stream("CIS 120 beats CIS 160".split(" ")).iterator());
+        mc.train(Arrays.stream("caf\u00e9 rocks".split(" ")).iterator());
+        return mc;
+    }
+
+    @Test
+    public void testRoundTripCompact() throws IOException {
+        Path file = Files.createTempFile("chain", ".bin");
+        try {
+            CompactMarkovChain saved = new CompactMarkovChain(cisChain());
+            ChainSnapshot.save(saved, file.toString());
+            CompactMarkovChain loaded = ChainSnapshot.load(file.toString());
+
+            assertEquals(saved.getVocabulary().size(), loaded.getVocabulary().size());
+            for (int id = 0; id < saved.getVocabulary().size(); id++) {
+                assertEquals(saved.getVocabulary().word(id), loaded.getVocabulary().word(id));
+            }
+            assertArrayEquals(saved.offsets, loaded.offsets);
+            assertArrayEquals(saved.targets, loaded.targets);
+            assertArrayEquals(saved.cumulative, loaded.cumulative);
+            assertArrayEquals(saved.startTargets, loaded.startTargets);
+            assertArrayEquals(saved.startCumulative, loaded.startCumulative);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testRoundTripSharedVocabulary() throws IOException {
+        Path file = Files.createTempFile("chain", ".bin");
+        try {
+            Vocabulary shared = new Vocabulary();
+            shared.intern("other");
+            shared.intern("persona");
+            CompactMarkovChain saved = new CompactMarkovChain(cisChain(), shared);
+            ChainSnapshot.save(saved, file.toString());
+            CompactMarkovChain loaded = ChainSnapshot.load(file.toString());
+
+            // only the chain's own words are saved
+            assertEquals(saved.words(), loaded.getVocabulary().size());
+            for (int id = 0; id < saved.words(); id++) {
+                assertEquals(saved.word(id), loaded.word(id));
+            }
+            assertArrayEquals(saved.offsets, loaded.offsets);
+            assertArrayEquals(saved.targets, loaded.targets);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testRoundTripMarkovChain() throws IOException {
+        Path file = Files.createTempFile("chain", ".bin");
+        try {
+            MarkovChain saved = cisChain();
+            ChainSnapshot.save(saved, file.toString());
+            MarkovChain loaded = ChainSnapshot.loadMarkovChain(
+                    file.toString(), new RandomNumberGenerator()
+            );
+            assertEquals(saved.toString(), loaded.toString());
+            assertEquals(saved.startWords.getRecords(), loaded.startWords.getRecords());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testRoundTripEmptyChain() throws IOException {
+        Path file = Files.createTempFile("chain", ".bin");
+        try {
+            ChainSnapshot.save(new MarkovChain(), file.toString());
+            CompactMarkovChain loaded = ChainSnapshot.load(file.toString());
+            assertEquals(0, loaded.getVocabulary().size());
+            assertEquals(0, loaded.transitions());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testLoadNotASnapshot() throws IOException {
+        Path file = Files.createTempFile("chain", ".bin");
+        try {
+            Files.write(file, "0, The end should come here.".getBytes(StandardCharsets.UTF_8));
+            assertThrows(IllegalArgumentException.class, () -> {
+                ChainSnapshot.load(file.toString());
+            });
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testLoadTruncated() throws IOException {
+        Path file = Files.createTempFile("chain", ".bin");
+        try {
+            ChainSnapshot.save(cisChain(), file.toString());
+            byte[] bytes = Files.readAllBytes(file);
+            Files.write(file, Arrays.copyOf(bytes, bytes.length - 5));
+            assertThrows(IllegalArgumentException.class, () -> {
+                ChainSnapshot.load(file.toString());
+            });
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testLoadMissingFile() {
+        assertThrows(IllegalArgumentException.class, () -> {
+            ChainSnapshot.load("no/such/file.bin");
+        });
+    }
+
+    /**
+     * Saves the chain "a b", overwrites the int at position with value, and
+     * asserts that loading the result fails. The file holds, in order: magic,
+     * version, 2 words ("a" and "b"), 2 rows, offsets 0 1 2 (at 26), 2
+     * entries, targets 1 END (at 42), totals 1 1 (at 50), 1 start, start
+     * target 0 (at 62) and start total 1.
+     */
+    private static void assertCorrupt(int position, int value) throws IOException {
+        Path file = Files.createTempFile("chain", ".bin");
+        try {
+            MarkovChain mc = new MarkovChain();
+            mc.train(Arrays.asList("a", "b").iterator());
+            ChainSnapshot.save(mc, file.toString());
+            ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(file));
+            assertEquals(2, bytes.getInt(22));
+            assertEquals(1, bytes.getInt(42));
+            assertEquals(0, bytes.getInt(62));
+            bytes.putInt(position, value);
+            Files.write(file, bytes.array());
+            assertThrows(IllegalArgumentException.class, () -> {
+                ChainSnapshot.load(file.toString());
+            });
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testLoadCorrupt() throws IOException {
+        // row count
+        assertCorrupt(22, Integer.MAX_VALUE);
+        assertCorrupt(22, 1);
+        // offsets that decrease
+        assertCorrupt(30, 3);
+        assertCorrupt(30, 5);
+        assertCorrupt(26, 1);
+        // word ids outside the vocabulary
+        assertCorrupt(42, 2);
+        assertCorrupt(46, -2);
+        assertCorrupt(62, 5);
+        // counts of 0
+        assertCorrupt(54, 0);
+        assertCorrupt(50, -1);
+        assertCorrupt(66, 0);
+    }
+}
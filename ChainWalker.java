@@ -0,0 +1,32 @@
+package org.cis120;
+
+import java.util.Iterator;
+
+/**
+ * A ChainWalker is a cursor for a random walk through a trained chain: reset()
+ * begins a sentence at a randomly picked start word, and each call to next()
+ * returns the current word and moves on to one of its successors, until the
+ * sentence ends.
+ * <p>
+ * MarkovChain, NGramMarkovChain and WindowedMarkovChain are walkers
+ * themselves, and walking one of them directly moves its single built-in
+ * position. MarkovChain.walker(), CompactMarkovChain.walker() and
+ * BlendedMarkovChain.walker() instead return independent walkers, each with
+ * its own position and NumberGenerator, so any number of walks (on any
+ * threads) can share one chain.
+ */
+public interface ChainWalker extends Iterator<String> {
+
+    /**
+     * Begins a walk at a randomly picked start word.
+     */
+    void reset();
+
+    /**
+     * Begins a walk at start, which is returned by the next call to next().
+     * If start is null, the walk is finished.
+     *
+     * @param start - the first word of the walk
+     */
+    void reset(String start);
+}
@@ -0,0 +1,385 @@
+package org.cis120;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * A CompactMarkovChain is a read-only copy of a trained MarkovChain that
+ * stores its transitions in primitive arrays instead of a TreeMap of
+ * ProbabilityDistributions.
+ * <p>
+ * Every word is interned to an int id by a Vocabulary, which may be shared
+ * with other chains. Within the chain, each of its own words gets a dense
+ * local id instead, so its tables are sized by its own vocabulary rather than
+ * by the shared one: globalIds[w] is the Vocabulary id of the word with
+ * local id w, and local ids follow the order of the Vocabulary ids, so
+ * globalIds is sorted and id() can binary search it. With a Vocabulary of
+ * its own, the two kinds of ids are the same. id() and word() translate
+ * between words and local ids, which are the ids used by every other method.
+ * <p>
+ * The successors of the word with local id w are stored in the "row"
+ * targets[offsets[w]] ..
+ * targets[offsets[w + 1] - 1] (a compressed sparse row layout). For each
+ * successor, cumulative holds the running total of the counts in that row,
+ * so picking a successor is a binary search over an int array: no String
+ * comparisons, hashing or boxing happen while walking the chain. The end of
+ * a sentence (null in MarkovChain) is stored as the id END.
+ * <p>
+ * The successors in each row are kept in the same order that the original
+ * ProbabilityDistribution iterates its records, so a given random index
+ * selects the same word in both structures. In particular, walking a
+ * CompactMarkovChain with the same NumberGenerator as a MarkovChain (for
+ * example, one built by fixDistribution) produces the same words.
+ * <p>
+ * Because a CompactMarkovChain never changes after it is built, the walk
+ * position is kept in a separate Walker, and any number of walkers may
+ * share one CompactMarkovChain, including walkers on different threads: the
+ * tables are only read, so no locking is needed.
+ */
+public class CompactMarkovChain {
+
+    /**
+     * The id used for the end of a sentence.
+     */
+    public static final int END = Vocabulary.NONE;
+
+    final Vocabulary vocab;
+    final int[] globalIds;
+    final int[] offsets;
+    final int[] targets;
+    final int[] cumulative;
+    final int[] startTargets;
+    final int[] startCumulative;
+    // the MarkovChain.version() this chain was copied from
+    final long version;
+
+    /**
+     * Builds a CompactMarkovChain from a trained MarkovChain, using a fresh
+     * Vocabulary.
+     *
+     * @param mc - a (non-null) trained MarkovChain
+     */
+    public CompactMarkovChain(MarkovChain mc) {
+        this(mc, new Vocabulary());
+    }
+
+    /**
+     * Builds a CompactMarkovChain from a trained MarkovChain. Words that are
+     * not yet in vocab are interned into it, so several chains can share one
+     * Vocabulary; the tables only have rows for the words of mc. The chain
+     * is read while holding its lock, so the copy is consistent even if
+     * MarkovChain.update() runs on another thread.
+     *
+     * @param mc    - a (non-null) trained MarkovChain
+     * @param vocab - the (non-null) Vocabulary used to assign word ids
+     * @throws IllegalArgumentException if mc or vocab is null
+     */
+    public CompactMarkovChain(MarkovChain mc, Vocabulary vocab) {
+        if (mc == null || vocab == null) {
+            throw new IllegalArgumentException(
+                    "MarkovChain and Vocabulary cannot be null"
+            );
+        }
+        this.vocab = vocab;
+
+        // update() holds the chain's lock, so the three passes below all see
+        // the same frequencies
+        synchronized (mc) {
+            this.version = mc.version();
+
+            int entries = 0;
+            for (ProbabilityDistribution<String> pd : mc.chain.values()) {
+                entries += pd.getRecords().size();
+            }
+            int starts = mc.startWords.getRecords().size();
+
+            // intern every word first, then number the distinct ones in the
+            // order of their Vocabulary ids so that the rows can be laid out
+            // by local id
+            int[] seen = new int[mc.chain.size() + entries + starts];
+            int n = 0;
+            for (Map.Entry<String, ProbabilityDistribution<String>> e : mc.chain.entrySet()) {
+                seen[n++] = vocab.intern(e.getKey());
+                for (String next : e.getValue().getRecords().keySet()) {
+                    if (next != null) {
+                        seen[n++] = vocab.intern(next);
+                    }
+                }
+            }
+            for (String start : mc.startWords.getRecords().keySet()) {
+                seen[n++] = vocab.intern(start);
+            }
+            Arrays.sort(seen, 0, n);
+            int rows = 0;
+            for (int i = 0; i < n; i++) {
+                if (rows == 0 || seen[i] != seen[rows - 1]) {
+                    seen[rows++] = seen[i];
+                }
+            }
+            this.globalIds = Arrays.copyOf(seen, rows);
+
+            this.offsets = new int[rows + 1];
+            this.targets = new int[entries];
+            this.cumulative = new int[entries];
+
+            int[] rowSizes = new int[rows];
+            for (Map.Entry<String, ProbabilityDistribution<String>> e : mc.chain.entrySet()) {
+                rowSizes[id(e.getKey())] = e.getValue().getRecords().size();
+            }
+            for (int w = 0; w < rows; w++) {
+                offsets[w + 1] = offsets[w] + rowSizes[w];
+            }
+            for (Map.Entry<String, ProbabilityDistribution<String>> e : mc.chain.entrySet()) {
+                fillRow(e.getValue(), offsets[id(e.getKey())], targets, cumulative);
+            }
+
+            this.startTargets = new int[starts];
+            this.startCumulative = new int[starts];
+            fillRow(mc.startWords, 0, startTargets, startCumulative);
+        }
+    }
+
+    /**
+     * Builds a CompactMarkovChain directly from its tables, whose ids are
+     * the ids of vocab (so every word of vocab is a word of the chain). The
+     * arrays are used as-is, not copied.
+     */
+    CompactMarkovChain(
+            Vocabulary vocab, int[] offsets, int[] targets, int[] cumulative,
+            int[] startTargets, int[] startCumulative
+    ) {
+        this.vocab = vocab;
+        this.globalIds = new int[vocab.size()];
+        for (int w = 0; w < globalIds.length; w++) {
+            globalIds[w] = w;
+        }
+        this.offsets = offsets;
+        this.targets = targets;
+        this.cumulative = cumulative;
+        this.startTargets = startTargets;
+        this.startCumulative = startCumulative;
+        this.version = 0;
+    }
+
+    /**
+     * Copies the records of pd into ids and running totals starting at
+     * position from.
+     */
+    private void fillRow(
+            ProbabilityDistribution<String> pd, int from, int[] ids, int[] totals
+    ) {
+        int i = from;
+        int running = 0;
+        for (Map.Entry<String, Integer> r : pd.getRecords().entrySet()) {
+            running += r.getValue();
+            ids[i] = r.getKey() == null ? END : id(r.getKey());
+            totals[i] = running;
+            i++;
+        }
+    }
+
+    /**
+     * Returns the first position in [from, to) whose running total is
+     * greater than index.
+     */
+    static int search(int[] totals, int from, int to, int index) {
+        int lo = from;
+        int hi = to - 1;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (totals[mid] > index) {
+                hi = mid;
+            } else {
+                lo = mid + 1;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Picks a successor of the word with the given id.
+     *
+     * @param id - the id of the current word
+     * @param ng - the NumberGenerator used to make the choice
+     * @return the id of the successor, or END if the sentence ends here (or
+     *         the word was never followed by anything in training)
+     */
+    public int pick(int id, NumberGenerator ng) {
+        if (id < 0 || id >= offsets.length - 1) {
+            return END;
+        }
+        int from = offsets[id];
+        int to = offsets[id + 1];
+        if (from == to) {
+            return END;
+        }
+        int index = ng.next(cumulative[to - 1]);
+        return targets[search(cumulative, from, to, index)];
+    }
+
+    /**
+     * Picks a word to start a sentence with.
+     *
+     * @param ng - the NumberGenerator used to make the choice
+     * @return the id of the start word, or END if the chain was never
+     *         trained
+     */
+    public int pickStart(NumberGenerator ng) {
+        int n = startTargets.length;
+        if (n == 0) {
+            return END;
+        }
+        int index = ng.next(startCumulative[n - 1]);
+        return startTargets[search(startCumulative, 0, n, index)];
+    }
+
+    /**
+     * Returns the local id of word in this chain.
+     *
+     * @param word - the word to look up
+     * @return the id of word, or END if word is null or not in the chain
+     */
+    public int id(String word) {
+        int global = vocab.id(word);
+        if (global == Vocabulary.NONE) {
+            return END;
+        }
+        int id = Arrays.binarySearch(globalIds, global);
+        return id < 0 ? END : id;
+    }
+
+    /**
+     * Returns the word with the given local id.
+     *
+     * @param id - an id of a word in this chain
+     * @return the word with that id
+     * @throws IllegalArgumentException if no word in the chain has that id
+     */
+    public String word(int id) {
+        if (id < 0 || id >= globalIds.length) {
+            throw new IllegalArgumentException("no word with id " + id);
+        }
+        return vocab.word(globalIds[id]);
+    }
+
+    /**
+     * @return the number of distinct words in the chain, which is one more
+     *         than the largest local id
+     */
+    public int words() {
+        return globalIds.length;
+    }
+
+    /**
+     * @return the Vocabulary that the words of the chain are interned in,
+     *         which may hold words of other chains too
+     */
+    public Vocabulary getVocabulary() {
+        return vocab;
+    }
+
+    /**
+     * @return an estimate of the number of bytes used by the tables of this
+     *         chain, not counting its Vocabulary
+     */
+    public long memoryBytes() {
+        long ints = (long) globalIds.length + offsets.length + targets.length
+                + cumulative.length + startTargets.length + startCumulative.length;
+        // 16 bytes of header for each of the six arrays
+        return 4 * ints + 6 * 16;
+    }
+
+    /**
+     * @return the number of (word, successor) pairs stored in the chain
+     */
+    public int transitions() {
+        return targets.length;
+    }
+
+    /**
+     * Creates a new Walker over this chain. The walker starts out finished;
+     * call reset() to begin a sentence.
+     *
+     * @param ng - the (non-null) NumberGenerator the walker uses
+     * @return a new Walker
+     * @throws IllegalArgumentException if ng is null
+     */
+    public Walker walker(NumberGenerator ng) {
+        return new Walker(this, ng);
+    }
+
+    @Override
+    public String toString() {
+        return "CompactMarkovChain(" + words() + " words, "
+                + targets.length + " transitions, starts "
+                + Arrays.toString(startTargets) + ")";
+    }
+
+    /**
+     * A Walker walks through a CompactMarkovChain with the same Iterator
+     * behavior as MarkovChain: reset() picks a start word, and each call to
+     * next() returns the current word and moves to one of its successors.
+     */
+    public static class Walker implements ChainWalker {
+        private final CompactMarkovChain model;
+        private final NumberGenerator ng;
+        private int now;
+        // a start word that is not in the vocabulary (see reset(String))
+        private String unknown;
+
+        Walker(CompactMarkovChain model, NumberGenerator ng) {
+            if (ng == null) {
+                throw new IllegalArgumentException(
+                        "NumberGenerator input cannot be null"
+                );
+            }
+            this.model = model;
+            this.ng = ng;
+            this.now = END;
+        }
+
+        /**
+         * Begins a walk at a randomly picked start word.
+         */
+        @Override
+        public void reset() {
+            unknown = null;
+            now = model.pickStart(ng);
+        }
+
+        /**
+         * Begins a walk at start, which is returned by the next call to
+         * next(). As in MarkovChain, start does not need to be in the chain;
+         * if it is not, the walk ends right after it. If start is null, the
+         * walk is finished.
+         *
+         * @param start - the first word of the walk
+         */
+        @Override
+        public void reset(String start) {
+            now = model.id(start);
+            unknown = (now == END) ? start : null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return now != END || unknown != null;
+        }
+
+        @Override
+        public String next() {
+            if (unknown != null) {
+                String word = unknown;
+                unknown = null;
+                return word;
+            }
+            if (now == END) {
+                throw new NoSuchElementException();
+            }
+            int current = now;
+            now = model.pick(current, ng);
+            return model.word(current);
+        }
+    }
+}
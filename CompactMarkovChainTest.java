@@ -0,0 +1,119 @@
+package org.cis120;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Tests for CompactMarkovChain */
+public class CompactMarkovChainTest {
+
+    private static MarkovChain cisChain() {
+        MarkovChain mc = new MarkovChain();
+        String sentence1 = "CIS 120 rocks";
+        String sentence2 = "CIS 120 beats CIS 160";
+        mc.train(Arrays.stream(sentence1.split(" ")).iterator());
+        mc.train(Arrays.stream(sentence2.split(" ")).iterator());
+        return mc;
+    }
+
+    @Test
+    public void testTablesMatchChain() {
+        CompactMarkovChain cmc = new CompactMarkovChain(cisChain());
+        Vocabulary v = cmc.getVocabulary();
+        assertEquals(5, v.size());
+        // CIS -> 120:2, 160:1 ; 120 -> beats:1, rocks:1 ; beats -> CIS:1 ;
+        // rocks -> null:1 ; 160 -> null:1
+        assertEquals(7, cmc.transitions());
+        int cis = v.id("CIS");
+        assertEquals(2, cmc.offsets[cis + 1] - cmc.offsets[cis]);
+        assertEquals(3, cmc.cumulative[cmc.offsets[cis + 1] - 1]);
+        assertArrayEquals(new int[] { cis }, cmc.startTargets);
+        assertArrayEquals(new int[] { 2 }, cmc.startCumulative);
+    }
+
+    @Test
+    public void testPickEndOfSentence() {
+        CompactMarkovChain cmc = new CompactMarkovChain(cisChain());
+        int rocks = cmc.getVocabulary().id("rocks");
+        assertEquals(CompactMarkovChain.END, cmc.pick(rocks, new RandomNumberGenerator()));
+    }
+
+    @Test
+    public void testWalkMatchesMarkovChain() {
+        String[] expectedWords = { "CIS", "120", "beats", "CIS", "120", "rocks" };
+        // the same indices select the same successors in both structures
+        List<Integer> indices = Arrays.asList(0, 0, 0, 0, 0, 1, 0);
+
+        MarkovChain mc = new MarkovChain(new ListNumberGenerator(indices));
+        mc.train(Arrays.stream("CIS 120 rocks".split(" ")).iterator());
+        mc.train(Arrays.stream("CIS 120 beats CIS 160".split(" ")).iterator());
+        CompactMarkovChain cmc = new CompactMarkovChain(mc);
+        mc.reset();
+        CompactMarkovChain.Walker w = cmc.walker(new ListNumberGenerator(indices));
+        w.reset();
+
+        for (int i = 0; i < expectedWords.length; i++) {
+            assertTrue(w.hasNext());
+            assertEquals(expectedWords[i], w.next());
+            assertEquals(expectedWords[i], mc.next());
+        }
+        assertFalse(w.hasNext());
+        assertFalse(mc.hasNext());
+    }
+
+    @Test
+    public void testResetStartNotPartOfTheChain() {
+        CompactMarkovChain cmc = new CompactMarkovChain(cisChain());
+        CompactMarkovChain.Walker w = cmc.walker(new RandomNumberGenerator());
+        w.reset("hi");
+        assertTrue(w.hasNext());
+        assertEquals("hi", w.next());
+        assertFalse(w.hasNext());
+        assertThrows(NoSuchElementException.class, () -> {
+            w.next();
+        });
+    }
+
+    @Test
+    public void testResetNull() {
+        CompactMarkovChain cmc = new CompactMarkovChain(cisChain());
+        CompactMarkovChain.Walker w = cmc.walker(new RandomNumberGenerator());
+        w.reset(null);
+        assertFalse(w.hasNext());
+    }
+
+    @Test
+    public void testEmptyChain() {
+        CompactMarkovChain cmc = new CompactMarkovChain(new MarkovChain());
+        CompactMarkovChain.Walker w = cmc.walker(new RandomNumberGenerator());
+        w.reset();
+        assertFalse(w.hasNext());
+        assertEquals(0, cmc.transitions());
+    }
+
+    @Test
+    public void testSharedVocabulary() {
+        Vocabulary v = new Vocabulary();
+        v.intern("hello");
+        CompactMarkovChain cmc = new CompactMarkovChain(cisChain(), v);
+        assertSame(v, cmc.getVocabulary());
+        assertEquals(0, v.id("hello"));
+        assertEquals(6, v.size());
+        // a word of the Vocabulary that is not in this chain has no local id
+        assertEquals(5, cmc.words());
+        assertEquals(CompactMarkovChain.END, cmc.id("hello"));
+        assertEquals("CIS", cmc.word(cmc.id("CIS")));
+        assertEquals(CompactMarkovChain.END, cmc.pick(cmc.id("hello"), new RandomNumberGenerator()));
+    }
+
+    @Test
+    public void testNullMarkovChain() {
+        assertThrows(IllegalArgumentException.class, () -> {
+            new CompactMarkovChain(null);
+        });
+    }
+}
@@ -0,0 +1,459 @@
+package org.cis120;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A ConstrainedGenerator generates sentences that contain a required word or
+ * phrase, instead of generating many tweets and searching them for it.
+ * <p>
+ * It is built from a CompactMarkovChain and adds a reverse index of the
+ * chain: for every word, the words that precede it in training together with
+ * how often, laid out in the same compressed sparse rows as the chain itself.
+ * Starting a sentence counts as a predecessor too (stored as END), weighted
+ * by how often the word started a sentence.
+ * <p>
+ * To generate a sentence containing a phrase, the generator walks backward
+ * from the first word of the phrase, picking each predecessor in proportion
+ * to how often it preceded the current word, until it picks the start of a
+ * sentence; then it walks forward from the last word of the phrase as an
+ * ordinary walk does, until the sentence ends. Each walk is a sample of
+ * the sentences in training that contain the phrase. A walk is abandoned
+ * once the sentence is too long for the requested number of characters, or
+ * if it meets a pruned word (FrequencyPruner.UNKNOWN).
+ * <p>
+ * The search is bounded by a budget: up to maxAttempts random walks are
+ * tried, and if all of them are abandoned, a breadth-first search outward
+ * from the phrase (backward to a start word and forward to an end word)
+ * visiting at most maxExpansions words finds the shortest sentence instead.
+ * <p>
+ * Like the CompactMarkovChain it indexes, a ConstrainedGenerator never
+ * changes after it is built and may be shared between threads.
+ */
+public class ConstrainedGenerator {
+    public static final int DEFAULT_ATTEMPTS = 64;
+    public static final int DEFAULT_EXPANSIONS = 1 << 16;
+
+    // a word that was never preceded by anything, not even the start of a
+    // sentence (only possible in chains that were not built by training,
+    // such as loaded snapshots)
+    private static final int DEAD = -2;
+
+    private final CompactMarkovChain model;
+    private final int maxAttempts;
+    private final int maxExpansions;
+    private final int[] revOffsets;
+    private final int[] revSources;
+    private final int[] revCumulative;
+
+    /**
+     * Builds the reverse index of model with the default budget.
+     *
+     * @param model - the (non-null) chain to generate from
+     * @throws IllegalArgumentException if model is null
+     */
+    public ConstrainedGenerator(CompactMarkovChain model) {
+        this(model, DEFAULT_ATTEMPTS, DEFAULT_EXPANSIONS);
+    }
+
+    /**
+     * Builds the reverse index of model.
+     *
+     * @param model         - the (non-null) chain to generate from
+     * @param maxAttempts   - how many random walks to try for a sentence
+     * @param maxExpansions - how many words the fallback search may visit
+     * @throws IllegalArgumentException if model is null or either budget is
+     *                                  negative
+     */
+    public ConstrainedGenerator(CompactMarkovChain model, int maxAttempts, int maxExpansions) {
+        if (model == null) {
+            throw new IllegalArgumentException("model cannot be null");
+        }
+        if (maxAttempts < 0 || maxExpansions < 0) {
+            throw new IllegalArgumentException("budget cannot be negative");
+        }
+        this.model = model;
+        this.maxAttempts = maxAttempts;
+        this.maxExpansions = maxExpansions;
+
+        int rows = model.offsets.length - 1;
+        int[] sizes = new int[rows];
+        int entries = 0;
+        for (int t : model.targets) {
+            if (t != CompactMarkovChain.END) {
+                sizes[t]++;
+                entries++;
+            }
+        }
+        for (int s : model.startTargets) {
+            sizes[s]++;
+            entries++;
+        }
+        this.revOffsets = new int[rows + 1];
+        for (int w = 0; w < rows; w++) {
+            revOffsets[w + 1] = revOffsets[w] + sizes[w];
+        }
+        this.revSources = new int[entries];
+        this.revCumulative = new int[entries];
+
+        // fill each reverse row with (predecessor, count), then turn the
+        // counts into running totals
+        int[] fill = Arrays.copyOf(revOffsets, rows);
+        for (int w = 0; w < rows; w++) {
+            int previous = 0;
+            for (int e = model.offsets[w]; e < model.offsets[w + 1]; e++) {
+                int t = model.targets[e];
+                if (t != CompactMarkovChain.END) {
+                    int pos = fill[t]++;
+                    revSources[pos] = w;
+                    revCumulative[pos] = model.cumulative[e] - previous;
+                }
+                previous = model.cumulative[e];
+            }
+        }
+        int previous = 0;
+        for (int e = 0; e < model.startTargets.length; e++) {
+            int pos = fill[model.startTargets[e]]++;
+            revSources[pos] = CompactMarkovChain.END;
+            revCumulative[pos] = model.startCumulative[e] - previous;
+            previous = model.startCumulative[e];
+        }
+        for (int w = 0; w < rows; w++) {
+            for (int e = revOffsets[w] + 1; e < revOffsets[w + 1]; e++) {
+                revCumulative[e] += revCumulative[e - 1];
+            }
+        }
+    }
+
+    /**
+     * @return the chain this generator was built from
+     */
+    public CompactMarkovChain getModel() {
+        return model;
+    }
+
+    /**
+     * Generates a sentence that contains phrase, a sequence of words that
+     * must appear next to each other in that order.
+     *
+     * @param phrase   - the (non-null, non-empty) required words
+     * @param maxChars - the most characters the sentence may take, counting
+     *                 one space between words and one closing punctuation
+     *                 mark
+     * @param ng       - the (non-null) NumberGenerator that makes the choices
+     * @return the words of the sentence, or null if the chain cannot produce
+     *         phrase or no sentence containing it was found within the budget
+     * @throws IllegalArgumentException if phrase or ng is null, or phrase is
+     *                                  empty
+     */
+    public List<String> sentenceContaining(List<String> phrase, int maxChars, NumberGenerator ng) {
+        return sentence(phrase, false, maxChars, ng);
+    }
+
+    /**
+     * Generates a sentence that begins with prefix.
+     *
+     * @param prefix   - the (non-null, non-empty) first words of the sentence
+     * @param maxChars - the most characters the sentence may take, counting
+     *                 one space between words and one closing punctuation
+     *                 mark
+     * @param ng       - the (non-null) NumberGenerator that makes the choices
+     * @return the words of the sentence, or null if the chain cannot produce
+     *         prefix at the start of a sentence or no sentence was found
+     *         within the budget
+     * @throws IllegalArgumentException if prefix or ng is null, or prefix is
+     *                                  empty
+     */
+    public List<String> sentenceStartingWith(List<String> prefix, int maxChars, NumberGenerator ng) {
+        return sentence(prefix, true, maxChars, ng);
+    }
+
+    /**
+     * Generates a tweet of at most numChars characters whose first sentence
+     * contains phrase. The rest of the tweet is generated as usual.
+     *
+     * @param phrase   - the (non-null) required words, separated by spaces
+     * @param numChars - The desired number of characters of the tweet
+     * @param ng       - the (non-null) NumberGenerator for this tweet
+     * @return a String representing a generated tweet, or null if no
+     *         sentence containing phrase fits within the budget
+     * @throws IllegalArgumentException if phrase or ng is null, phrase has
+     *                                  no words, or numChars is negative
+     */
+    public String generateTweetContaining(String phrase, int numChars, NumberGenerator ng) {
+        return generateTweet(phrase, false, numChars, ng);
+    }
+
+    /**
+     * Generates a tweet of at most numChars characters that begins with
+     * prefix. The rest of the tweet is generated as usual.
+     *
+     * @param prefix   - the (non-null) first words, separated by spaces
+     * @param numChars - The desired number of characters of the tweet
+     * @param ng       - the (non-null) NumberGenerator for this tweet
+     * @return a String representing a generated tweet, or null if no
+     *         sentence beginning with prefix fits within the budget
+     * @throws IllegalArgumentException if prefix or ng is null, prefix has
+     *                                  no words, or numChars is negative
+     */
+    public String generateTweetStartingWith(String prefix, int numChars, NumberGenerator ng) {
+        return generateTweet(prefix, true, numChars, ng);
+    }
+
+    private String generateTweet(String phrase, boolean anchored, int numChars, NumberGenerator ng) {
+        if (phrase == null) {
+            throw new IllegalArgumentException("phrase cannot be null");
+        }
+        if (numChars < 0) {
+            throw new IllegalArgumentException("tweet length cannot be negative");
+        }
+        List<String> words = new ArrayList<String>();
+        for (String w : phrase.trim().toLowerCase().split("\\s+")) {
+            if (!w.isEmpty()) {
+                words.add(w);
+            }
+        }
+        List<String> first = sentence(words, anchored, numChars, ng);
+        if (first == null) {
+            return null;
+        }
+        ChainWalker walker = new SeededWalker(first, model.walker(ng));
+        return TwitterBot.generateTweetChars(walker, numChars, ng);
+    }
+
+    private List<String> sentence(List<String> phrase, boolean anchored, int maxChars, NumberGenerator ng) {
+        if (phrase == null || phrase.isEmpty()) {
+            throw new IllegalArgumentException("phrase cannot be null or empty");
+        }
+        if (ng == null) {
+            throw new IllegalArgumentException("NumberGenerator cannot be null");
+        }
+        int[] ids = new int[phrase.size()];
+        int chars = 0;
+        for (int i = 0; i < ids.length; i++) {
+            String word = phrase.get(i);
+            // words of a shared Vocabulary that are not in this chain have
+            // no local id, so they come back as END too
+            ids[i] = model.id(word);
+            if (ids[i] == CompactMarkovChain.END) {
+                return null;
+            }
+            if (i > 0 && !follows(ids[i - 1], ids[i])) {
+                return null;
+            }
+            chars += word.length() + 1;
+        }
+        if (anchored && !follows(CompactMarkovChain.END, ids[0])) {
+            return null;
+        }
+        if (chars > maxChars) {
+            return null;
+        }
+
+        for (int attempt = 0; attempt < maxAttempts; attempt++) {
+            List<String> s = sample(ids, anchored, chars, maxChars, ng);
+            if (s != null) {
+                return s;
+            }
+        }
+        return shortest(ids, anchored, chars, maxChars);
+    }
+
+    /**
+     * Returns whether second was ever preceded by first, where END as first
+     * means starting a sentence.
+     */
+    private boolean follows(int first, int second) {
+        for (int e = revOffsets[second]; e < revOffsets[second + 1]; e++) {
+            if (revSources[e] == first) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Picks a predecessor of the word with the given id, END for the start
+     * of a sentence, or DEAD if it has none.
+     */
+    private int pickPredecessor(int id, NumberGenerator ng) {
+        int from = revOffsets[id];
+        int to = revOffsets[id + 1];
+        if (from == to) {
+            return DEAD;
+        }
+        int index = ng.next(revCumulative[to - 1]);
+        return revSources[CompactMarkovChain.search(revCumulative, from, to, index)];
+    }
+
+    /**
+     * Tries one random walk outward from the phrase, returning null if it is
+     * abandoned.
+     */
+    private List<String> sample(int[] ids, boolean anchored, int chars, int maxChars, NumberGenerator ng) {
+        ArrayDeque<String> words = new ArrayDeque<String>();
+        for (int id : ids) {
+            words.addLast(model.word(id));
+        }
+        if (!anchored) {
+            int w = ids[0];
+            while (true) {
+                int p = pickPredecessor(w, ng);
+                if (p == CompactMarkovChain.END) {
+                    break;
+                }
+                if (p == DEAD) {
+                    return null;
+                }
+                String word = model.word(p);
+                chars += word.length() + 1;
+                if (chars > maxChars || FrequencyPruner.UNKNOWN.equals(word)) {
+                    return null;
+                }
+                words.addFirst(word);
+                w = p;
+            }
+        }
+        int w = ids[ids.length - 1];
+        while (true) {
+            int n = model.pick(w, ng);
+            if (n == CompactMarkovChain.END) {
+                break;
+            }
+            String word = model.word(n);
+            chars += word.length() + 1;
+            if (chars > maxChars || FrequencyPruner.UNKNOWN.equals(word)) {
+                return null;
+            }
+            words.addLast(word);
+            w = n;
+        }
+        return new ArrayList<String>(words);
+    }
+
+    /**
+     * Finds the sentence with the fewest words around the phrase by
+     * breadth-first search in both directions, or returns null if none fits
+     * in maxChars or the search visits more than maxExpansions words.
+     */
+    private List<String> shortest(int[] ids, boolean anchored, int chars, int maxChars) {
+        int[] budget = {maxExpansions};
+        List<Integer> before = Collections.emptyList();
+        if (!anchored) {
+            before = search(ids[0], true, budget);
+            if (before == null) {
+                return null;
+            }
+            Collections.reverse(before);
+        }
+        List<Integer> after = search(ids[ids.length - 1], false, budget);
+        if (after == null) {
+            return null;
+        }
+
+        List<String> words = new ArrayList<String>();
+        for (int id : before) {
+            words.add(model.word(id));
+        }
+        for (int id : ids) {
+            words.add(model.word(id));
+        }
+        for (int id : after) {
+            words.add(model.word(id));
+        }
+        for (int i = 0; i < before.size(); i++) {
+            chars += words.get(i).length() + 1;
+        }
+        for (int i = words.size() - after.size(); i < words.size(); i++) {
+            chars += words.get(i).length() + 1;
+        }
+        return chars <= maxChars ? words : null;
+    }
+
+    /**
+     * Searches backward (to a start word) or forward (to an end word) from
+     * the given id, returning the words passed through in the order they
+     * were reached (not including from), or null if the budget runs out.
+     */
+    private List<Integer> search(int from, boolean backward, int[] budget) {
+        Map<Integer, Integer> parent = new HashMap<Integer, Integer>();
+        ArrayDeque<Integer> queue = new ArrayDeque<Integer>();
+        parent.put(from, from);
+        queue.add(from);
+        while (!queue.isEmpty()) {
+            if (budget[0]-- <= 0) {
+                return null;
+            }
+            int w = queue.poll();
+            int lo = backward ? revOffsets[w] : model.offsets[w];
+            int hi = backward ? revOffsets[w + 1] : model.offsets[w + 1];
+            int[] next = backward ? revSources : model.targets;
+            for (int e = lo; e < hi; e++) {
+                int n = next[e];
+                if (n == CompactMarkovChain.END) {
+                    List<Integer> path = new ArrayList<Integer>();
+                    for (int v = w; v != from; v = parent.get(v)) {
+                        path.add(v);
+                    }
+                    Collections.reverse(path);
+                    return path;
+                }
+                if (!parent.containsKey(n)
+                        && !FrequencyPruner.UNKNOWN.equals(model.word(n))) {
+                    parent.put(n, w);
+                    queue.add(n);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * A walker that returns one given sentence after its first reset(), and
+     * then walks the chain as usual.
+     */
+    private static class SeededWalker implements ChainWalker {
+        private final List<String> first;
+        private final ChainWalker rest;
+        private Iterator<String> fixed;
+        private boolean used;
+
+        SeededWalker(List<String> first, ChainWalker rest) {
+            this.first = first;
+            this.rest = rest;
+        }
+
+        @Override
+        public void reset() {
+            if (!used) {
+                used = true;
+                fixed = first.iterator();
+            } else {
+                fixed = null;
+                rest.reset();
+            }
+        }
+
+        @Override
+        public void reset(String start) {
+            fixed = null;
+            rest.reset(start);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return (fixed != null) ? fixed.hasNext() : rest.hasNext();
+        }
+
+        @Override
+        public String next() {
+            return (fixed != null) ? fixed.next() : rest.next();
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package org.cis120;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.cis120.TestChains.*;
+
+/** Tests for ConstrainedGenerator */
+public class ConstrainedGeneratorTest {
+
+    @Test
+    public void testSentenceContainsKeyword() {
+        ConstrainedGenerator cg = new ConstrainedGenerator(compactOf(
+                "the dog is good", "the cat is bad", "a bird can fly", "my dog likes the park"
+        ));
+        NumberGenerator ng = seeded(120);
+        for (int i = 0; i < 50; i++) {
+            List<String> s = cg.sentenceContaining(Arrays.asList("park"), 100, ng);
+            assertNotNull(s);
+            assertTrue(s.contains("park"));
+            assertEquals("park", s.get(s.size() - 1));
+        }
+    }
+
+    @Test
+    public void testBackwardWalkFollowsPredecessorCounts() {
+        // "x" is preceded by "a" three times and "b" once
+        ConstrainedGenerator cg = new ConstrainedGenerator(compactOf("a x", "a x", "a x", "b x"));
+        NumberGenerator ng = seeded(7);
+        int as = 0;
+        for (int i = 0; i < 4000; i++) {
+            List<String> s = cg.sentenceContaining(Arrays.asList("x"), 100, ng);
+            if (s.get(0).equals("a")) {
+                as++;
+            }
+        }
+        assertEquals(3000, as, 150);
+    }
+
+    @Test
+    public void testPhraseMustBeInChain() {
+        ConstrainedGenerator cg = new ConstrainedGenerator(compactOf("the dog is good"));
+        NumberGenerator ng = seeded(1);
+        assertNull(cg.sentenceContaining(Arrays.asList("cat"), 100, ng));
+        assertNull(cg.sentenceContaining(Arrays.asList("good", "dog"), 100, ng));
+        assertEquals(Arrays.asList("the", "dog", "is", "good"),
+                cg.sentenceContaining(Arrays.asList("dog", "is"), 100, ng));
+    }
+
+    @Test
+    public void testStartingWith() {
+        ConstrainedGenerator cg = new ConstrainedGenerator(compactOf("the dog is good", "my dog is bad"));
+        NumberGenerator ng = seeded(2);
+        List<String> s = cg.sentenceStartingWith(Arrays.asList("my", "dog"), 100, ng);
+        assertEquals(Arrays.asList("my", "dog"), s.subList(0, 2));
+        assertNull(cg.sentenceStartingWith(Arrays.asList("dog"), 100, ng));
+    }
+
+    @Test
+    public void testFallsBackToShortestSentence() {
+        // the loop through "and" makes most random walks too long
+        ConstrainedGenerator cg = new ConstrainedGenerator(compactOf(
+                "go and go and go and go and go and go and go and go and go and go stop",
+                "go stop"
+        ), 0, 100);
+        assertEquals(Arrays.asList("go", "stop"),
+                cg.sentenceContaining(Arrays.asList("stop"), 10, seeded(3)));
+    }
+
+    @Test
+    public void testBudgetExhausted() {
+        ConstrainedGenerator cg = new ConstrainedGenerator(compactOf("a b c d e f"), 0, 2);
+        assertNull(cg.sentenceContaining(Arrays.asList("c"), 100, seeded(4)));
+    }
+
+    @Test
+    public void testTooLongForMaxChars() {
+        ConstrainedGenerator cg = new ConstrainedGenerator(compactOf("the dog is good"));
+        assertNull(cg.sentenceContaining(Arrays.asList("dog"), 10, seeded(5)));
+        assertNotNull(cg.sentenceContaining(Arrays.asList("dog"), 16, seeded(5)));
+    }
+
+    @Test
+    public void testGenerateTweetContaining() {
+        BufferedReader br = new BufferedReader(new StringReader(
+                "0, the dog is good. the cat is bad. my bird can fly.\n"
+        ));
+        TwitterBot bot = new TwitterBot(br, 1);
+        NumberGenerator ng = seeded(6);
+        for (int i = 0; i < 20; i++) {
+            String tweet = bot.generateTweetContaining("Bird", 60, ng);
+            assertTrue(tweet.startsWith("my bird can fly"), tweet);
+            assertTrue(tweet.length() <= 60);
+        }
+        assertNull(bot.generateTweetContaining("fish", 60, ng));
+        assertSame(bot.getConstrainedGenerator(), bot.getConstrainedGenerator());
+    }
+
+    @Test
+    public void testWordFromAnotherPersona() {
+        ModelRegistry registry = new ModelRegistry(1 << 20);
+        registry.register("a", () -> chainOf("the dog is good"));
+        registry.register("b", () -> chainOf("the car is fast"));
+        ConstrainedGenerator cg = new ConstrainedGenerator(registry.get("a"));
+        registry.get("b");
+        assertNull(cg.sentenceContaining(Arrays.asList("fast"), 100, seeded(8)));
+        assertNull(cg.sentenceContaining(Arrays.asList("is", "fast"), 100, seeded(8)));
+        assertNull(cg.generateTweetStartingWith("fast", 100, seeded(8)));
+    }
+
+    @Test
+    public void testBadArguments() {
+        ConstrainedGenerator cg = new ConstrainedGenerator(compactOf("a b"));
+        assertThrows(IllegalArgumentException.class, () -> new ConstrainedGenerator(null));
+        assertThrows(IllegalArgumentException.class,
+                () -> new ConstrainedGenerator(compactOf("a"), -1, 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> cg.sentenceContaining(Arrays.asList(), 10, seeded(1)));
+        assertThrows(IllegalArgumentException.class,
+                () -> cg.sentenceContaining(Arrays.asList("a"), 10, null));
+        assertThrows(IllegalArgumentException.class,
+                () -> cg.generateTweetContaining("a", -1, seeded(1)));
+        assertThrows(IllegalArgumentException.class,
+                () -> cg.generateTweetContaining(null, 10, seeded(1)));
+    }
+}
@@ -0,0 +1,122 @@
+package org.cis120;
+
+/**
+ * A CountMinSketch estimates how many times each String has been added to it
+ * using a fixed amount of memory, no matter how many distinct Strings there
+ * are.
+ * <p>
+ * The sketch is a table of depth rows of width counters. Each row hashes a
+ * String to one of its counters, and adding the String increments those
+ * counters. Since other Strings may share a counter, each counter is an
+ * overestimate, and the smallest of a String's counters is the estimate. Only
+ * the counters that are currently the smallest are incremented (a
+ * "conservative update"), which keeps the overestimates lower.
+ * <p>
+ * Estimates are never too low, so a CountMinSketch can safely be used to
+ * find the Strings that occur at least some number of times: a rare String
+ * may be let through, but a frequent one is never missed.
+ */
+public class CountMinSketch {
+    private final int[][] counts;
+    private final int mask;
+
+    /**
+     * Creates an empty sketch.
+     *
+     * @param width - the number of counters in each row, rounded up to a
+     *              power of two
+     * @param depth - the number of rows
+     * @throws IllegalArgumentException if width or depth is not positive, or
+     *                                  width is more than 2^30
+     */
+    public CountMinSketch(int width, int depth) {
+        if (width < 1 || width > (1 << 30) || depth < 1) {
+            throw new IllegalArgumentException(
+                    "width must be in [1, 2^30] and depth must be positive"
+            );
+        }
+        int w = Integer.highestOneBit(width);
+        if (w < width) {
+            w <<= 1;
+        }
+        this.counts = new int[depth][w];
+        this.mask = w - 1;
+    }
+
+    /**
+     * A 64-bit FNV-1a hash of s, mixed so that both halves are usable.
+     */
+    private static long hash(String s) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < s.length(); i++) {
+            h ^= s.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * Returns the counter used for s in the given row, computed from two
+     * halves of one hash (h1 + row * h2).
+     */
+    private int column(long h, int row) {
+        int h1 = (int) h;
+        int h2 = (int) (h >>> 32) | 1;
+        return (h1 + row * h2) & mask;
+    }
+
+    /**
+     * Records one occurrence of s.
+     *
+     * @param s - the (non-null) String to count
+     * @return the new estimate for s
+     * @throws IllegalArgumentException if s is null
+     */
+    public int add(String s) {
+        if (s == null) {
+            throw new IllegalArgumentException("cannot count null");
+        }
+        long h = hash(s);
+        int min = estimate(h);
+        if (min == Integer.MAX_VALUE) {
+            return min;
+        }
+        for (int row = 0; row < counts.length; row++) {
+            int col = column(h, row);
+            if (counts[row][col] == min) {
+                counts[row][col] = min + 1;
+            }
+        }
+        return min + 1;
+    }
+
+    /**
+     * @param s - the String to look up
+     * @return an estimate of how many times s was added, which is never less
+     *         than the true number (0 for null)
+     */
+    public int estimate(String s) {
+        if (s == null) {
+            return 0;
+        }
+        return estimate(hash(s));
+    }
+
+    private int estimate(long h) {
+        int min = Integer.MAX_VALUE;
+        for (int row = 0; row < counts.length; row++) {
+            min = Math.min(min, counts[row][column(h, row)]);
+        }
+        return min;
+    }
+
+    /**
+     * @return the number of bytes used by the counters
+     */
+    public long memoryBytes() {
+        return 4L * counts.length * (mask + 1);
+    }
+}
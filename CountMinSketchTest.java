@@ -0,0 +1,54 @@
+package org.cis120;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Tests for CountMinSketch */
+public class CountMinSketchTest {
+
+    @Test
+    public void testExactWhenSparse() {
+        CountMinSketch sketch = new CountMinSketch(1 << 12, 4);
+        assertEquals(0, sketch.estimate("dog"));
+        assertEquals(1, sketch.add("dog"));
+        assertEquals(2, sketch.add("dog"));
+        sketch.add("cat");
+        assertEquals(2, sketch.estimate("dog"));
+        assertEquals(1, sketch.estimate("cat"));
+        assertEquals(0, sketch.estimate(null));
+    }
+
+    @Test
+    public void testNeverUnderestimates() {
+        CountMinSketch sketch = new CountMinSketch(256, 3);
+        Map<String, Integer> counts = new HashMap<>();
+        Random r = new Random(120);
+        for (int i = 0; i < 20000; i++) {
+            String word = "w" + (int) Math.abs(r.nextGaussian() * 500);
+            sketch.add(word);
+            counts.merge(word, 1, Integer::sum);
+        }
+        for (Map.Entry<String, Integer> e : counts.entrySet()) {
+            assertTrue(sketch.estimate(e.getKey()) >= e.getValue());
+        }
+    }
+
+    @Test
+    public void testSizeAndBadArguments() {
+        assertEquals(4L * 3 * 128, new CountMinSketch(100, 3).memoryBytes());
+        assertThrows(IllegalArgumentException.class, () -> {
+            new CountMinSketch(0, 3);
+        });
+        assertThrows(IllegalArgumentException.class, () -> {
+            new CountMinSketch(16, 0);
+        });
+        assertThrows(IllegalArgumentException.class, () -> {
+            new CountMinSketch(16, 2).add(null);
+        });
+    }
+}
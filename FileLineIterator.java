@@ -118,14 +118,14 @@ public class FileLineIterator implements Iterator<String> {
         if (! this.hasNext()) {
             throw new NoSuchElementException();
         }
-        StringWriter buf = new StringWriter();
+        String current = line;
+        Instrumentation.metrics().increment(Instrumentation.LINES_READ, 1);
         try {
-            buf.write(line);
             line = r.readLine();
         } catch (IOException e) {
             throw new NoSuchElementException();
         }
-        return buf.toString();
+        return current;
     }
 
 }
@@ -0,0 +1,290 @@
+package org.cis120;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A FrequencyPruner keeps rare words (typos, handles, one-off hashtags) out of
+ * a MarkovChain, so that its memory is spent on the words that actually
+ * shape the generated tweets.
+ * <p>
+ * Training takes two passes over the data. The first pass counts every word
+ * in a CountMinSketch, whose size is fixed in advance. The second pass
+ * replaces every word seen fewer than minCount times with UNKNOWN and trains
+ * the chain on the result. All of the rare words therefore share a single
+ * ProbabilityDistribution, and they only take up one successor entry in the
+ * distributions of the words before them.
+ * <p>
+ * UNKNOWN never starts a sentence (leading rare words are dropped), and
+ * TwitterBot ends a sentence when it reaches UNKNOWN, so it never appears in
+ * generated tweets. The fraction of words replaced by UNKNOWN, given by
+ * unknownRate(), measures how much of the training text the pruned chain
+ * can no longer reproduce. train() also reports how much smaller the pruned
+ * chain is than an unpruned one would be: its second pass estimates the
+ * distinct words and transitions of the original sentences with two
+ * HyperLogLogs (16 KB each, within about 1%), so, like the sketch, the
+ * report takes the same memory however large the corpus is.
+ */
+public class FrequencyPruner {
+
+    /**
+     * The word that replaces all rare words.
+     */
+    public static final String UNKNOWN = "<unk>";
+
+    /**
+     * The default sketch size: 4 rows of 2^18 counters, or 4 MB.
+     */
+    static final int DEFAULT_WIDTH = 1 << 18;
+    static final int DEFAULT_DEPTH = 4;
+
+    private final CountMinSketch sketch;
+    private final int minCount;
+    private long tokens;
+    private long unknownTokens;
+    private int vocabulary;
+    private int transitions;
+    private int prunedVocabulary;
+    private int prunedTransitions;
+
+    /**
+     * Creates a FrequencyPruner with a 4 MB sketch.
+     *
+     * @param minCount - the number of times a word must occur to be kept
+     * @throws IllegalArgumentException if minCount is not positive
+     */
+    public FrequencyPruner(int minCount) {
+        this(minCount, DEFAULT_WIDTH, DEFAULT_DEPTH);
+    }
+
+    /**
+     * Creates a FrequencyPruner with a sketch of the given size.
+     *
+     * @param minCount - the number of times a word must occur to be kept
+     * @param width    - the number of counters in each row of the sketch
+     * @param depth    - the number of rows in the sketch
+     * @throws IllegalArgumentException if any argument is not positive
+     */
+    public FrequencyPruner(int minCount, int width, int depth) {
+        if (minCount < 1) {
+            throw new IllegalArgumentException("minCount must be positive");
+        }
+        this.sketch = new CountMinSketch(width, depth);
+        this.minCount = minCount;
+    }
+
+    /**
+     * Counts the words of a sentence (the first pass). Empty Strings are
+     * skipped.
+     *
+     * @param sentence - a (non-null) list of (non-null) words
+     */
+    public void count(List<String> sentence) {
+        for (String word : sentence) {
+            if (!word.isEmpty()) {
+                sketch.add(word);
+            }
+        }
+    }
+
+    /**
+     * @param word - a word
+     * @return true if word has been counted at least minCount times (or may
+     *         have been: the sketch can overestimate)
+     */
+    public boolean admits(String word) {
+        return sketch.estimate(word) >= minCount;
+    }
+
+    /**
+     * Returns a copy of a sentence with each word that is not admitted
+     * replaced by UNKNOWN and any UNKNOWNs at its start dropped (the second
+     * pass). Empty Strings are dropped as well.
+     *
+     * @param sentence - a (non-null) list of (non-null) words
+     * @return the pruned sentence, which may be empty
+     */
+    public List<String> prune(List<String> sentence) {
+        List<String> pruned = new ArrayList<String>(sentence.size());
+        for (String word : sentence) {
+            if (word.isEmpty()) {
+                continue;
+            }
+            tokens++;
+            if (admits(word)) {
+                pruned.add(word);
+            } else {
+                unknownTokens++;
+                if (!pruned.isEmpty()) {
+                    pruned.add(UNKNOWN);
+                }
+            }
+        }
+        return pruned;
+    }
+
+    /**
+     * Trains a MarkovChain on the tweets in a CSV file, reading it twice:
+     * once to count the words and once to train on the pruned sentences.
+     *
+     * @param filePath    - the path to the CSV file
+     * @param tweetColumn - the column of the file that contains the tweets
+     * @param ng          - the NumberGenerator for the returned MarkovChain
+     * @return the pruned MarkovChain
+     * @throws IllegalArgumentException if filePath or ng is null or the file
+     *                                  cannot be read
+     */
+    public MarkovChain train(String filePath, int tweetColumn, NumberGenerator ng) {
+        MarkovChain mc = new MarkovChain(ng);
+        try (BufferedReader br = FileLineIterator.fileToReader(filePath)) {
+            TweetParser.csvDataToTrainingData(br, tweetColumn, this::count);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("cannot read " + filePath, e);
+        }
+        HyperLogLog words = new HyperLogLog();
+        HyperLogLog bigrams = new HyperLogLog();
+        try (BufferedReader br = FileLineIterator.fileToReader(filePath)) {
+            TweetParser.csvDataToTrainingData(br, tweetColumn, sentence -> {
+                countDistinct(sentence, words, bigrams);
+                mc.train(prune(sentence).iterator());
+            });
+        } catch (IOException e) {
+            throw new IllegalArgumentException("cannot read " + filePath, e);
+        }
+        vocabulary = (int) words.estimate();
+        transitions = (int) bigrams.estimate();
+        prunedVocabulary = mc.chain.size();
+        prunedTransitions = 0;
+        for (ProbabilityDistribution<String> pd : mc.chain.values()) {
+            prunedTransitions += pd.getRecords().size();
+        }
+        return mc;
+    }
+
+    /**
+     * Adds the hashes of the words of sentence, and of the transitions
+     * between them (including the one to the end of the sentence), to words
+     * and bigrams.
+     */
+    private static void countDistinct(
+            List<String> sentence, HyperLogLog words, HyperLogLog bigrams
+    ) {
+        long prev = 0;
+        boolean started = false;
+        for (String word : sentence) {
+            if (word.isEmpty()) {
+                continue;
+            }
+            long h = hash(word);
+            words.add(h);
+            if (started) {
+                bigrams.add(mix(prev * 31 + h));
+            }
+            prev = h;
+            started = true;
+        }
+        if (started) {
+            bigrams.add(mix(prev * 31));
+        }
+    }
+
+    /**
+     * 64-bit FNV-1a hash of a word, finished with the MurmurHash3 fmix64
+     * mixer.
+     */
+    private static long hash(String word) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < word.length(); i++) {
+            h ^= word.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return mix(h);
+    }
+
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * @return the number of words passed to prune() so far
+     */
+    public long tokens() {
+        return tokens;
+    }
+
+    /**
+     * @return the number of those words that were replaced by UNKNOWN (or
+     *         dropped from the start of a sentence)
+     */
+    public long unknownTokens() {
+        return unknownTokens;
+    }
+
+    /**
+     * @return the fraction of pruned words that were not admitted, or 0 if
+     *         nothing has been pruned
+     */
+    public double unknownRate() {
+        return tokens == 0 ? 0 : (double) unknownTokens / tokens;
+    }
+
+    /**
+     * @return an estimate (within about 1%) of the number of distinct words
+     *         in the data passed to train(), or 0 if train() has not been
+     *         called
+     */
+    public int vocabulary() {
+        return vocabulary;
+    }
+
+    /**
+     * @return the number of distinct words in the chain built by train(),
+     *         counting UNKNOWN
+     */
+    public int prunedVocabulary() {
+        return prunedVocabulary;
+    }
+
+    /**
+     * @return an estimate (within about 1%) of the number of distinct
+     *         transitions (word and successor, or word and the end of a
+     *         sentence) in the data passed to train()
+     */
+    public int transitions() {
+        return transitions;
+    }
+
+    /**
+     * @return the number of distinct transitions in the chain built by
+     *         train()
+     */
+    public int prunedTransitions() {
+        return prunedTransitions;
+    }
+
+    /**
+     * @return the number of bytes used by the sketch
+     */
+    public long memoryBytes() {
+        return sketch.memoryBytes();
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "FrequencyPruner(minCount %d, %d of %d words unknown (%.2f%%), "
+                        + "vocabulary %d -> %d, transitions %d -> %d, "
+                        + "sketch %d bytes)",
+                minCount, unknownTokens, tokens, 100 * unknownRate(),
+                vocabulary, prunedVocabulary, transitions, prunedTransitions,
+                memoryBytes()
+        );
+    }
+}
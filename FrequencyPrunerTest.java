@@ -0,0 +1,100 @@
+package org.cis120;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Tests for FrequencyPruner */
+public class FrequencyPrunerTest {
+
+    private static List<String> words(String sentence) {
+        return Arrays.asList(sentence.split(" "));
+    }
+
+    @Test
+    public void testPruneReplacesRareWords() {
+        FrequencyPruner pruner = new FrequencyPruner(2);
+        pruner.count(words("the dog is good"));
+        pruner.count(words("the dog is bad"));
+        assertTrue(pruner.admits("dog"));
+        assertFalse(pruner.admits("good"));
+        assertEquals(
+                words("the dog is " + FrequencyPruner.UNKNOWN),
+                pruner.prune(words("the dog is good"))
+        );
+        // rare words at the start of a sentence are dropped
+        assertEquals(words("dog is"), pruner.prune(words("xyzzy dog is")));
+        assertEquals(7, pruner.tokens());
+        assertEquals(2, pruner.unknownTokens());
+        assertEquals(2.0 / 7, pruner.unknownRate(), 1e-12);
+    }
+
+    @Test
+    public void testBadMinCount() {
+        assertThrows(IllegalArgumentException.class, () -> {
+            new FrequencyPruner(0);
+        });
+    }
+
+    @Test
+    public void testTrainFromFileShrinksChain() throws IOException {
+        Path file = Files.createTempFile("tweets", ".csv");
+        try {
+            StringBuilder csv = new StringBuilder();
+            Random r = new Random(120);
+            for (int i = 0; i < 300; i++) {
+                // common words plus a one-off handle in every tweet
+                csv.append(i).append(", the dog is ")
+                        .append(r.nextBoolean() ? "good" : "bad")
+                        .append(" said user").append(i).append(".\n");
+            }
+            Files.write(file, csv.toString().getBytes(StandardCharsets.UTF_8));
+
+            MarkovChain full = new MarkovChain();
+            TweetParser.csvDataToTrainingData(
+                    FileLineIterator.fileToReader(file.toString()), 1,
+                    sentence -> full.train(sentence.iterator())
+            );
+            FrequencyPruner pruner = new FrequencyPruner(2);
+            MarkovChain pruned = pruner.train(file.toString(), 1, new RandomNumberGenerator());
+
+            assertEquals(306, full.chain.size());
+            // the, dog, is, good, bad, said and UNKNOWN
+            assertEquals(7, pruned.chain.size());
+            assertEquals(300, pruned.get("said").count(FrequencyPruner.UNKNOWN));
+            assertEquals(300.0 / 1800, pruner.unknownRate(), 1e-12);
+            assertEquals(306, pruner.vocabulary(), 3);
+            assertEquals(7, pruner.prunedVocabulary());
+            int fullTransitions = 0;
+            for (ProbabilityDistribution<String> pd : full.chain.values()) {
+                fullTransitions += pd.getRecords().size();
+            }
+            assertEquals(606, fullTransitions);
+            assertEquals(606, pruner.transitions(), 6);
+            // "said" now has one successor, and UNKNOWN ends the sentence
+            assertEquals(8, pruner.prunedTransitions());
+            assertTrue(pruner.toString().contains(
+                    "vocabulary " + pruner.vocabulary() + " -> 7"));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testTwitterBotEndsSentenceAtUnknown() {
+        MarkovChain mc = new MarkovChain();
+        mc.train(words("hello " + FrequencyPruner.UNKNOWN + " there").iterator());
+        TwitterBot t = new TwitterBot(mc, new RandomNumberGenerator());
+        String tweet = TweetParser.replacePunctuation(t.generateTweetChars(20));
+        assertEquals("hello. hello. hello.", tweet);
+        assertEquals("hello. hello. hello.", TweetParser.replacePunctuation(t.generateTweet(3)));
+    }
+}
@@ -0,0 +1,88 @@
+package org.cis120;
+
+/**
+ * A HyperLogLog estimates how many distinct values have been added to it
+ * using a fixed amount of memory, no matter how many values there are.
+ * <p>
+ * Values are added as 64-bit hashes. The first precision bits of a hash pick
+ * one of 2^precision one-byte registers, and the register keeps the largest
+ * number of leading zeros (plus one) seen in the rest of the hashes that
+ * picked it. Many distinct values are needed before long runs of zeros
+ * appear, so the registers together give an estimate whose standard error
+ * is about 1.04 / sqrt(2^precision): 0.8% for the default precision of 14,
+ * which takes 16 KB. While most registers are still empty, the number of
+ * empty registers is used instead ("linear counting"), which is nearly
+ * exact for small counts.
+ */
+public class HyperLogLog {
+    static final int DEFAULT_PRECISION = 14;
+
+    private final int precision;
+    private final byte[] registers;
+
+    /**
+     * Creates an empty estimator with 2^14 registers.
+     */
+    public HyperLogLog() {
+        this(DEFAULT_PRECISION);
+    }
+
+    /**
+     * Creates an empty estimator.
+     *
+     * @param precision - the number of hash bits that pick a register, so
+     *                  there are 2^precision registers
+     * @throws IllegalArgumentException if precision is not in [4, 20]
+     */
+    public HyperLogLog(int precision) {
+        if (precision < 4 || precision > 20) {
+            throw new IllegalArgumentException("precision must be in [4, 20]");
+        }
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    /**
+     * Adds a value, given as a hash whose bits are all equally random (such
+     * as one finished with the MurmurHash3 fmix64 mixer). Adding the same
+     * hash again changes nothing.
+     *
+     * @param hash - the hash of the value
+     */
+    public void add(long hash) {
+        int index = (int) (hash >>> (64 - precision));
+        long rest = hash << precision;
+        int rank = Math.min(Long.numberOfLeadingZeros(rest), 64 - precision) + 1;
+        if (rank > registers[index]) {
+            registers[index] = (byte) rank;
+        }
+    }
+
+    /**
+     * @return an estimate of the number of distinct hashes added
+     */
+    public long estimate() {
+        int m = registers.length;
+        double sum = 0;
+        int empty = 0;
+        for (byte r : registers) {
+            sum += Math.scalb(1.0, -r);
+            if (r == 0) {
+                empty++;
+            }
+        }
+        double alpha = 0.7213 / (1 + 1.079 / m);
+        double estimate = alpha * m * m / sum;
+        if (estimate <= 2.5 * m && empty > 0) {
+            estimate = m * Math.log((double) m / empty);
+        }
+        return Math.round(estimate);
+    }
+
+    /**
+     * @return the number of bytes used by the registers
+     */
+    public long memoryBytes() {
+        return registers.length;
+    }
+}
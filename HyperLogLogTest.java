@@ -0,0 +1,53 @@
+package org.cis120;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Tests for HyperLogLog */
+public class HyperLogLogTest {
+
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    @Test
+    public void testEmpty() {
+        assertEquals(0, new HyperLogLog().estimate());
+    }
+
+    @Test
+    public void testSmallCountsAreNearlyExact() {
+        HyperLogLog hll = new HyperLogLog();
+        for (int i = 0; i < 300; i++) {
+            hll.add(mix(i));
+            // duplicates do not count
+            hll.add(mix(i));
+        }
+        assertEquals(300, hll.estimate(), 3);
+    }
+
+    @Test
+    public void testLargeCounts() {
+        HyperLogLog hll = new HyperLogLog();
+        Random r = new Random(120);
+        for (int i = 0; i < 1000000; i++) {
+            hll.add(mix(r.nextLong()));
+        }
+        assertEquals(1000000, hll.estimate(), 30000);
+        assertEquals(1 << 14, hll.memoryBytes());
+    }
+
+    @Test
+    public void testBadPrecision() {
+        assertThrows(IllegalArgumentException.class, () -> new HyperLogLog(3));
+        assertThrows(IllegalArgumentException.class, () -> new HyperLogLog(21));
+    }
+}
@@ -0,0 +1,120 @@
+package org.cis120;
+
+import java.util.Iterator;
+import java.util.ServiceLoader;
+
+/**
+ * Instrumentation holds the Metrics that the bot reports to, and the names of
+ * the metrics it reports.
+ * <p>
+ * The Metrics are chosen once, when this class is loaded, and never change:
+ * <ul>
+ * <li>if the system property org.cis120.metrics is set, it names the class to
+ * use, which must implement Metrics and have a public no-argument
+ * constructor (for example -Dorg.cis120.metrics=org.cis120.MetricRecorder);
+ * <li>otherwise the first Metrics found by ServiceLoader is used;
+ * <li>otherwise Metrics.NOOP.
+ * </ul>
+ * Because they are held in a static final field, the JIT compiler treats them
+ * as a constant: with NOOP, enabled() is known to be false and the calls to
+ * the other methods are removed, so uninstrumented runs pay nothing for them.
+ */
+public final class Instrumentation {
+
+    /**
+     * Counter: lines read by FileLineIterator and MappedLineIterator.
+     */
+    public static final String LINES_READ = "lines_read";
+
+    /**
+     * Counter: words dropped by TweetParser because cleanWord() rejected them.
+     */
+    public static final String WORDS_REJECTED = "words_rejected";
+
+    /**
+     * Timer: time to parse and clean one CSV line into sentences.
+     */
+    public static final String PARSE_TIME = "parse_time";
+
+    /**
+     * Counter: sentences passed to MarkovChain.train() or update().
+     */
+    public static final String SENTENCES_TRAINED = "sentences_trained";
+
+    /**
+     * Timer: time for MarkovChain.train() to record one sentence.
+     */
+    public static final String TRAIN_TIME = "train_time";
+
+    /**
+     * Histogram: the number of words with their own ProbabilityDistribution
+     * in a MarkovChain, recorded once for each chain that a TwitterBot or
+     * ParallelTrainer finishes training, and again after every update().
+     */
+    public static final String VOCABULARY_SIZE = "vocabulary_size";
+
+    /**
+     * Histogram: the number of distinct successors of each word, recorded
+     * once a TwitterBot has finished training.
+     */
+    public static final String CHAIN_FANOUT = "chain_fanout";
+
+    /**
+     * Counter: words placed in generated tweets.
+     */
+    public static final String TOKENS_GENERATED = "tokens_generated";
+
+    /**
+     * Histogram: words generated per second, for each generated tweet.
+     */
+    public static final String TOKENS_PER_SECOND = "tokens_per_second";
+
+    /**
+     * Timer: time to generate one tweet.
+     */
+    public static final String GENERATION_LATENCY = "generation_latency";
+
+    /**
+     * The system property that names the Metrics class to use.
+     */
+    public static final String METRICS_PROPERTY = "org.cis120.metrics";
+
+    private static final Metrics METRICS = load(System.getProperty(METRICS_PROPERTY));
+
+    private Instrumentation() {
+    }
+
+    /**
+     * @return the Metrics in use
+     */
+    public static Metrics metrics() {
+        return METRICS;
+    }
+
+    /**
+     * Finds the Metrics to use.
+     *
+     * @param className - the name of the Metrics class to create, or null to
+     *                  look for one with ServiceLoader
+     * @return a new instance of className, else the first Metrics found by
+     *         ServiceLoader, else Metrics.NOOP
+     * @throws IllegalArgumentException if className is not a Metrics class
+     *                                  that can be created
+     */
+    static Metrics load(String className) {
+        ClassLoader loader = Instrumentation.class.getClassLoader();
+        if (className == null) {
+            Iterator<Metrics> found = ServiceLoader.load(Metrics.class, loader).iterator();
+            return found.hasNext() ? found.next() : Metrics.NOOP;
+        }
+        try {
+            Class<?> c = Class.forName(className, true, loader);
+            if (!Metrics.class.isAssignableFrom(c)) {
+                throw new IllegalArgumentException(className + " is not a Metrics");
+            }
+            return (Metrics) c.getConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException("cannot create metrics " + className, e);
+        }
+    }
+}
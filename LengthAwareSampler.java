@@ -0,0 +1,355 @@
+package org.cis120;
+
+import java.util.Arrays;
+
+/**
+ * A LengthAwareSampler generates tweets that come close to a requested
+ * number of characters in a single pass.
+ * <p>
+ * generateTweetChars() grows a tweet word by word and stops at the first word
+ * that does not fit, so a tweet is often much shorter than its budget and
+ * usually ends in the middle of a sentence. A LengthAwareSampler instead
+ * precomputes two statistics for every word w of a CompactMarkovChain:
+ * <p>
+ * - endProbability(w): the probability that w ends its sentence, from the
+ * transitions to END (null in MarkovChain);
+ * <p>
+ * - expectedRemaining(w): the expected number of characters that the rest
+ * of the sentence adds after w, counting one space before each word. It is
+ * the solution of E[w] = sum over successors n of P(n | w) * (1 + |n| +
+ * E[n]), found by iterating that equation.
+ * <p>
+ * It also computes the length of the shortest way to finish the sentence
+ * after each word, minRemaining(w).
+ * <p>
+ * While walking, a word is only picked if the room left after it is at least
+ * its minRemaining, so every sentence that is started can be finished within
+ * the budget and no sample is ever rejected and retried. Among the words
+ * that can still be finished, each successor's probability is multiplied by
+ * how likely the sentence is to still fit if that successor is picked: a
+ * smooth step that is close to 1 when the room left after the word is larger
+ * than its expected remaining length and falls towards 0 as the room runs
+ * out. Ending the sentence always fits, so as the budget runs out the walk
+ * is steered into words that end sentences. A new sentence is started
+ * whenever some start word can be finished in the room that is left.
+ * <p>
+ * Pruned words (FrequencyPruner.UNKNOWN) end the sentence, as they do in
+ * generateTweetChars().
+ * <p>
+ * A LengthAwareSampler never changes after it is built and may be shared
+ * between threads.
+ */
+public class LengthAwareSampler {
+    static final int RESOLUTION = 1 << 24;
+
+    // the expected remaining length is found to within this many characters
+    private static final double TOLERANCE = 1e-3;
+    private static final int MAX_ITERATIONS = 1000;
+    // the expected remaining length of a word whose sentences (nearly)
+    // never end
+    private static final double MAX_EXPECTED = 1e4;
+    // how gradually the fit of a word falls off, as a fraction of its
+    // expected remaining length
+    private static final double SOFTNESS = 0.25;
+
+    private static final int NONE_FITS = -2;
+    // minRemaining of a word from which the end cannot be reached
+    private static final int UNREACHABLE = Integer.MAX_VALUE / 2;
+
+    private final CompactMarkovChain model;
+    private final double[] expected;
+    private final double[] endProbability;
+    private final int[] minimum;
+    private final int maxRow;
+
+    /**
+     * Precomputes the termination statistics of model.
+     *
+     * @param model - the (non-null) chain to generate from
+     * @throws IllegalArgumentException if model is null
+     */
+    public LengthAwareSampler(CompactMarkovChain model) {
+        if (model == null) {
+            throw new IllegalArgumentException("model cannot be null");
+        }
+        this.model = model;
+        int rows = model.offsets.length - 1;
+        this.expected = new double[rows];
+        this.endProbability = new double[rows];
+        this.minimum = new int[rows];
+
+        int widest = model.startTargets.length;
+        for (int w = 0; w < rows; w++) {
+            int from = model.offsets[w];
+            int to = model.offsets[w + 1];
+            widest = Math.max(widest, to - from);
+            if (from == to) {
+                continue;
+            }
+            int previous = 0;
+            int ends = 0;
+            for (int e = from; e < to; e++) {
+                if (endsSentence(model.targets[e])) {
+                    ends += model.cumulative[e] - previous;
+                }
+                previous = model.cumulative[e];
+            }
+            endProbability[w] = ends / (double) model.cumulative[to - 1];
+        }
+        this.maxRow = widest;
+
+        // Gauss-Seidel iteration from E = 0; it increases monotonically to
+        // the solution
+        for (int iteration = 0; iteration < MAX_ITERATIONS; iteration++) {
+            double change = 0;
+            for (int w = 0; w < rows; w++) {
+                double e = remaining(w);
+                change = Math.max(change, Math.abs(e - expected[w]));
+                expected[w] = e;
+            }
+            if (change < TOLERANCE) {
+                break;
+            }
+        }
+
+        // Bellman-Ford from "unreachable"; every value is the length of a
+        // real way to finish, so stopping early would only be cautious
+        Arrays.fill(minimum, UNREACHABLE);
+        boolean changed = true;
+        for (int iteration = 0; changed && iteration < MAX_ITERATIONS; iteration++) {
+            changed = false;
+            for (int w = 0; w < rows; w++) {
+                int m = shortestRemaining(w);
+                if (m < minimum[w]) {
+                    minimum[w] = m;
+                    changed = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Computes the shortest way to finish the sentence after w from the
+     * current minimum of its successors.
+     */
+    private int shortestRemaining(int w) {
+        int best = UNREACHABLE;
+        for (int e = model.offsets[w]; e < model.offsets[w + 1]; e++) {
+            int n = model.targets[e];
+            if (endsSentence(n)) {
+                return 0;
+            }
+            best = Math.min(best, 1 + model.word(n).length() + minimum[n]);
+        }
+        return best;
+    }
+
+    /**
+     * Computes the right-hand side of the equation for E[w].
+     */
+    private double remaining(int w) {
+        int from = model.offsets[w];
+        int to = model.offsets[w + 1];
+        if (from == to) {
+            return 0;
+        }
+        double sum = 0;
+        int previous = 0;
+        for (int e = from; e < to; e++) {
+            int n = model.targets[e];
+            int count = model.cumulative[e] - previous;
+            previous = model.cumulative[e];
+            if (!endsSentence(n)) {
+                sum += count * (1 + model.word(n).length() + expected[n]);
+            }
+        }
+        return Math.min(MAX_EXPECTED, sum / model.cumulative[to - 1]);
+    }
+
+    private boolean endsSentence(int id) {
+        return id == CompactMarkovChain.END
+                || FrequencyPruner.UNKNOWN.equals(model.word(id));
+    }
+
+    /**
+     * @return the chain this sampler was built from
+     */
+    public CompactMarkovChain getModel() {
+        return model;
+    }
+
+    /**
+     * Returns the expected number of characters the rest of a sentence adds
+     * after word.
+     *
+     * @param word - a word of the chain
+     * @return the expected remaining length, or 0 if word is not in the chain
+     */
+    public double expectedRemaining(String word) {
+        int id = model.id(word);
+        return (id == CompactMarkovChain.END) ? 0 : expected[id];
+    }
+
+    /**
+     * Returns the probability that word is the last word of its sentence.
+     *
+     * @param word - a word of the chain
+     * @return the probability, or 0 if word is not in the chain
+     */
+    public double endProbability(String word) {
+        int id = model.id(word);
+        return (id == CompactMarkovChain.END) ? 0 : endProbability[id];
+    }
+
+    /**
+     * Returns the number of characters in the shortest way to finish a
+     * sentence after word, counting one space before each word.
+     *
+     * @param word - a word of the chain
+     * @return the shortest remaining length, 0 if word is not in the chain,
+     *         or Integer.MAX_VALUE if a sentence can never end after word
+     */
+    public int minRemaining(String word) {
+        int id = model.id(word);
+        if (id == CompactMarkovChain.END) {
+            return 0;
+        }
+        return (minimum[id] >= UNREACHABLE) ? Integer.MAX_VALUE : minimum[id];
+    }
+
+    /**
+     * @return the expected length in characters of a sentence, not counting
+     *         its punctuation
+     */
+    public double expectedSentenceChars() {
+        int n = model.startTargets.length;
+        if (n == 0) {
+            return 0;
+        }
+        double sum = 0;
+        int previous = 0;
+        for (int e = 0; e < n; e++) {
+            int s = model.startTargets[e];
+            int count = model.startCumulative[e] - previous;
+            previous = model.startCumulative[e];
+            sum += count * (model.word(s).length() + expected[s]);
+        }
+        return sum / model.startCumulative[n - 1];
+    }
+
+    /**
+     * Generates a tweet of at most numChars characters, steering the walk so
+     * that the tweet ends near numChars at the end of a sentence. Sentences
+     * are separated and ended by random punctuation as in
+     * generateTweetChars().
+     *
+     * @param numChars - the desired number of characters of the tweet
+     * @param ng       - the (non-null) NumberGenerator for this tweet
+     * @return a String representing a generated tweet
+     * @throws IllegalArgumentException if numChars is negative or ng is null
+     */
+    public String generateTweet(int numChars, NumberGenerator ng) {
+        if (numChars < 0) {
+            throw new IllegalArgumentException(
+                    "tweet length cannot be negative"
+            );
+        }
+        if (ng == null) {
+            throw new IllegalArgumentException(
+                    "NumberGenerator cannot be null"
+            );
+        }
+        StringBuilder tweet = TwitterBot.tweetBuilder(numChars);
+        double[] weights = new double[maxRow];
+        int[] totals = new int[maxRow];
+        // one character is always kept for the closing punctuation
+        int budget = numChars - 1;
+        while (true) {
+            // pick() takes the separator out of the room itself
+            int separator = (tweet.length() == 0) ? 0 : 2;
+            int w = pick(model.startTargets, model.startCumulative, 0,
+                    model.startTargets.length, budget - tweet.length(),
+                    separator, weights, totals, ng);
+            if (w < 0) {
+                break;
+            }
+            if (separator > 0) {
+                tweet.append(TwitterBot.randomPunctuation(ng)).append(' ');
+            }
+            tweet.append(model.word(w));
+
+            while (true) {
+                w = pick(model.targets, model.cumulative, model.offsets[w],
+                        model.offsets[w + 1], budget - tweet.length(), 1, weights, totals, ng);
+                if (w == CompactMarkovChain.END) {
+                    break;
+                }
+                if (w == NONE_FITS) {
+                    // cannot happen, since w was only picked if its
+                    // sentence could be finished; end the tweet here
+                    tweet.append(TwitterBot.randomPunctuation(ng));
+                    return tweet.toString();
+                }
+                tweet.append(' ').append(model.word(w));
+            }
+        }
+        if (tweet.length() > 0) {
+            tweet.append(TwitterBot.randomPunctuation(ng));
+        }
+        return tweet.toString();
+    }
+
+    /**
+     * Picks an entry of the row [from, to) with its count weighted by how
+     * well it fits in room characters, where each word also costs separator
+     * characters. Returns the picked id, END if the sentence should end, or
+     * NONE_FITS if nothing in the row fits. weights and totals are scratch
+     * space at least as long as the row.
+     */
+    private int pick(
+            int[] targets, int[] cumulative, int from, int to, int room,
+            int separator, double[] weights, int[] totals, NumberGenerator ng
+    ) {
+        double sum = 0;
+        // running totals start again from 0 in every row
+        int previous = 0;
+        for (int e = from; e < to; e++) {
+            int n = targets[e];
+            int count = cumulative[e] - previous;
+            previous = cumulative[e];
+            double weight;
+            if (endsSentence(n)) {
+                weight = count;
+            } else {
+                int left = room - separator - model.word(n).length();
+                weight = (left < minimum[n]) ? 0 : count * fit(left, expected[n]);
+            }
+            weights[e - from] = weight;
+            sum += weight;
+        }
+        if (sum == 0) {
+            return NONE_FITS;
+        }
+
+        int running = 0;
+        for (int k = 0; k < to - from; k++) {
+            if (weights[k] > 0) {
+                running += Math.max(1, (int) Math.round(weights[k] / sum * RESOLUTION));
+            }
+            totals[k] = running;
+        }
+        int index = ng.next(running);
+        int n = targets[from + CompactMarkovChain.search(totals, 0, to - from, index)];
+        return endsSentence(n) ? CompactMarkovChain.END : n;
+    }
+
+    /**
+     * Returns how likely a sentence with an expected remaining length of
+     * expected is to fit in left characters: a logistic step centred on
+     * expected.
+     */
+    private static double fit(int left, double expected) {
+        double width = 1 + SOFTNESS * expected;
+        return 1 / (1 + Math.exp((expected - left) / width));
+    }
+}
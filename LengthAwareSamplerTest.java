@@ -0,0 +1,116 @@
+package org.cis120;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.cis120.TestChains.*;
+
+/** Tests for LengthAwareSampler */
+public class LengthAwareSamplerTest {
+
+    private static final String TWEETS = "0, the dog is good. the cat is bad.\n"
+            + "1, a dog sat on the mat! the dog ran far.\n"
+            + "2, is the cat on the mat? a cat ran to the dog.\n"
+            + "3, my very old and very sleepy dog likes to sleep on the warm mat all day.";
+
+    @Test
+    public void testStatisticsOfLinearChain() {
+        LengthAwareSampler ls = new LengthAwareSampler(compactOf("a bb ccc"));
+        assertEquals(7, ls.expectedRemaining("a"), 1e-6);
+        assertEquals(4, ls.expectedRemaining("bb"), 1e-6);
+        assertEquals(0, ls.expectedRemaining("ccc"), 1e-6);
+        assertEquals(0, ls.endProbability("a"), 1e-9);
+        assertEquals(1, ls.endProbability("ccc"), 1e-9);
+        assertEquals(8, ls.expectedSentenceChars(), 1e-6);
+        assertEquals(7, ls.minRemaining("a"));
+        assertEquals(0, ls.expectedRemaining("zzz"), 1e-9);
+    }
+
+    @Test
+    public void testStatisticsOfCycle() {
+        // "a" is followed by "a" twice and ends once: E = 2/3 * (2 + E)
+        LengthAwareSampler ls = new LengthAwareSampler(compactOf("a a a"));
+        assertEquals(4, ls.expectedRemaining("a"), 1e-2);
+        assertEquals(1.0 / 3, ls.endProbability("a"), 1e-9);
+        assertEquals(0, ls.minRemaining("a"));
+    }
+
+    @Test
+    public void testMinRemainingTakesShortestWay() {
+        LengthAwareSampler ls = new LengthAwareSampler(compactOf("a bbbbbb c", "a dd c", "c e"));
+        // "a dd c" is shorter than "a bbbbbb c"; "c" can end a sentence
+        assertEquals(5, ls.minRemaining("a"));
+        assertEquals(0, ls.minRemaining("c"));
+    }
+
+    @Test
+    public void testNeverOverBudgetAndEndsSentences() {
+        TwitterBot bot = new TwitterBot(new BufferedReader(new StringReader(TWEETS)), 1);
+        LengthAwareSampler ls = bot.getLengthSampler();
+        for (int seed = 0; seed < 200; seed++) {
+            String tweet = bot.generateTweetToLength(60, seeded(seed));
+            assertTrue(tweet.length() <= 60, tweet);
+            String[] words = tweet.substring(0, tweet.length() - 1).split("[ .;?!]+");
+            assertTrue(ls.endProbability(words[words.length - 1]) > 0, tweet);
+        }
+    }
+
+    @Test
+    public void testFillsBudgetWithWholeSentences() {
+        TwitterBot bot = new TwitterBot(new BufferedReader(new StringReader(TWEETS)), 1);
+        LengthAwareSampler ls = bot.getLengthSampler();
+        long length = 0;
+        int cutOff = 0;
+        for (int seed = 0; seed < 200; seed++) {
+            length += bot.generateTweetToLength(50, seeded(seed)).length();
+            String plain = bot.generateTweetChars(50, seeded(seed));
+            String[] words = plain.substring(0, plain.length() - 1).split("[ .;?!]+");
+            if (ls.endProbability(words[words.length - 1]) == 0) {
+                cutOff++;
+            }
+        }
+        assertTrue(length / 200.0 > 45, "mean length " + length / 200.0);
+        // generateTweetChars often stops in the middle of a sentence
+        assertTrue(cutOff > 50, cutOff + " tweets cut off");
+    }
+
+    @Test
+    public void testTinyBudget() {
+        LengthAwareSampler ls = new LengthAwareSampler(compactOf("hello world"));
+        assertEquals("", ls.generateTweet(0, seeded(1)));
+        // a sentence is only started if it can be finished
+        assertEquals("", ls.generateTweet(11, seeded(1)));
+        String tweet = ls.generateTweet(12, seeded(1));
+        assertEquals("hello world", tweet.substring(0, 11));
+        assertEquals(12, tweet.length());
+    }
+
+    @Test
+    public void testSecondSentenceUsesWholeBudget() {
+        LengthAwareSampler ls = new LengthAwareSampler(compactOf("a b"));
+        assertEquals(4, ls.generateTweet(8, seeded(1)).length());
+        // "a b" + ". " + "a b" + "." is exactly 9 characters
+        String tweet = ls.generateTweet(9, seeded(1));
+        assertEquals(9, tweet.length());
+        assertEquals("a b", tweet.substring(0, 3));
+        assertEquals("a b", tweet.substring(5, 8));
+    }
+
+    @Test
+    public void testEmptyChain() {
+        LengthAwareSampler ls = new LengthAwareSampler(new CompactMarkovChain(new MarkovChain()));
+        assertEquals("", ls.generateTweet(280, seeded(1)));
+        assertEquals(0, ls.expectedSentenceChars(), 1e-9);
+    }
+
+    @Test
+    public void testBadArguments() {
+        LengthAwareSampler ls = new LengthAwareSampler(compactOf("a b"));
+        assertThrows(IllegalArgumentException.class, () -> new LengthAwareSampler(null));
+        assertThrows(IllegalArgumentException.class, () -> ls.generateTweet(-1, seeded(1)));
+        assertThrows(IllegalArgumentException.class, () -> ls.generateTweet(10, null));
+    }
+}
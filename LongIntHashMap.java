@@ -0,0 +1,153 @@
+package org.cis120;
+
+import java.util.Arrays;
+
+/**
+ * A hash map from long keys to int values that stores its entries in two
+ * primitive arrays, with no boxing and no per-entry objects. Collisions are
+ * resolved by linear probing, and the table doubles when it is half full.
+ * <p>
+ * Keys must not be negative (negative keys are reserved to mark empty
+ * slots), and entries cannot be removed. Missing keys have the value 0.
+ */
+class LongIntHashMap {
+    private static final long EMPTY = -1L;
+
+    private long[] keys;
+    private int[] values;
+    private int size;
+    private int mask;
+
+    /**
+     * Creates an empty map.
+     */
+    LongIntHashMap() {
+        this(16);
+    }
+
+    /**
+     * Creates an empty map with room for about expected entries.
+     */
+    LongIntHashMap(int expected) {
+        int capacity = Integer.highestOneBit(Math.max(4, expected) * 2 - 1) * 2;
+        keys = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+        values = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    private static int hash(long key) {
+        // the finalizer of MurmurHash3
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+
+    private int slot(long key) {
+        int i = hash(key) & mask;
+        while (keys[i] != EMPTY && keys[i] != key) {
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    /**
+     * @return the value stored for key, or 0 if there is none
+     */
+    int get(long key) {
+        return values[slot(key)];
+    }
+
+    /**
+     * @return true if a value has been stored for key
+     */
+    boolean containsKey(long key) {
+        return key >= 0 && keys[slot(key)] == key;
+    }
+
+    /**
+     * Stores value for key.
+     *
+     * @throws IllegalArgumentException if key is negative
+     */
+    void put(long key, int value) {
+        int i = insert(key);
+        values[i] = value;
+    }
+
+    /**
+     * Adds delta to the value stored for key (0 if there is none yet).
+     *
+     * @return the new value
+     * @throws IllegalArgumentException if key is negative
+     */
+    int addTo(long key, int delta) {
+        int i = insert(key);
+        values[i] += delta;
+        return values[i];
+    }
+
+    private int insert(long key) {
+        if (key < 0) {
+            throw new IllegalArgumentException("keys cannot be negative");
+        }
+        int i = slot(key);
+        if (keys[i] == EMPTY) {
+            if (2 * (size + 1) > keys.length) {
+                grow();
+                i = slot(key);
+            }
+            keys[i] = key;
+            size++;
+        }
+        return i;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        Arrays.fill(keys, EMPTY);
+        values = new int[oldValues.length * 2];
+        mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int j = slot(oldKeys[i]);
+                keys[j] = oldKeys[i];
+                values[j] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+     * @return the number of keys in the map
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return the number of slots in the table. Slots are numbered from 0,
+     *         and keyAt() and valueAt() read one slot.
+     */
+    int capacity() {
+        return keys.length;
+    }
+
+    /**
+     * @return the key in slot i, or a negative number if the slot is empty
+     */
+    long keyAt(int i) {
+        return keys[i];
+    }
+
+    /**
+     * @return the value in slot i
+     */
+    int valueAt(int i) {
+        return values[i];
+    }
+}
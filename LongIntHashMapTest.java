@@ -0,0 +1,64 @@
+package org.cis120;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Tests for LongIntHashMap */
+public class LongIntHashMapTest {
+
+    @Test
+    public void testPutAndGet() {
+        LongIntHashMap map = new LongIntHashMap();
+        assertFalse(map.containsKey(0L));
+        assertEquals(0, map.get(0L));
+        map.put(0L, 7);
+        map.put(Long.MAX_VALUE, 9);
+        assertTrue(map.containsKey(0L));
+        assertEquals(7, map.get(0L));
+        assertEquals(9, map.get(Long.MAX_VALUE));
+        assertEquals(2, map.size());
+    }
+
+    @Test
+    public void testAddTo() {
+        LongIntHashMap map = new LongIntHashMap();
+        assertEquals(1, map.addTo(42L, 1));
+        assertEquals(4, map.addTo(42L, 3));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    public void testNegativeKey() {
+        LongIntHashMap map = new LongIntHashMap();
+        assertThrows(IllegalArgumentException.class, () -> {
+            map.put(-1L, 1);
+        });
+        assertFalse(map.containsKey(-1L));
+    }
+
+    @Test
+    public void testGrowMatchesHashMap() {
+        LongIntHashMap map = new LongIntHashMap(2);
+        Map<Long, Integer> expected = new HashMap<>();
+        Random r = new Random(120);
+        for (int i = 0; i < 20000; i++) {
+            long key = r.nextInt(5000) * 0x100000001L;
+            map.addTo(key, 1);
+            expected.merge(key, 1, Integer::sum);
+        }
+        assertEquals(expected.size(), map.size());
+        int seen = 0;
+        for (int i = 0; i < map.capacity(); i++) {
+            if (map.keyAt(i) >= 0) {
+                assertEquals(expected.get(map.keyAt(i)), map.valueAt(i));
+                seen++;
+            }
+        }
+        assertEquals(expected.size(), seen);
+    }
+}
@@ -0,0 +1,274 @@
+package org.cis120;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * MappedLineIterator reads the lines of a UTF-8 text file through a
+ * memory-mapped FileChannel instead of a BufferedReader. It is meant for very
+ * large tweet files: the file is mapped one window at a time (so files
+ * larger than 2 GB work), no intermediate copies of the text are made, and
+ * the encoding is always UTF-8 rather than the platform default.
+ * <p>
+ * Lines are split exactly as BufferedReader.readLine() splits them: at
+ * "\n", "\r" or "\r\n", and the terminators are not part of the line.
+ * Malformed UTF-8 is replaced with U+FFFD.
+ * <p>
+ * Like FileLineIterator, this is an Iterator of Strings, so it can be passed
+ * anywhere a FileLineIterator is used. Callers that do not need a String can
+ * use nextSlice() instead, which returns a CharSequence view of the line
+ * that is only valid until the next call. For lines that are pure ASCII the
+ * view reads straight from the mapped file without copying it at all.
+ * <p>
+ * The file is closed once the last line has been returned, or by close().
+ */
+public class MappedLineIterator implements Iterator<String>, Closeable {
+
+    /**
+     * The number of bytes of the file that are mapped at once.
+     */
+    static final int DEFAULT_WINDOW = 64 << 20;
+
+    private final FileChannel channel;
+    private final long size;
+    private final int windowSize;
+    private MappedByteBuffer window;
+    private long windowStart;
+    private int position;
+    private boolean open;
+
+    private final CharsetDecoder decoder;
+    private CharBuffer chars;
+
+    /**
+     * Creates a MappedLineIterator over the file at filePath.
+     *
+     * @param filePath - the path to a UTF-8 text file
+     * @throws IllegalArgumentException if filePath is null or the file cannot
+     *                                  be opened
+     */
+    public MappedLineIterator(String filePath) {
+        this(toPath(filePath), DEFAULT_WINDOW);
+    }
+
+    /**
+     * Creates a MappedLineIterator that maps windowSize bytes at a time.
+     */
+    MappedLineIterator(Path file, int windowSize) {
+        if (windowSize < 1) {
+            throw new IllegalArgumentException("window size must be positive");
+        }
+        try {
+            this.channel = FileChannel.open(file, StandardOpenOption.READ);
+            this.size = channel.size();
+        } catch (IOException e) {
+            throw new IllegalArgumentException("cannot open " + file, e);
+        }
+        this.windowSize = windowSize;
+        this.decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.chars = CharBuffer.allocate(256);
+        this.open = true;
+        try {
+            map(0, windowSize);
+        } catch (IOException e) {
+            close();
+            throw new IllegalArgumentException("cannot read " + file, e);
+        }
+        if (size == 0) {
+            close();
+        }
+    }
+
+    private static Path toPath(String filePath) {
+        if (filePath == null) {
+            throw new IllegalArgumentException("filePath cannot be null");
+        }
+        return Paths.get(filePath);
+    }
+
+    /**
+     * Maps up to length bytes of the file, starting at start.
+     */
+    private void map(long start, long length) throws IOException {
+        long mapped = Math.min(length, size - start);
+        if (mapped > Integer.MAX_VALUE) {
+            throw new IOException("line longer than 2 GB");
+        }
+        window = channel.map(FileChannel.MapMode.READ_ONLY, start, mapped);
+        windowStart = start;
+        position = 0;
+    }
+
+    /**
+     * Returns true if there are lines left to read in the file.
+     *
+     * @return a boolean indicating whether another line can be produced
+     */
+    @Override
+    public boolean hasNext() {
+        return open && windowStart + position < size;
+    }
+
+    /**
+     * Returns the next line of the file as a String.
+     *
+     * @return the next line in the file
+     * @throws NoSuchElementException if there are no more lines
+     */
+    @Override
+    public String next() {
+        return nextSlice().toString();
+    }
+
+    /**
+     * Returns the next line of the file as a CharSequence that is only valid
+     * until the next call to next() or nextSlice().
+     *
+     * @return the next line in the file
+     * @throws NoSuchElementException if there are no more lines
+     */
+    public CharSequence nextSlice() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Instrumentation.metrics().increment(Instrumentation.LINES_READ, 1);
+        while (true) {
+            int limit = window.limit();
+            boolean ascii = true;
+            for (int i = position; i < limit; i++) {
+                byte b = window.get(i);
+                if (b == '\n' || b == '\r') {
+                    if (b == '\r' && i + 1 == limit && windowStart + limit < size) {
+                        // the '\r' might be followed by a '\n' in the next window
+                        break;
+                    }
+                    int skip = (b == '\r' && i + 1 < limit && window.get(i + 1) == '\n') ? 2 : 1;
+                    return take(i, skip, ascii);
+                }
+                if (b < 0) {
+                    ascii = false;
+                }
+            }
+            if (windowStart + limit >= size) {
+                // the last line of the file has no terminator
+                return take(limit, 0, ascii);
+            }
+            // the line runs past this window: map a new one starting at it
+            long lineLength = limit - position;
+            try {
+                map(windowStart + position, Math.max(windowSize, 2 * lineLength + 2));
+            } catch (IOException e) {
+                close();
+                throw new NoSuchElementException("cannot read file: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Returns the line ending at end and moves past its terminator.
+     */
+    private CharSequence take(int end, int terminator, boolean ascii) {
+        int start = position;
+        position = end + terminator;
+        CharSequence line;
+        if (ascii) {
+            line = new AsciiSlice(window, start, end - start);
+        } else {
+            line = decode(start, end);
+        }
+        if (!hasNext()) {
+            close();
+        }
+        return line;
+    }
+
+    private CharBuffer decode(int start, int end) {
+        ByteBuffer bytes = window.duplicate();
+        bytes.position(start).limit(end);
+        int needed = (int) Math.ceil((end - start) * (double) decoder.maxCharsPerByte());
+        if (chars.capacity() < needed) {
+            chars = CharBuffer.allocate(needed);
+        }
+        chars.clear();
+        decoder.reset();
+        CoderResult result = decoder.decode(bytes, chars, true);
+        if (!result.isUnderflow()) {
+            throw new IllegalStateException("cannot decode line: " + result);
+        }
+        decoder.flush(chars);
+        chars.flip();
+        return chars;
+    }
+
+    /**
+     * Closes the file. Afterwards, hasNext() returns false, but slices that
+     * were already returned stay readable.
+     */
+    @Override
+    public void close() {
+        open = false;
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // nothing more can be read either way
+        }
+    }
+
+    /**
+     * A CharSequence view of ASCII bytes in a ByteBuffer.
+     */
+    private static class AsciiSlice implements CharSequence {
+        private final ByteBuffer bytes;
+        private final int offset;
+        private final int length;
+
+        AsciiSlice(ByteBuffer bytes, int offset, int length) {
+            this.bytes = bytes;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (index < 0 || index >= length) {
+                throw new IndexOutOfBoundsException("index " + index);
+            }
+            return (char) bytes.get(offset + index);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            if (start < 0 || end > length || start > end) {
+                throw new IndexOutOfBoundsException();
+            }
+            return new AsciiSlice(bytes, offset + start, end - start);
+        }
+
+        @Override
+        public String toString() {
+            byte[] copy = new byte[length];
+            bytes.duplicate().position(offset).get(copy);
+            return new String(copy, StandardCharsets.ISO_8859_1);
+        }
+    }
+}
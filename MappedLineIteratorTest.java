@@ -0,0 +1,147 @@
+package org.cis120;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Tests for MappedLineIterator */
+public class MappedLineIteratorTest {
+
+    // the lines that a BufferedReader finds in text
+    private static List<String> readerLines(String text) {
+        List<String> lines = new LinkedList<String>();
+        FileLineIterator li = new FileLineIterator(new BufferedReader(new StringReader(text)));
+        while (li.hasNext()) {
+            lines.add(li.next());
+        }
+        return lines;
+    }
+
+    private static List<String> mappedLines(String text, int window) throws IOException {
+        Path file = Files.createTempFile("lines", ".txt");
+        try {
+            Files.write(file, text.getBytes(StandardCharsets.UTF_8));
+            List<String> lines = new LinkedList<String>();
+            MappedLineIterator li = new MappedLineIterator(file, window);
+            while (li.hasNext()) {
+                lines.add(li.next());
+            }
+            return lines;
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testMatchesBufferedReader() throws IOException {
+        String[] texts = {
+            "0, The end should come here.\n1, This comes from data with no duplicate words!",
+            "trailing newline\n",
+            "\n\nblank lines\n\n",
+            "windows\r\nline\r\nendings\r\n",
+            "old mac\rendings\r",
+            "mixed\r\n\r\n\rlines\n\r",
+            "caf\u00e9, na\u00efve \u2603 and \ud83d\udc36 dogs\nplain",
+            "a line that is much longer than the tiny windows used in this test\nx",
+            "",
+        };
+        for (String text : texts) {
+            for (int window = 1; window <= 16; window++) {
+                assertEquals(readerLines(text), mappedLines(text, window));
+            }
+            assertEquals(readerLines(text), mappedLines(text, MappedLineIterator.DEFAULT_WINDOW));
+        }
+    }
+
+    @Test
+    public void testAsciiSlice() throws IOException {
+        Path file = Files.createTempFile("lines", ".txt");
+        try {
+            Files.write(file, "0, hello\n1, caf\u00e9".getBytes(StandardCharsets.UTF_8));
+            MappedLineIterator li = new MappedLineIterator(file.toString());
+            CharSequence first = li.nextSlice();
+            assertEquals(8, first.length());
+            assertEquals('h', first.charAt(3));
+            assertEquals("hello", first.subSequence(3, 8).toString());
+            assertEquals("1, caf\u00e9", li.nextSlice().toString());
+            assertFalse(li.hasNext());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testNextWhenFinished() throws IOException {
+        Path file = Files.createTempFile("lines", ".txt");
+        try {
+            Files.write(file, "only".getBytes(StandardCharsets.UTF_8));
+            MappedLineIterator li = new MappedLineIterator(file.toString());
+            assertEquals("only", li.next());
+            assertFalse(li.hasNext());
+            assertThrows(NoSuchElementException.class, () -> {
+                li.next();
+            });
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testClose() throws IOException {
+        Path file = Files.createTempFile("lines", ".txt");
+        try {
+            Files.write(file, "one\ntwo".getBytes(StandardCharsets.UTF_8));
+            MappedLineIterator li = new MappedLineIterator(file.toString());
+            li.close();
+            assertFalse(li.hasNext());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testTrainsLikeBufferedReader() throws IOException {
+        String csv = "0, The end should come here.\n1, This comes from data with no duplicate words!";
+        Path file = Files.createTempFile("tweets", ".csv");
+        try {
+            Files.write(file, csv.getBytes(StandardCharsets.UTF_8));
+            List<List<String>> mapped = new LinkedList<List<String>>();
+            TweetParser.csvDataToTrainingData(
+                    new MappedLineIterator(file.toString()), 1, mapped::add
+            );
+            assertEquals(
+                    TweetParser.csvDataToTrainingData(
+                            new BufferedReader(new StringReader(csv)), 1
+                    ),
+                    mapped
+            );
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testNullFilePath() {
+        String filePath = null;
+        assertThrows(IllegalArgumentException.class, () -> {
+            new MappedLineIterator(filePath);
+        });
+    }
+
+    @Test
+    public void testMissingFile() {
+        assertThrows(IllegalArgumentException.class, () -> {
+            new MappedLineIterator("no/such/file.txt");
+        });
+    }
+}
@@ -2,6 +2,8 @@ package org.cis120;
 
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 
 /**
  * A Markov Chain is a data structure that tracks the frequency with which one
@@ -66,14 +68,51 @@ import java.util.*;
  * sentences.
  * <p>
  * The random choices are determined by a NumberGenerator.
+ * <p>
+ * CONCURRENT UPDATES:
+ * <p>
+ * Picks are not made from the ProbabilityDistributions themselves but from
+ * Rows: immutable copies of a distribution's successors and running totals,
+ * built the first time a word is picked from and kept in a concurrent map.
+ * Picking from a Row is a lock-free map lookup and a binary search, and
+ * gives the same word as ProbabilityDistribution.pick for the same random
+ * number.
+ * <p>
+ * train() and merge() change the ProbabilityDistributions without locking
+ * (and drop the Rows they make stale), so they must not run while anything
+ * else uses the chain. update() can run while Walkers returned by walker()
+ * generate on other threads: it counts the whole batch privately, then
+ * publishes complete distributions and Rows for the words that are new to
+ * the chain, and only then records into the existing distributions (each
+ * under its own lock, which is only ever taken by writers and by the first
+ * pick from a word) and replaces their Rows. A Walker therefore never
+ * reaches a word whose Row is missing, and never waits for an update. An
+ * update costs time proportional to the number of words added plus the
+ * number of successors of the words it changes, however often those words
+ * were seen before.
+ * <p>
+ * update() itself holds the chain's lock, and every change to the chain
+ * increases version(); to copy the chain consistently (as
+ * CompactMarkovChain does), hold the chain's lock while reading it.
  */
-public class MarkovChain implements Iterator<String> {
+public class MarkovChain implements ChainWalker {
     private NumberGenerator ng;
     final Map<String, ProbabilityDistribution<String>> chain;
     final ProbabilityDistribution<String> startWords;
+    // immutable copies of the distributions that picks are made from, built
+    // on first use; a Row is only created or replaced while holding the lock
+    // of its distribution
+    private final Map<String, Row> rows;
+    private volatile Row startRow;
     private String now;
+    // increased by every change to the frequencies
+    private volatile long version;
 
-    // add field(s) used in implementing the Iterator functionality
+    // compiled AliasTables, built lazily and rebuilt whenever the
+    // distribution they were built from has recorded more words
+    private boolean aliasSampling;
+    private final Map<String, AliasTable<String>> aliases;
+    private AliasTable<String> startAlias;
 
     /**
      * No need to write any constructors. They are provided for you.
@@ -95,9 +134,11 @@ public class MarkovChain implements Iterator<String> {
                             "be null"
             );
         }
-        this.chain = new TreeMap<String, ProbabilityDistribution<String>>();
+        this.chain = new ConcurrentSkipListMap<String, ProbabilityDistribution<String>>();
         this.ng = ng;
         this.startWords = new ProbabilityDistribution<String>();
+        this.rows = new ConcurrentHashMap<String, Row>();
+        this.aliases = new HashMap<String, AliasTable<String>>();
         reset();
     }
 
@@ -121,6 +162,8 @@ public class MarkovChain implements Iterator<String> {
             } else {
                 chain.get(first).record(second);
             }
+            rows.remove(first);
+            aliases.remove(first);
 
         }
 
@@ -143,35 +186,266 @@ public class MarkovChain implements Iterator<String> {
      * null. This will teach the Markov Chain that that word can be used to end
      * a sentence.
      * <p>
-     * Do nothing if the sentence is empty.
+     * Do nothing if the sentence is empty. Empty Strings are skipped.
+     * <p>
+     * The sentence is consumed as a stream: each bigram is recorded as soon
+     * as its second word is read, keeping only the previous word, so training
+     * takes time linear in the length of the sentence.
      *
      * @param sentence - an iterator representing one sentence of training data
      * @throws IllegalArgumentException if the sentence Iterator is null
      */
     public void train(Iterator<String> sentence) {
-        List<String> words = new LinkedList<String>();
         if (sentence == null) {
             throw new IllegalArgumentException();
         }
+        Metrics metrics = Instrumentation.metrics();
+        long startTime = metrics.enabled() ? System.nanoTime() : 0;
+        boolean started = false;
+        String prev = null;
         while (sentence.hasNext()) {
-            String sentencenext = sentence.next();
-            if (sentencenext != "") {
-                words.add(sentencenext);
+            String word = sentence.next();
+            if (word != null && word.isEmpty()) {
+                continue;
+            }
+            if (!started) {
+                startWords.record(word);
+                startRow = null;
+                startAlias = null;
+                started = true;
+            } else {
+                addBigram(prev, word);
+            }
+            prev = word;
+        }
+        if (started) {
+            addBigram(prev, null);
+            version++;
+        }
+        if (metrics.enabled()) {
+            metrics.increment(Instrumentation.SENTENCES_TRAINED, 1);
+            metrics.recordNanos(Instrumentation.TRAIN_TIME, System.nanoTime() - startTime);
+        }
+    }
+
+    /**
+     * Adds all of the frequency information from other to this MarkovChain,
+     * as if every sentence other was trained on had also been passed to
+     * train() here. Since training only counts bigrams and start words,
+     * training two chains on two halves of the data and merging them gives
+     * the same chain as training one chain on all of it.
+     *
+     * @param other - a (non-null) MarkovChain to merge into this one
+     * @throws IllegalArgumentException if other is null
+     */
+    public void merge(MarkovChain other) {
+        if (other == null) {
+            throw new IllegalArgumentException("cannot merge a null MarkovChain");
+        }
+        for (Map.Entry<String, ProbabilityDistribution<String>> e : other.chain.entrySet()) {
+            ProbabilityDistribution<String> pd = chain.get(e.getKey());
+            if (pd == null) {
+                pd = new ProbabilityDistribution<String>();
+                chain.put(e.getKey(), pd);
+            }
+            recordAll(pd, e.getValue());
+            rows.remove(e.getKey());
+            aliases.remove(e.getKey());
+        }
+        recordAll(startWords, other.startWords);
+        startRow = null;
+        startAlias = null;
+        version++;
+    }
+
+    /**
+     * Returns a number that increases whenever train(), merge() or update()
+     * changes the frequencies of this chain, so that copies of the chain can
+     * tell whether they are out of date.
+     *
+     * @return the current version of the chain
+     */
+    long version() {
+        return version;
+    }
+
+    /**
+     * Records every occurrence in from into into. (ProbabilityDistribution
+     * can only record one occurrence at a time.)
+     */
+    private static void recordAll(
+            ProbabilityDistribution<String> into,
+            ProbabilityDistribution<String> from
+    ) {
+        for (Map.Entry<String, Integer> r : from.getRecords().entrySet()) {
+            for (int i = 0; i < r.getValue(); i++) {
+                into.record(r.getKey());
             }
         }
+    }
 
-        for (int i = 0; i < words.size(); i++) {
-            if (i == 0) {
-                startWords.record(words.get(0));
+    /**
+     * Adds sentences to the MarkovChain as train() does, but safely while
+     * Walkers are generating on other threads (see CONCURRENT UPDATES
+     * above). The new Rows of all of the words the sentences mention are
+     * published before any Row that leads to them, so a Walker either picks
+     * as if the update had not happened yet or sees its new words complete.
+     * Concurrent calls to update() are applied one after the other.
+     * <p>
+     * Empty Strings are skipped, and empty sentences do nothing.
+     *
+     * @param sentences - the (non-null) sentences to add, each a list of
+     *                  (non-null) words
+     * @throws IllegalArgumentException if sentences or any of its words is
+     *                                  null
+     */
+    public synchronized void update(Iterable<? extends List<String>> sentences) {
+        if (sentences == null) {
+            throw new IllegalArgumentException("sentences cannot be null");
+        }
+        // count the whole batch first, so that nothing is published while
+        // it still refers to a word whose Row is not complete
+        Map<String, ProbabilityDistribution<String>> batch =
+                new HashMap<String, ProbabilityDistribution<String>>();
+        ProbabilityDistribution<String> starts = new ProbabilityDistribution<String>();
+        long count = 0;
+        for (List<String> sentence : sentences) {
+            count++;
+            String prev = null;
+            for (String word : sentence) {
+                if (word == null) {
+                    throw new IllegalArgumentException("words cannot be null");
+                }
+                if (word.isEmpty()) {
+                    continue;
+                }
+                if (prev == null) {
+                    starts.record(word);
+                } else {
+                    batch.computeIfAbsent(prev, k -> new ProbabilityDistribution<String>())
+                            .record(word);
+                }
+                prev = word;
+            }
+            if (prev != null) {
+                batch.computeIfAbsent(prev, k -> new ProbabilityDistribution<String>())
+                        .record(null);
             }
-            if (i != words.size() - 1) {
-                addBigram(words.get(i), words.get(i + 1));
+        }
+
+        // words new to the chain: nothing published leads to them yet, so
+        // their complete distributions and Rows can go in as they are
+        List<String> known = new ArrayList<String>();
+        for (Map.Entry<String, ProbabilityDistribution<String>> e : batch.entrySet()) {
+            if (chain.containsKey(e.getKey())) {
+                known.add(e.getKey());
             } else {
-                addBigram(words.get(i), null);
+                rows.put(e.getKey(), new Row(e.getValue()));
+                chain.put(e.getKey(), e.getValue());
             }
         }
+        // then the words that may lead to them
+        for (String word : known) {
+            ProbabilityDistribution<String> pd = chain.get(word);
+            synchronized (pd) {
+                recordAll(pd, batch.get(word));
+                rows.put(word, new Row(pd));
+            }
+        }
+        if (starts.getTotal() > 0) {
+            synchronized (startWords) {
+                recordAll(startWords, starts);
+                startRow = new Row(startWords);
+            }
+        }
+        version++;
+        Metrics metrics = Instrumentation.metrics();
+        metrics.increment(Instrumentation.SENTENCES_TRAINED, count);
+        if (metrics.enabled()) {
+            recordVocabulary(metrics);
+        }
+    }
+
+    /**
+     * Records the number of words in this chain in the VOCABULARY_SIZE
+     * histogram of metrics.
+     *
+     * @param metrics - the (non-null) Metrics to record to
+     */
+    void recordVocabulary(Metrics metrics) {
+        metrics.record(Instrumentation.VOCABULARY_SIZE, chain.size());
+    }
 
+    /**
+     * Records the number of distinct successors of every word in the
+     * CHAIN_FANOUT histogram of metrics.
+     *
+     * @param metrics - the (non-null) Metrics to record to
+     */
+    void recordFanout(Metrics metrics) {
+        for (ProbabilityDistribution<String> pd : chain.values()) {
+            metrics.record(Instrumentation.CHAIN_FANOUT, pd.getRecords().size());
+        }
+    }
 
+    /**
+     * Returns the Row that successors of word are picked from, building it
+     * on the first pick after word's distribution last changed.
+     *
+     * @param word - a word
+     * @return the Row of word, or null if word is not in the chain
+     */
+    Row row(String word) {
+        Row row = rows.get(word);
+        if (row != null) {
+            return row;
+        }
+        ProbabilityDistribution<String> pd = chain.get(word);
+        if (pd == null) {
+            return null;
+        }
+        synchronized (pd) {
+            // update() may have published a newer Row in the meantime
+            row = rows.get(word);
+            if (row == null) {
+                row = new Row(pd);
+                rows.put(word, row);
+            }
+            return row;
+        }
+    }
+
+    /**
+     * @return the Row that start words are picked from
+     */
+    Row startRow() {
+        Row row = startRow;
+        if (row != null) {
+            return row;
+        }
+        synchronized (startWords) {
+            if (startRow == null) {
+                startRow = new Row(startWords);
+            }
+            return startRow;
+        }
+    }
+
+    /**
+     * Creates a new Walker over this chain. The walker starts out finished;
+     * call reset() to begin a sentence.
+     *
+     * @param ng - the (non-null) NumberGenerator the walker uses
+     * @return a new Walker
+     * @throws IllegalArgumentException if ng is null
+     */
+    public ChainWalker walker(NumberGenerator ng) {
+        if (ng == null) {
+            throw new IllegalArgumentException(
+                    "NumberGenerator input cannot be null"
+            );
+        }
+        return new Walker(ng);
     }
 
     /**
@@ -222,7 +496,7 @@ public class MarkovChain implements Iterator<String> {
         if (startWords.getTotal() == 0) {
             reset(null);
         } else {
-            reset(startWords.pick(ng));
+            reset(pickStart());
         }
     }
 
@@ -254,19 +528,13 @@ public class MarkovChain implements Iterator<String> {
     @Override
     public String next() {
         if (hasNext()) {
-            String nextString;
-            String curNext;
-            if (chain.get(now) == (null)) {
-                curNext = now;
+            String curNext = now;
+            Row successors = row(now);
+            if (successors == null) {
                 now = null;
-                return curNext;
-            }
-            if (chain.get(now).equals(null)) {
-                throw new NoSuchElementException();
+            } else {
+                now = pick(now, successors);
             }
-            nextString = chain.get(now).pick(ng);
-            curNext = now;
-            now = nextString;
             return curNext;
         } else {
             throw new NoSuchElementException();
@@ -290,7 +558,7 @@ public class MarkovChain implements Iterator<String> {
      * specified.
      *
      * @param words     - an ordered list of words that the distribution should
-     *                  generate
+     *                  generate (not modified)
      * @param pickFirst - whether or not to pick the first word in {@code words}
      *                  from {@code startWords}
      * @throws IllegalArgumentException if there are less than 1 words fed in
@@ -303,7 +571,8 @@ public class MarkovChain implements Iterator<String> {
             );
         }
 
-        String curWord = words.remove(0);
+        Iterator<String> remaining = words.iterator();
+        String curWord = remaining.next();
         if (startWords.count(curWord) < 1) {
             throw new IllegalArgumentException(
                     "first word " + curWord + " " +
@@ -311,12 +580,12 @@ public class MarkovChain implements Iterator<String> {
             );
         }
 
-        List<Integer> probabilityNumbers = new LinkedList<>();
+        List<Integer> probabilityNumbers = new ArrayList<>(words.size());
         if (pickFirst) {
             probabilityNumbers.add(startWords.index(curWord));
         }
 
-        while (words.size() > 0) {
+        while (remaining.hasNext()) {
             ProbabilityDistribution<String> curDistribution;
             // if we were just at null, reset. otherwise, continue on the chain
             if (curWord == null) {
@@ -325,7 +594,7 @@ public class MarkovChain implements Iterator<String> {
                 curDistribution = chain.get(curWord);
             }
 
-            String nextWord = words.remove(0);
+            String nextWord = remaining.next();
             if (nextWord != null) {
                 if (curDistribution.count(nextWord) < 1) {
                     throw new IllegalArgumentException(
@@ -341,6 +610,142 @@ public class MarkovChain implements Iterator<String> {
         }
 
         ng = new ListNumberGenerator(probabilityNumbers);
+        aliasSampling = false;
+    }
+
+    /**
+     * Turns sampling through compiled AliasTables on or off. With alias
+     * sampling on, each pick takes constant time instead of time linear in
+     * the number of successors, but the random numbers are used differently
+     * than by ProbabilityDistribution.pick, so a fixed NumberGenerator no
+     * longer selects the words given by ProbabilityDistribution.index().
+     * Alias sampling is off by default, and fixDistribution() turns it off.
+     *
+     * @param on - whether to sample through AliasTables
+     */
+    public void setAliasSampling(boolean on) {
+        aliasSampling = on;
+    }
+
+    /**
+     * Picks a start word from startWords, through its AliasTable if alias
+     * sampling is on.
+     */
+    private String pickStart() {
+        Row starts = startRow();
+        if (starts.total == 0) {
+            return null;
+        }
+        if (!aliasSampling) {
+            return starts.pick(ng);
+        }
+        if (startAlias == null || startAlias.getTotal() != starts.total) {
+            synchronized (startWords) {
+                startAlias = new AliasTable<String>(startWords);
+            }
+        }
+        return startAlias.pick(ng);
+    }
+
+    /**
+     * Picks a successor of word from its Row, through its AliasTable if
+     * alias sampling is on.
+     */
+    private String pick(String word, Row successors) {
+        if (!aliasSampling) {
+            return successors.pick(ng);
+        }
+        AliasTable<String> table = aliases.get(word);
+        // update() only ever adds to a distribution, so a table with a
+        // different total was built before the latest update
+        if (table == null || table.getTotal() != successors.total) {
+            ProbabilityDistribution<String> pd = chain.get(word);
+            synchronized (pd) {
+                table = new AliasTable<String>(pd);
+            }
+            aliases.put(word, table);
+        }
+        return table.pick(ng);
+    }
+
+    /**
+     * A Row is an immutable copy of a ProbabilityDistribution: its records in
+     * the order the distribution iterates them, and their running totals.
+     */
+    static final class Row {
+        final String[] words;
+        final int[] cumulative;
+        final int total;
+
+        /**
+         * Copies pd, which must not change while it is being copied.
+         */
+        Row(ProbabilityDistribution<String> pd) {
+            Map<String, Integer> records = pd.getRecords();
+            this.words = new String[records.size()];
+            this.cumulative = new int[records.size()];
+            int i = 0;
+            int running = 0;
+            for (Map.Entry<String, Integer> r : records.entrySet()) {
+                running += r.getValue();
+                words[i] = r.getKey();
+                cumulative[i] = running;
+                i++;
+            }
+            this.total = running;
+        }
+
+        /**
+         * Picks a word as ProbabilityDistribution.pick(ng) does. The Row
+         * must not be empty.
+         */
+        String pick(NumberGenerator ng) {
+            int index = ng.next(total);
+            return words[CompactMarkovChain.search(cumulative, 0, words.length, index)];
+        }
+    }
+
+    /**
+     * A Walker walks through a MarkovChain with the same Iterator behavior as
+     * the MarkovChain itself, but keeps its own position and NumberGenerator,
+     * so several Walkers (on any threads) can walk one chain at once, even
+     * while update() adds to it. Walkers always pick from the Rows, without
+     * alias sampling, and never wait for each other or for update().
+     */
+    private class Walker implements ChainWalker {
+        private final NumberGenerator ng;
+        private String now;
+
+        Walker(NumberGenerator ng) {
+            this.ng = ng;
+        }
+
+        @Override
+        public void reset() {
+            Row starts = startRow();
+            now = (starts.total == 0) ? null : starts.pick(ng);
+        }
+
+        @Override
+        public void reset(String start) {
+            now = start;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return now != null;
+        }
+
+        @Override
+        public String next() {
+            if (now == null) {
+                throw new NoSuchElementException();
+            }
+            String current = now;
+            Row successors = row(current);
+            now = (successors == null) ? null : successors.pick(ng);
+            return current;
+        }
     }
 
     /**
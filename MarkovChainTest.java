@@ -5,6 +5,9 @@ import org.junit.jupiter.api.Test;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.NoSuchElementException;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -173,8 +176,207 @@ public class MarkovChainTest {
 
     }
 
+    @Test
+    public void testAliasSamplingWalk() {
+        MarkovChain mc = new MarkovChain();
+        mc.setAliasSampling(true);
+        mc.train(Arrays.stream("CIS 120 rocks".split(" ")).iterator());
+        mc.reset();
+        assertEquals("CIS", mc.next());
+        assertEquals("120", mc.next());
+        assertEquals("rocks", mc.next());
+        assertFalse(mc.hasNext());
+    }
+
+    @Test
+    public void testAliasSamplingRebuiltAfterTraining() {
+        // always picks the last column and the highest number in it
+        MarkovChain mc = new MarkovChain(bound -> bound - 1);
+        mc.setAliasSampling(true);
+        mc.train(Arrays.stream("a b".split(" ")).iterator());
+        mc.reset("a");
+        mc.next();
+        assertEquals("b", mc.next());
+
+        mc.train(Arrays.stream("a c".split(" ")).iterator());
+        mc.reset("a");
+        mc.next();
+        assertEquals("c", mc.next());
+    }
+
+    @Test
+    public void testFixDistributionTurnsOffAliasSampling() {
+        String[] expectedWords = { "CIS", "120", "beats", "CIS", "120", "rocks" };
+        MarkovChain mc = new MarkovChain();
+        mc.setAliasSampling(true);
+        mc.train(Arrays.stream("CIS 120 rocks".split(" ")).iterator());
+        mc.train(Arrays.stream("CIS 120 beats CIS 160".split(" ")).iterator());
+        mc.reset("CIS");
+        mc.fixDistribution(new ArrayList<>(Arrays.asList(expectedWords)));
+
+        for (int i = 0; i < expectedWords.length; i++) {
+            assertEquals(expectedWords[i], mc.next());
+        }
+    }
+
+    private static List<String> words(String sentence) {
+        return Arrays.asList(sentence.split(" "));
+    }
+
+    @Test
+    public void testUpdateMatchesTrain() {
+        List<List<String>> sentences = Arrays.asList(
+                words("CIS 120 rocks"), words("CIS 120 beats CIS 160"), words("")
+        );
+        MarkovChain trained = new MarkovChain();
+        for (List<String> sentence : sentences) {
+            trained.train(sentence.iterator());
+        }
+        MarkovChain updated = new MarkovChain();
+        updated.update(sentences.subList(0, 1));
+        updated.update(sentences.subList(1, 3));
+        assertEquals(trained.toString(), updated.toString());
+        assertEquals(trained.startWords.getRecords(), updated.startWords.getRecords());
+    }
+
+    @Test
+    public void testUpdateRecordsInPlace() {
+        MarkovChain mc = new MarkovChain();
+        mc.train(Arrays.stream("CIS 120 rocks".split(" ")).iterator());
+        ProbabilityDistribution<String> before = mc.get("120");
+        long version = mc.version();
+        mc.update(Arrays.asList(words("CIS 120 beats")));
+        // existing rows are recorded into, not copied
+        assertSame(before, mc.get("120"));
+        assertEquals(2, mc.get("120").getTotal());
+        assertEquals(1, mc.get("120").count("beats"));
+        assertEquals(2, mc.startWords.count("CIS"));
+        assertEquals(1, mc.get("beats").count(null));
+        assertTrue(mc.version() > version);
+    }
+
+    @Test
+    public void testUpdateNull() {
+        MarkovChain mc = new MarkovChain();
+        assertThrows(IllegalArgumentException.class, () -> {
+            mc.update(null);
+        });
+        assertThrows(IllegalArgumentException.class, () -> {
+            mc.update(Arrays.asList(Arrays.asList("a", null)));
+        });
+    }
 
+    @Test
+    public void testWalkerMatchesChain() {
+        MarkovChain mc = new MarkovChain(new Random(5)::nextInt);
+        mc.train(Arrays.stream("CIS 120 rocks".split(" ")).iterator());
+        mc.train(Arrays.stream("CIS 120 beats CIS 160".split(" ")).iterator());
+        ChainWalker walker = mc.walker(new Random(5)::nextInt);
+        for (int i = 0; i < 20; i++) {
+            mc.reset();
+            walker.reset();
+            while (mc.hasNext()) {
+                assertTrue(walker.hasNext());
+                assertEquals(mc.next(), walker.next());
+            }
+            assertFalse(walker.hasNext());
+        }
+        assertThrows(NoSuchElementException.class, walker::next);
+        assertThrows(IllegalArgumentException.class, () -> {
+            mc.walker(null);
+        });
+    }
+
+    @Test
+    public void testWalkWhileUpdating() throws InterruptedException {
+        MarkovChain mc = new MarkovChain();
+        mc.train(Arrays.stream("a b c".split(" ")).iterator());
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread writer = new Thread(() -> {
+            try {
+                for (int i = 0; i < 500; i++) {
+                    mc.update(Arrays.asList(words("a b w" + i), words("w" + i + " c")));
+                }
+            } catch (Throwable t) {
+                failure.set(t);
+            }
+        });
+        writer.start();
+        ChainWalker walker = mc.walker(new Random(1)::nextInt);
+        while (writer.isAlive()) {
+            walker.reset();
+            int n = 0;
+            while (walker.hasNext()) {
+                assertNotNull(walker.next());
+                n++;
+            }
+            assertTrue(n >= 1 && n <= 4);
+        }
+        writer.join();
+        assertNull(failure.get());
+        assertEquals(501, mc.get("b").getTotal());
+    }
 
+    @Test
+    public void testNewWordsAreCompleteWhenReached() throws InterruptedException {
+        MarkovChain mc = new MarkovChain();
+        mc.train(Arrays.stream("a b".split(" ")).iterator());
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread writer = new Thread(() -> {
+            try {
+                for (int i = 0; i < 2000; i++) {
+                    mc.update(Arrays.asList(words("a w" + i + " z")));
+                }
+            } catch (Throwable t) {
+                failure.set(t);
+            }
+        });
+        writer.start();
+        ChainWalker walker = mc.walker(new Random(2)::nextInt);
+        while (writer.isAlive()) {
+            walker.reset("a");
+            walker.next();
+            String second = walker.next();
+            if (!second.equals("b")) {
+                // a new word is only reachable once its own Row is there
+                assertTrue(walker.hasNext());
+                assertEquals("z", walker.next());
+            }
+            assertFalse(walker.hasNext());
+        }
+        writer.join();
+        assertNull(failure.get());
+    }
 
+    @Test
+    public void testTrainVeryLongSentence() {
+        // a pasted article: long enough that indexing a linked list for every
+        // bigram would take minutes
+        int n = 200000;
+        List<String> words = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            words.add("w" + (i % 1000));
+        }
+        MarkovChain mc = new MarkovChain();
+        mc.train(words.iterator());
+        assertEquals(1, mc.startWords.count("w0"));
+        assertEquals(200, mc.get("w0").count("w1"));
+        assertEquals(1, mc.get("w999").count(null));
+        assertEquals(199, mc.get("w999").count("w0"));
+    }
 
+    @Test
+    public void testFixDistributionLeavesListAlone() {
+        String[] expectedWords = { "CIS", "120", "beats", "CIS", "120", "rocks" };
+        MarkovChain mc = new MarkovChain();
+        mc.train(Arrays.stream("CIS 120 rocks".split(" ")).iterator());
+        mc.train(Arrays.stream("CIS 120 beats CIS 160".split(" ")).iterator());
+        List<String> fixed = Arrays.asList(expectedWords);
+        mc.fixDistribution(fixed);
+        assertEquals(6, fixed.size());
+        mc.reset("CIS");
+        for (String word : expectedWords) {
+            assertEquals(word, mc.next());
+        }
+    }
 }
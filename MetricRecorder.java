@@ -0,0 +1,278 @@
+package org.cis120;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A MetricRecorder keeps measurements in memory, safely for any number of
+ * threads, and exports them to a file as JSON or in the Prometheus text
+ * format.
+ * <p>
+ * Counters are LongAdders. Histograms and timers keep a fixed array of 488
+ * buckets: values below 16 get a bucket each, and every larger power of two
+ * is split into 8 buckets, so percentiles are accurate to within 12.5% and
+ * recording a value never allocates.
+ */
+public class MetricRecorder implements Metrics {
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final Map<String, Histogram> histograms = new ConcurrentHashMap<>();
+    private final Map<String, Histogram> timers = new ConcurrentHashMap<>();
+
+    @Override
+    public boolean enabled() {
+        return true;
+    }
+
+    @Override
+    public void increment(String name, long delta) {
+        counters.computeIfAbsent(name, k -> new LongAdder()).add(delta);
+    }
+
+    @Override
+    public void record(String name, long value) {
+        histograms.computeIfAbsent(name, k -> new Histogram()).record(value);
+    }
+
+    @Override
+    public void recordNanos(String name, long nanos) {
+        timers.computeIfAbsent(name, k -> new Histogram()).record(nanos);
+    }
+
+    /**
+     * @return the value of a counter (0 if nothing was counted)
+     */
+    public long counter(String name) {
+        LongAdder c = counters.get(name);
+        return (c == null) ? 0 : c.sum();
+    }
+
+    /**
+     * @return a histogram, or null if nothing was recorded in it
+     */
+    public Histogram histogram(String name) {
+        return histograms.get(name);
+    }
+
+    /**
+     * @return a timer (in nanoseconds), or null if nothing was recorded in it
+     */
+    public Histogram timer(String name) {
+        return timers.get(name);
+    }
+
+    /**
+     * A histogram of non-negative long values (negative values are recorded
+     * as 0).
+     */
+    public static class Histogram {
+        private static final int BUCKETS = 488;
+
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+        static int bucket(long value) {
+            if (value < 16) {
+                return (int) Math.max(0, value);
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(value);
+            int mantissa = (int) (value >>> (exponent - 3)) & 7;
+            return (exponent - 2) * 8 + mantissa;
+        }
+
+        /**
+         * @return the largest value that falls into bucket b
+         */
+        static long upperBound(int b) {
+            if (b < 16) {
+                return b;
+            }
+            int exponent = b / 8 + 2;
+            long lower = (long) (8 + b % 8) << (exponent - 3);
+            return lower + (1L << (exponent - 3)) - 1;
+        }
+
+        /**
+         * Records one value.
+         */
+        public void record(long value) {
+            long v = Math.max(0, value);
+            buckets.incrementAndGet(bucket(v));
+            count.increment();
+            sum.add(v);
+            max.accumulate(v);
+        }
+
+        /**
+         * @return the number of values recorded
+         */
+        public long count() {
+            return count.sum();
+        }
+
+        /**
+         * @return the sum of the values recorded
+         */
+        public long sum() {
+            return sum.sum();
+        }
+
+        /**
+         * @return the largest value recorded
+         */
+        public long max() {
+            return max.get();
+        }
+
+        /**
+         * Returns an upper bound for the q-th quantile, within 12.5% of it (or
+         * exact for values below 16), and never more than max().
+         *
+         * @param q - the quantile, between 0 and 1
+         * @return the estimate, or 0 if nothing was recorded
+         */
+        public long percentile(double q) {
+            long n = count();
+            if (n == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(q * n));
+            long seen = 0;
+            for (int b = 0; b < BUCKETS; b++) {
+                seen += buckets.get(b);
+                if (seen >= rank) {
+                    return Math.min(upperBound(b), max());
+                }
+            }
+            return max();
+        }
+    }
+
+    /**
+     * @return all of the metrics as a JSON object with "counters",
+     *         "histograms" and "timers" members, with names in sorted order
+     */
+    public String toJson() {
+        StringBuilder sb = new StringBuilder("{\n  \"counters\": {");
+        String sep = "\n";
+        for (Map.Entry<String, LongAdder> c : new TreeMap<>(counters).entrySet()) {
+            sb.append(sep).append("    ").append(quote(c.getKey())).append(": ")
+                    .append(c.getValue().sum());
+            sep = ",\n";
+        }
+        sb.append("\n  },\n  \"histograms\": ");
+        appendJson(sb, histograms);
+        sb.append(",\n  \"timers\": ");
+        appendJson(sb, timers);
+        return sb.append("\n}\n").toString();
+    }
+
+    private static void appendJson(StringBuilder sb, Map<String, Histogram> map) {
+        sb.append('{');
+        String sep = "\n";
+        for (Map.Entry<String, Histogram> e : new TreeMap<>(map).entrySet()) {
+            Histogram h = e.getValue();
+            sb.append(sep).append("    ").append(quote(e.getKey()))
+                    .append(": {\"count\": ").append(h.count())
+                    .append(", \"sum\": ").append(h.sum())
+                    .append(", \"max\": ").append(h.max())
+                    .append(", \"p50\": ").append(h.percentile(0.5))
+                    .append(", \"p90\": ").append(h.percentile(0.9))
+                    .append(", \"p99\": ").append(h.percentile(0.99))
+                    .append('}');
+            sep = ",\n";
+        }
+        sb.append("\n  }");
+    }
+
+    private static String quote(String s) {
+        return '"' + s.replace("\\", "\\\\").replace("\"", "\\\"") + '"';
+    }
+
+    /**
+     * @return all of the metrics in the Prometheus text format, with names
+     *         prefixed by "twitterbot_". Counters are counters, histograms
+     *         and timers are summaries, and timers are in seconds.
+     */
+    public String toPrometheus() {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, LongAdder> c : new TreeMap<>(counters).entrySet()) {
+            String name = promName(c.getKey()) + "_total";
+            sb.append("# TYPE ").append(name).append(" counter\n")
+                    .append(name).append(' ').append(c.getValue().sum()).append('\n');
+        }
+        for (Map.Entry<String, Histogram> e : new TreeMap<>(histograms).entrySet()) {
+            appendSummary(sb, promName(e.getKey()), e.getValue(), 1);
+        }
+        for (Map.Entry<String, Histogram> e : new TreeMap<>(timers).entrySet()) {
+            appendSummary(sb, promName(e.getKey()) + "_seconds", e.getValue(), 1e-9);
+        }
+        return sb.toString();
+    }
+
+    private static void appendSummary(
+            StringBuilder sb, String name, Histogram h, double scale
+    ) {
+        sb.append("# TYPE ").append(name).append(" summary\n");
+        for (double q : new double[] { 0.5, 0.9, 0.99 }) {
+            sb.append(name).append("{quantile=\"").append(q).append("\"} ")
+                    .append(h.percentile(q) * scale).append('\n');
+        }
+        sb.append(name).append("_sum ").append(h.sum() * scale).append('\n');
+        sb.append(name).append("_count ").append(h.count()).append('\n');
+    }
+
+    private static String promName(String name) {
+        StringBuilder sb = new StringBuilder("twitterbot_");
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            boolean ok = c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z'
+                    || c >= '0' && c <= '9' || c == '_';
+            sb.append(ok ? c : '_');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Writes toJson() to a file, replacing its contents.
+     *
+     * @param filePath - the path of the file to write
+     * @throws IllegalArgumentException if filePath is null or the file
+     *                                  cannot be written
+     */
+    public void exportJson(String filePath) {
+        export(filePath, toJson());
+    }
+
+    /**
+     * Writes toPrometheus() to a file, replacing its contents, for example
+     * for the textfile collector of the Prometheus node exporter.
+     *
+     * @param filePath - the path of the file to write
+     * @throws IllegalArgumentException if filePath is null or the file
+     *                                  cannot be written
+     */
+    public void exportPrometheus(String filePath) {
+        export(filePath, toPrometheus());
+    }
+
+    private static void export(String filePath, String text) {
+        if (filePath == null) {
+            throw new IllegalArgumentException("filePath cannot be null");
+        }
+        try {
+            Files.write(Paths.get(filePath), text.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new IllegalArgumentException("cannot write " + filePath, e);
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package org.cis120;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Tests for MetricRecorder and Instrumentation */
+public class MetricRecorderTest {
+
+    @Test
+    public void testCounters() {
+        MetricRecorder m = new MetricRecorder();
+        assertTrue(m.enabled());
+        assertEquals(0, m.counter("x"));
+        m.increment("x", 2);
+        m.increment("x", 3);
+        assertEquals(5, m.counter("x"));
+    }
+
+    @Test
+    public void testHistogramBuckets() {
+        for (long v = 0; v < 100000; v += 7) {
+            int b = MetricRecorder.Histogram.bucket(v);
+            long upper = MetricRecorder.Histogram.upperBound(b);
+            assertTrue(upper >= v);
+            assertTrue(upper <= Math.max(v, 15) * 1.125 + 1);
+            if (b > 0) {
+                assertTrue(MetricRecorder.Histogram.upperBound(b - 1) < v);
+            }
+        }
+        int last = MetricRecorder.Histogram.bucket(Long.MAX_VALUE);
+        assertEquals(487, last);
+        assertEquals(Long.MAX_VALUE, MetricRecorder.Histogram.upperBound(last));
+    }
+
+    @Test
+    public void testPercentiles() {
+        MetricRecorder m = new MetricRecorder();
+        for (int i = 1; i <= 1000; i++) {
+            m.record("h", i);
+        }
+        MetricRecorder.Histogram h = m.histogram("h");
+        assertEquals(1000, h.count());
+        assertEquals(500500, h.sum());
+        assertEquals(1000, h.max());
+        assertTrue(h.percentile(0.5) >= 500 && h.percentile(0.5) <= 563);
+        assertTrue(h.percentile(0.99) >= 990 && h.percentile(0.99) <= 1000);
+        assertEquals(1, h.percentile(0));
+        assertNull(m.histogram("missing"));
+    }
+
+    @Test
+    public void testExports() throws IOException {
+        MetricRecorder m = new MetricRecorder();
+        m.increment("lines_read", 3);
+        m.record("chain_fanout", 2);
+        m.recordNanos("parse_time", 1500);
+        String json = m.toJson();
+        assertTrue(json.contains("\"lines_read\": 3"));
+        assertTrue(json.contains("\"chain_fanout\": {\"count\": 1, \"sum\": 2"));
+        assertTrue(json.contains("\"parse_time\": {\"count\": 1, \"sum\": 1500"));
+
+        String prom = m.toPrometheus();
+        assertTrue(prom.contains("# TYPE twitterbot_lines_read_total counter\n"
+                + "twitterbot_lines_read_total 3\n"));
+        assertTrue(prom.contains("twitterbot_chain_fanout_count 1\n"));
+        assertTrue(prom.contains("twitterbot_parse_time_seconds_sum 1.5E-6\n"));
+
+        Path file = Files.createTempFile("metrics", ".json");
+        try {
+            m.exportJson(file.toString());
+            assertEquals(json, new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+            m.exportPrometheus(file.toString());
+            assertEquals(prom, new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+        } finally {
+            Files.delete(file);
+        }
+        assertThrows(IllegalArgumentException.class, () -> {
+            m.exportJson(null);
+        });
+    }
+
+    @Test
+    public void testLoad() {
+        assertSame(Metrics.NOOP, Instrumentation.metrics());
+        assertSame(Metrics.NOOP, Instrumentation.load(null));
+        assertTrue(Instrumentation.load(MetricRecorder.class.getName()) instanceof MetricRecorder);
+        assertThrows(IllegalArgumentException.class, () -> {
+            Instrumentation.load("java.lang.String");
+        });
+        assertThrows(IllegalArgumentException.class, () -> {
+            Instrumentation.load("org.cis120.NoSuchMetrics");
+        });
+    }
+
+    /**
+     * Runs a new task in a fresh copy of the classes, whose Instrumentation
+     * is loaded with a MetricRecorder as its Metrics. The metrics are chosen
+     * once for each class loader, so this is how a test gets to measure them.
+     *
+     * @param task - the class of the task, which must have a public
+     *             no-argument constructor
+     * @return what the task returned
+     */
+    private static Map<String, Long> instrumented(Class<? extends Callable<Map<String, Long>>> task)
+            throws Exception {
+        String[] path = System.getProperty("java.class.path").split(File.pathSeparator);
+        URL[] urls = new URL[path.length];
+        for (int i = 0; i < path.length; i++) {
+            urls[i] = Paths.get(path[i]).toUri().toURL();
+        }
+        String old = System.setProperty(Instrumentation.METRICS_PROPERTY,
+                MetricRecorder.class.getName());
+        try (URLClassLoader loader = new URLClassLoader(urls, ClassLoader.getPlatformClassLoader())) {
+            @SuppressWarnings("unchecked")
+            Callable<Map<String, Long>> c = (Callable<Map<String, Long>>) loader
+                    .loadClass(task.getName()).getConstructor().newInstance();
+            return c.call();
+        } finally {
+            if (old == null) {
+                System.clearProperty(Instrumentation.METRICS_PROPERTY);
+            } else {
+                System.setProperty(Instrumentation.METRICS_PROPERTY, old);
+            }
+        }
+    }
+
+    /** Trains two bots and updates one, run by testVocabularySizeIsPerChain */
+    public static class TwoChains implements Callable<Map<String, Long>> {
+        @Override
+        public Map<String, Long> call() {
+            MetricRecorder m = (MetricRecorder) Instrumentation.metrics();
+            Map<String, Long> seen = new TreeMap<>();
+            TwitterBot a = new TwitterBot(new BufferedReader(new StringReader("0, a b c")), 1);
+            new TwitterBot(new BufferedReader(new StringReader("0, d e")), 1);
+            MetricRecorder.Histogram h = m.histogram(Instrumentation.VOCABULARY_SIZE);
+            seen.put("trained.count", h.count());
+            seen.put("trained.max", h.max());
+
+            a.addTweets(Arrays.asList("a b c f"));
+            seen.put("updated.count", h.count());
+            seen.put("updated.max", h.max());
+            return seen;
+        }
+    }
+
+    @Test
+    public void testVocabularySizeIsPerChain() throws Exception {
+        Map<String, Long> seen = instrumented(TwoChains.class);
+        assertEquals(2, seen.get("trained.count"));
+        assertEquals(3, seen.get("trained.max"));
+        assertEquals(3, seen.get("updated.count"));
+        assertEquals(4, seen.get("updated.max"));
+    }
+
+    /** Trains a bot and generates tweets, run by testPipelineIsInstrumented */
+    public static class Pipeline implements Callable<Map<String, Long>> {
+        @Override
+        public Map<String, Long> call() {
+            MetricRecorder m = (MetricRecorder) Instrumentation.metrics();
+            Map<String, Long> seen = new TreeMap<>();
+            String words = "0, The end should come here.\n"
+                    + "1, This comes from data with no d#plicate words!";
+            TwitterBot t = new TwitterBot(new BufferedReader(new StringReader(words)), 1);
+            for (String counter : Arrays.asList(Instrumentation.LINES_READ,
+                    Instrumentation.WORDS_REJECTED, Instrumentation.SENTENCES_TRAINED,
+                    Instrumentation.VOCABULARY_SIZE)) {
+                seen.put(counter, m.counter(counter));
+            }
+            seen.put("vocabulary.count", m.histogram(Instrumentation.VOCABULARY_SIZE).count());
+            seen.put("vocabulary.max", m.histogram(Instrumentation.VOCABULARY_SIZE).max());
+            seen.put("fanout.count", m.histogram(Instrumentation.CHAIN_FANOUT).count());
+            seen.put("parse.count", m.timer(Instrumentation.PARSE_TIME).count());
+
+            t.generateTweets(3, 280);
+            seen.put("latency.count", m.timer(Instrumentation.GENERATION_LATENCY).count());
+            seen.put("speed.count", m.histogram(Instrumentation.TOKENS_PER_SECOND).count());
+            seen.put(Instrumentation.TOKENS_GENERATED,
+                    m.counter(Instrumentation.TOKENS_GENERATED));
+            return seen;
+        }
+    }
+
+    @Test
+    public void testPipelineIsInstrumented() throws Exception {
+        Map<String, Long> seen = instrumented(Pipeline.class);
+        assertEquals(2, seen.get(Instrumentation.LINES_READ));
+        assertEquals(1, seen.get(Instrumentation.WORDS_REJECTED));
+        assertEquals(2, seen.get(Instrumentation.SENTENCES_TRAINED));
+        assertEquals(0, seen.get(Instrumentation.VOCABULARY_SIZE));
+        assertEquals(1, seen.get("vocabulary.count"));
+        assertEquals(12, seen.get("vocabulary.max"));
+        assertEquals(12, seen.get("fanout.count"));
+        assertEquals(2, seen.get("parse.count"));
+        assertEquals(3, seen.get("latency.count"));
+        assertEquals(3, seen.get("speed.count"));
+        assertTrue(seen.get(Instrumentation.TOKENS_GENERATED) >= 3);
+        // the metrics of this copy of the classes were never touched
+        assertSame(Metrics.NOOP, Instrumentation.metrics());
+    }
+}
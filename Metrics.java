@@ -0,0 +1,70 @@
+package org.cis120;
+
+/**
+ * Metrics is the interface through which the bot reports what it is doing:
+ * counters (how many lines were read, words rejected, ...), histograms of
+ * values (the fanout of the chain, tokens generated per second, ...) and
+ * timers (how long parsing, training and generating take). Implement it to
+ * send measurements anywhere; MetricRecorder keeps them in memory and can
+ * export them as JSON or in the Prometheus text format.
+ * <p>
+ * The metrics in use are chosen once, when Instrumentation is loaded; by
+ * default they are NOOP, whose methods do nothing and which the JIT compiler
+ * removes from the instrumented code. Code that has to do extra work to
+ * measure something (calling System.nanoTime(), for example) should still
+ * check enabled() first, so that the work is removed with the calls.
+ */
+public interface Metrics {
+
+    /**
+     * Metrics that ignore everything.
+     */
+    Metrics NOOP = new Metrics() {
+        @Override
+        public boolean enabled() {
+            return false;
+        }
+
+        @Override
+        public void increment(String name, long delta) {
+        }
+
+        @Override
+        public void record(String name, long value) {
+        }
+
+        @Override
+        public void recordNanos(String name, long nanos) {
+        }
+    };
+
+    /**
+     * @return false if measurements are thrown away, so that callers can skip
+     *         the work of taking them
+     */
+    boolean enabled();
+
+    /**
+     * Adds delta to a counter.
+     *
+     * @param name  - the name of the counter
+     * @param delta - the amount to add
+     */
+    void increment(String name, long delta);
+
+    /**
+     * Records a value in a histogram.
+     *
+     * @param name  - the name of the histogram
+     * @param value - the value to record
+     */
+    void record(String name, long value);
+
+    /**
+     * Records a duration in a timer.
+     *
+     * @param name  - the name of the timer
+     * @param nanos - the duration, in nanoseconds
+     */
+    void recordNanos(String name, long nanos);
+}
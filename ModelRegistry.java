@@ -0,0 +1,207 @@
+package org.cis120;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * A ModelRegistry hosts the chains of many bot personas in one JVM.
+ * <p>
+ * Each persona is registered with a source that can train (or load) its
+ * MarkovChain. The chain is only built when the persona is first used, and
+ * it is then kept as a CompactMarkovChain whose words are interned in one
+ * Vocabulary shared by every persona. A word that many personas use, such as
+ * "the", is therefore stored once, and each persona's tables hold only int
+ * ids. Those tables use the persona's own dense ids (see CompactMarkovChain),
+ * so they grow with the persona's vocabulary, not with the shared one.
+ * <p>
+ * The registry keeps the tables of its personas under a memory budget. When
+ * loading a persona takes it over the budget, the personas used least
+ * recently are unloaded until it fits again (the persona just loaded is
+ * always kept, even if it alone is over the budget). An unloaded persona is
+ * loaded again from its source the next time it is used. The shared
+ * Vocabulary is not counted against the budget and is never shrunk.
+ * <p>
+ * All methods may be called from any thread. Sources are run, and their
+ * chains compacted, without holding the registry's lock, so a slow load does
+ * not hold up personas that are already loaded; CompactMarkovChains are
+ * immutable, so a chain that is being walked stays usable after it is
+ * unloaded.
+ */
+public class ModelRegistry {
+    private final long budgetBytes;
+    private final Vocabulary vocab;
+    private final Map<String, Supplier<MarkovChain>> sources;
+    // loaded chains, least recently used first
+    private final LinkedHashMap<String, CompactMarkovChain> loaded;
+    private long usedBytes;
+    private long loads;
+
+    /**
+     * Creates an empty registry.
+     *
+     * @param budgetBytes - the most bytes that the loaded tables may use
+     * @throws IllegalArgumentException if budgetBytes is not positive
+     */
+    public ModelRegistry(long budgetBytes) {
+        if (budgetBytes < 1) {
+            throw new IllegalArgumentException("budget must be positive");
+        }
+        this.budgetBytes = budgetBytes;
+        this.vocab = new Vocabulary();
+        this.sources = new HashMap<String, Supplier<MarkovChain>>();
+        this.loaded = new LinkedHashMap<String, CompactMarkovChain>(16, 0.75f, true);
+    }
+
+    /**
+     * Registers a persona whose chain is built by source when it is needed.
+     * Registering a name again replaces its source and unloads its chain.
+     *
+     * @param name   - the (non-null) name of the persona
+     * @param source - the (non-null) source of the persona's chain
+     * @throws IllegalArgumentException if name or source is null
+     */
+    public synchronized void register(String name, Supplier<MarkovChain> source) {
+        if (name == null || source == null) {
+            throw new IllegalArgumentException("name and source cannot be null");
+        }
+        sources.put(name, source);
+        unload(name);
+    }
+
+    /**
+     * Registers a persona trained on the tweets in a CSV file.
+     *
+     * @param name        - the (non-null) name of the persona
+     * @param filePath    - the (non-null) path to the CSV file
+     * @param tweetColumn - the column of the file that contains the tweets
+     * @throws IllegalArgumentException if name or filePath is null
+     */
+    public void register(String name, String filePath, int tweetColumn) {
+        if (filePath == null) {
+            throw new IllegalArgumentException("filePath cannot be null");
+        }
+        register(name, () -> {
+            MarkovChain mc = new MarkovChain();
+            TweetParser.csvDataToTrainingData(
+                    FileLineIterator.fileToReader(filePath), tweetColumn,
+                    sentence -> mc.train(sentence.iterator())
+            );
+            return mc;
+        });
+    }
+
+    /**
+     * Returns the chain of a persona, loading it if needed.
+     *
+     * @param name - the name of a registered persona
+     * @return the persona's chain
+     * @throws IllegalArgumentException if no persona has that name
+     */
+    public CompactMarkovChain get(String name) {
+        Supplier<MarkovChain> source;
+        synchronized (this) {
+            CompactMarkovChain chain = loaded.get(name);
+            if (chain != null) {
+                return chain;
+            }
+            source = sources.get(name);
+            if (source == null) {
+                throw new IllegalArgumentException("no persona named " + name);
+            }
+        }
+
+        // the Vocabulary is safe to intern into from several threads
+        CompactMarkovChain built = new CompactMarkovChain(source.get(), vocab);
+
+        synchronized (this) {
+            CompactMarkovChain chain = loaded.get(name);
+            if (chain != null) {
+                // another thread loaded it first
+                return chain;
+            }
+            chain = built;
+            if (sources.get(name) == source) {
+                loaded.put(name, chain);
+                usedBytes += chain.memoryBytes();
+                loads++;
+                evictFor(name);
+            }
+            return chain;
+        }
+    }
+
+    /**
+     * Unloads least recently used chains, other than keep, until the loaded
+     * chains fit in the budget.
+     */
+    private void evictFor(String keep) {
+        Iterator<Map.Entry<String, CompactMarkovChain>> it = loaded.entrySet().iterator();
+        while (usedBytes > budgetBytes && it.hasNext()) {
+            Map.Entry<String, CompactMarkovChain> e = it.next();
+            if (!e.getKey().equals(keep)) {
+                usedBytes -= e.getValue().memoryBytes();
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Generates a tweet for a persona, loading its chain if needed.
+     *
+     * @param name     - the name of a registered persona
+     * @param numChars - the most characters the tweet may have
+     * @param ng       - the (non-null) NumberGenerator for this tweet
+     * @return a String representing a generated tweet
+     * @throws IllegalArgumentException if no persona has that name, numChars
+     *                                  is negative, or ng is null
+     */
+    public String generateTweetChars(String name, int numChars, NumberGenerator ng) {
+        return TwitterBot.generateTweetChars(get(name).walker(ng), numChars, ng);
+    }
+
+    /**
+     * Unloads a persona's chain, if it is loaded. The persona stays
+     * registered.
+     *
+     * @param name - the name of the persona
+     */
+    public synchronized void unload(String name) {
+        CompactMarkovChain chain = loaded.remove(name);
+        if (chain != null) {
+            usedBytes -= chain.memoryBytes();
+        }
+    }
+
+    /**
+     * @return the names of the loaded personas, least recently used first
+     */
+    public synchronized List<String> loaded() {
+        return new ArrayList<String>(loaded.keySet());
+    }
+
+    /**
+     * @return the number of bytes used by the loaded tables
+     */
+    public synchronized long usedBytes() {
+        return usedBytes;
+    }
+
+    /**
+     * @return how many times a persona's chain has been loaded
+     */
+    public synchronized long loads() {
+        return loads;
+    }
+
+    /**
+     * @return the Vocabulary shared by all of the personas
+     */
+    public Vocabulary getVocabulary() {
+        return vocab;
+    }
+}
@@ -0,0 +1,152 @@
+package org.cis120;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.cis120.TestChains.*;
+
+/** Tests for ModelRegistry */
+public class ModelRegistryTest {
+
+    private static Supplier<MarkovChain> sourceOf(String... sentences) {
+        return () -> chainOf(sentences);
+    }
+
+    @Test
+    public void testPersonasShareVocabulary() {
+        ModelRegistry registry = new ModelRegistry(1 << 20);
+        registry.register("dogs", sourceOf("the dog is good"));
+        registry.register("cats", sourceOf("the cat is bad"));
+        CompactMarkovChain dogs = registry.get("dogs");
+        CompactMarkovChain cats = registry.get("cats");
+        assertSame(dogs.getVocabulary(), cats.getVocabulary());
+        // "the" and "is" are stored once
+        assertEquals(6, registry.getVocabulary().size());
+        NumberGenerator ng = new ListNumberGenerator(Arrays.asList(0, 0));
+        assertEquals(cats.id("cat"), cats.pick(cats.id("the"), ng));
+        assertEquals(dogs.id("dog"), dogs.pick(dogs.id("the"), ng));
+        // each persona only has rows for its own words
+        assertEquals(4, cats.words());
+        assertEquals(5, cats.offsets.length);
+        assertEquals(CompactMarkovChain.END, cats.id("dog"));
+        assertEquals("cat", cats.word(cats.id("cat")));
+    }
+
+    @Test
+    public void testTablesDoNotGrowWithSharedVocabulary() {
+        ModelRegistry registry = new ModelRegistry(1 << 20);
+        StringBuilder many = new StringBuilder("w0");
+        for (int i = 1; i < 1000; i++) {
+            many.append(" w").append(i);
+        }
+        registry.register("big", sourceOf(many.toString()));
+        registry.register("small", sourceOf("the dog is good"));
+        registry.get("big");
+        CompactMarkovChain small = registry.get("small");
+        assertEquals(1004, registry.getVocabulary().size());
+        ModelRegistry alone = new ModelRegistry(1 << 20);
+        alone.register("small", sourceOf("the dog is good"));
+        assertEquals(alone.get("small").memoryBytes(), small.memoryBytes());
+    }
+
+    @Test
+    public void testLoadsOnDemandOnce() {
+        ModelRegistry registry = new ModelRegistry(1 << 20);
+        registry.register("dogs", sourceOf("the dog is good"));
+        assertEquals(0, registry.loads());
+        assertTrue(registry.loaded().isEmpty());
+        CompactMarkovChain first = registry.get("dogs");
+        assertSame(first, registry.get("dogs"));
+        assertEquals(1, registry.loads());
+        assertEquals(first.memoryBytes(), registry.usedBytes());
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsed() {
+        Supplier<MarkovChain> a = sourceOf("a b c d");
+        Supplier<MarkovChain> b = sourceOf("e f g h");
+        Supplier<MarkovChain> c = sourceOf("i j k l");
+        long one = new CompactMarkovChain(a.get()).memoryBytes();
+        ModelRegistry registry = new ModelRegistry(2 * one + 100);
+        registry.register("a", a);
+        registry.register("b", b);
+        registry.register("c", c);
+
+        registry.get("a");
+        registry.get("b");
+        registry.get("a");
+        registry.get("c");
+        List<String> loaded = registry.loaded();
+        assertEquals(Arrays.asList("a", "c"), loaded);
+        assertTrue(registry.usedBytes() <= 2 * one + 100);
+
+        // b is loaded again when it is next used
+        registry.get("b");
+        assertEquals(4, registry.loads());
+        assertEquals(Arrays.asList("c", "b"), registry.loaded());
+    }
+
+    @Test
+    public void testKeepsPersonaOverBudget() {
+        ModelRegistry registry = new ModelRegistry(1);
+        registry.register("dogs", sourceOf("the dog is good"));
+        registry.register("cats", sourceOf("the cat is bad"));
+        registry.get("dogs");
+        registry.get("cats");
+        assertEquals(Arrays.asList("cats"), registry.loaded());
+    }
+
+    @Test
+    public void testRegisterAgainUnloads() {
+        ModelRegistry registry = new ModelRegistry(1 << 20);
+        registry.register("p", sourceOf("the dog is good"));
+        registry.get("p");
+        registry.register("p", sourceOf("the cat is bad"));
+        assertTrue(registry.loaded().isEmpty());
+        assertEquals(0, registry.usedBytes());
+        CompactMarkovChain chain = registry.get("p");
+        NumberGenerator ng = new ListNumberGenerator(Arrays.asList(0));
+        assertEquals(chain.id("cat"), chain.pick(chain.id("the"), ng));
+    }
+
+    @Test
+    public void testGenerateTweetChars() {
+        ModelRegistry registry = new ModelRegistry(1 << 20);
+        registry.register("dogs", sourceOf("the dog is good"));
+        NumberGenerator ng = new ListNumberGenerator(Arrays.asList(0));
+        String tweet = registry.generateTweetChars("dogs", 40, ng);
+        assertTrue(tweet.startsWith("the dog is good"));
+        assertTrue(tweet.length() <= 40);
+    }
+
+    @Test
+    public void testRegisterCsvFile() throws IOException {
+        Path file = Files.createTempFile("tweets", ".csv");
+        try {
+            Files.write(file, "0, the dog is good.\n1, the cat is bad.\n"
+                    .getBytes(StandardCharsets.UTF_8));
+            ModelRegistry registry = new ModelRegistry(1 << 20);
+            registry.register("pets", file.toString(), 1);
+            assertEquals(0, registry.loads());
+            assertEquals(8, registry.get("pets").transitions());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testUnknownPersona() {
+        ModelRegistry registry = new ModelRegistry(1 << 20);
+        assertThrows(IllegalArgumentException.class, () -> registry.get("nobody"));
+        assertThrows(IllegalArgumentException.class, () -> registry.register(null, sourceOf()));
+        assertThrows(IllegalArgumentException.class, () -> new ModelRegistry(0));
+    }
+}
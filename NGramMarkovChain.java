@@ -0,0 +1,329 @@
+package org.cis120;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * An NGramMarkovChain is a Markov chain in which the next word depends on up
+ * to order previous words, rather than only on the current word as in
+ * MarkovChain (which behaves like an NGramMarkovChain of order 1). Higher
+ * orders give more fluent output at the cost of more memory.
+ * <p>
+ * TRAINING:
+ * <p>
+ * Words are interned to int ids by a Vocabulary. A context (the last k
+ * words, for k from 1 to order) is packed into a single long, 21 bits per
+ * word, and mapped to a state number by a LongIntHashMap. The empty context
+ * is the start of a sentence, so it plays the part of MarkovChain's
+ * startWords. Each (state, successor) pair is again packed into a long and
+ * counted in a second LongIntHashMap. For example, with order 2, training on
+ * "a dog is good" counts:
+ * <p>
+ * - "a" after the empty context
+ * <p>
+ * - "dog" after "a"; "is" after "dog" and after "a dog"; "good" after "is"
+ * and after "dog is"; and the end of the sentence after "good" and after
+ * "is good".
+ * <p>
+ * Apart from these counts, no objects are created per word or per state.
+ * <p>
+ * GENERATING:
+ * <p>
+ * Before the first pick after training, the counts are compiled into
+ * compressed rows with running totals, as in CompactMarkovChain, so picking
+ * a successor is a binary search over an int array. Each pick uses the
+ * longest context of the walk so far that was seen in training, backing off
+ * to shorter contexts (down to the current word alone) when a longer one is
+ * unknown, as can happen after reset(start). Training may happen in the
+ * middle of a walk, which then continues with the new counts.
+ */
+public class NGramMarkovChain implements ChainWalker {
+
+    /**
+     * The highest supported order: three 21-bit ids fit in one long.
+     */
+    public static final int MAX_ORDER = 3;
+
+    private static final int ID_BITS = 21;
+    private static final int MAX_WORDS = (1 << ID_BITS) - 2;
+    private static final int END = CompactMarkovChain.END;
+
+    private final int order;
+    private NumberGenerator ng;
+    private final Vocabulary vocab;
+    private final LongIntHashMap states;
+    private final LongIntHashMap counts;
+
+    // compiled rows, rebuilt after training
+    private int[] offsets;
+    private int[] targets;
+    private int[] cumulative;
+
+    // the walk: the ids returned so far in this sentence (the last order of
+    // them) and the id that next() will return
+    private final int[] history;
+    private int length;
+    private int now;
+    private String unknown;
+
+    /**
+     * Creates an empty chain of the given order that uses a
+     * RandomNumberGenerator.
+     *
+     * @param order - the number of previous words each pick depends on
+     * @throws IllegalArgumentException if order is not between 1 and
+     *                                  MAX_ORDER
+     */
+    public NGramMarkovChain(int order) {
+        this(order, new RandomNumberGenerator());
+    }
+
+    /**
+     * Creates an empty chain of the given order.
+     *
+     * @param order - the number of previous words each pick depends on
+     * @param ng    - A (non-null) NumberGenerator used to walk the chain
+     * @throws IllegalArgumentException if order is not between 1 and
+     *                                  MAX_ORDER, or ng is null
+     */
+    public NGramMarkovChain(int order, NumberGenerator ng) {
+        if (order < 1 || order > MAX_ORDER) {
+            throw new IllegalArgumentException(
+                    "order must be between 1 and " + MAX_ORDER
+            );
+        }
+        if (ng == null) {
+            throw new IllegalArgumentException(
+                    "NumberGenerator input cannot be null"
+            );
+        }
+        this.order = order;
+        this.ng = ng;
+        this.vocab = new Vocabulary();
+        this.states = new LongIntHashMap();
+        this.counts = new LongIntHashMap();
+        this.history = new int[order];
+        this.now = END;
+        // the empty context (the start of a sentence) is always state 0
+        states.put(0L, 0);
+    }
+
+    /**
+     * @return the number of previous words each pick depends on
+     */
+    public int getOrder() {
+        return order;
+    }
+
+    /**
+     * @return the number of distinct contexts seen in training, counting
+     *         the start of a sentence
+     */
+    public int states() {
+        return states.size();
+    }
+
+    /**
+     * @return the number of distinct (context, next word) pairs seen in
+     *         training
+     */
+    public int transitions() {
+        return counts.size();
+    }
+
+    /**
+     * Packs the k ids before position end of ids into a context key.
+     */
+    private static long contextKey(int[] ids, int end, int k) {
+        long key = 0;
+        for (int i = end - k; i < end; i++) {
+            key = (key << ID_BITS) | (ids[i] + 1);
+        }
+        return key;
+    }
+
+    private int state(long context) {
+        return states.containsKey(context) ? states.get(context) : -1;
+    }
+
+    /**
+     * Adds a sentence's training data to the chain, counting each word (and
+     * the end of the sentence) after every context of 1 to order words that
+     * precedes it, and the first word after the start of a sentence. Empty
+     * Strings are skipped, and an empty sentence does nothing.
+     *
+     * @param sentence - an iterator representing one sentence of training data
+     * @throws IllegalArgumentException if the sentence Iterator is null or
+     *                                  the vocabulary grows past 2^21 - 2
+     *                                  words
+     */
+    public void train(Iterator<String> sentence) {
+        if (sentence == null) {
+            throw new IllegalArgumentException();
+        }
+        int[] ids = new int[16];
+        int n = 0;
+        while (sentence.hasNext()) {
+            String word = sentence.next();
+            if (word == null || word.isEmpty()) {
+                continue;
+            }
+            if (n == ids.length) {
+                ids = Arrays.copyOf(ids, n * 2);
+            }
+            ids[n++] = intern(word);
+        }
+        if (n == 0) {
+            return;
+        }
+        offsets = null;
+
+        count(0L, ids[0]);
+        for (int i = 1; i <= n; i++) {
+            int next = (i < n) ? ids[i] : END;
+            for (int k = 1; k <= Math.min(order, i); k++) {
+                count(contextKey(ids, i, k), next);
+            }
+        }
+    }
+
+    private int intern(String word) {
+        int id = vocab.intern(word);
+        if (id >= MAX_WORDS) {
+            throw new IllegalArgumentException(
+                    "too many distinct words for an NGramMarkovChain"
+            );
+        }
+        return id;
+    }
+
+    private void count(long context, int next) {
+        int state = state(context);
+        if (state < 0) {
+            state = states.size();
+            states.put(context, state);
+        }
+        counts.addTo(((long) state << (ID_BITS + 1)) | (next + 1), 1);
+    }
+
+    /**
+     * Lays the counts out in rows by state, with running totals.
+     */
+    private void compile() {
+        int numStates = states.size();
+        offsets = new int[numStates + 1];
+        for (int i = 0; i < counts.capacity(); i++) {
+            long key = counts.keyAt(i);
+            if (key >= 0) {
+                offsets[(int) (key >>> (ID_BITS + 1)) + 1]++;
+            }
+        }
+        for (int s = 0; s < numStates; s++) {
+            offsets[s + 1] += offsets[s];
+        }
+        targets = new int[counts.size()];
+        cumulative = new int[counts.size()];
+        int[] fill = Arrays.copyOf(offsets, numStates);
+        for (int i = 0; i < counts.capacity(); i++) {
+            long key = counts.keyAt(i);
+            if (key >= 0) {
+                int state = (int) (key >>> (ID_BITS + 1));
+                int at = fill[state]++;
+                targets[at] = (int) (key & ((1L << (ID_BITS + 1)) - 1)) - 1;
+                cumulative[at] = counts.valueAt(i);
+            }
+        }
+        for (int s = 0; s < numStates; s++) {
+            for (int i = offsets[s] + 1; i < offsets[s + 1]; i++) {
+                cumulative[i] += cumulative[i - 1];
+            }
+        }
+    }
+
+    /**
+     * Picks a successor in the given state, or returns END if the state
+     * has no successors.
+     */
+    private int pick(int state) {
+        int from = offsets[state];
+        int to = offsets[state + 1];
+        if (from == to) {
+            return END;
+        }
+        int index = ng.next(cumulative[to - 1]);
+        return targets[CompactMarkovChain.search(cumulative, from, to, index)];
+    }
+
+    /**
+     * Sets up a walk beginning with a randomly picked start word.
+     */
+    public void reset() {
+        if (offsets == null) {
+            compile();
+        }
+        length = 0;
+        unknown = null;
+        now = pick(0);
+    }
+
+    /**
+     * Sets up a walk beginning with start, which is returned by the next
+     * call to next(). If start was never seen in training, the walk ends
+     * right after it; if start is null, the walk is already finished.
+     *
+     * @param start - the first word of the walk
+     */
+    public void reset(String start) {
+        if (offsets == null) {
+            compile();
+        }
+        length = 0;
+        now = vocab.id(start);
+        unknown = (now == END) ? start : null;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return now != END || unknown != null;
+    }
+
+    /**
+     * Returns the current word of the walk and picks the next one from the
+     * longest known context that ends with it.
+     *
+     * @return the next word of the walk
+     * @throws NoSuchElementException if the walk is finished
+     */
+    @Override
+    public String next() {
+        if (unknown != null) {
+            String word = unknown;
+            unknown = null;
+            return word;
+        }
+        if (now == END) {
+            throw new NoSuchElementException();
+        }
+        int current = now;
+        if (length == order) {
+            System.arraycopy(history, 1, history, 0, order - 1);
+            length--;
+        }
+        history[length++] = current;
+
+        if (offsets == null) {
+            // trained since the last pick
+            compile();
+        }
+        now = END;
+        for (int k = length; k >= 1; k--) {
+            int state = state(contextKey(history, length, k));
+            if (state >= 0) {
+                now = pick(state);
+                break;
+            }
+        }
+        return vocab.word(current);
+    }
+}
@@ -0,0 +1,161 @@
+package org.cis120;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Tests for NGramMarkovChain */
+public class NGramMarkovChainTest {
+
+    private static void train(NGramMarkovChain chain, String sentence) {
+        chain.train(Arrays.stream(sentence.split(" ")).iterator());
+    }
+
+    private static String walk(NGramMarkovChain chain) {
+        StringBuilder sb = new StringBuilder();
+        while (chain.hasNext()) {
+            if (sb.length() > 0) {
+                sb.append(' ');
+            }
+            sb.append(chain.next());
+        }
+        return sb.toString();
+    }
+
+    @Test
+    public void testBadOrder() {
+        assertThrows(IllegalArgumentException.class, () -> {
+            new NGramMarkovChain(0);
+        });
+        assertThrows(IllegalArgumentException.class, () -> {
+            new NGramMarkovChain(NGramMarkovChain.MAX_ORDER + 1);
+        });
+        assertThrows(IllegalArgumentException.class, () -> {
+            new NGramMarkovChain(2, null);
+        });
+    }
+
+    @Test
+    public void testTrainNull() {
+        NGramMarkovChain chain = new NGramMarkovChain(2);
+        assertThrows(IllegalArgumentException.class, () -> {
+            chain.train(null);
+        });
+    }
+
+    @Test
+    public void testCountsStatesAndTransitions() {
+        NGramMarkovChain chain = new NGramMarkovChain(2);
+        train(chain, "a dog is good");
+        // states: start, a, dog, is, good, "a dog", "dog is", "is good"
+        assertEquals(8, chain.states());
+        // start->a, a->dog, dog->is, "a dog"->is, is->good, "dog is"->good,
+        // good->end, "is good"->end
+        assertEquals(8, chain.transitions());
+    }
+
+    @Test
+    public void testOrderTwoFollowsTwoWordContext() {
+        // after "x" alone either "a" or "b" may follow, but "p x" is always
+        // followed by "a" and "q x" by "b"
+        NGramMarkovChain chain = new NGramMarkovChain(2);
+        train(chain, "p x a");
+        train(chain, "q x b");
+        for (int i = 0; i < 20; i++) {
+            chain.reset();
+            String walk = walk(chain);
+            assertTrue(
+                    walk.equals("p x a") || walk.equals("q x b"), walk
+            );
+        }
+    }
+
+    @Test
+    public void testOrderOneMixesContexts() {
+        NGramMarkovChain chain = new NGramMarkovChain(1);
+        train(chain, "p x a");
+        train(chain, "q x b");
+        chain.reset("p");
+        assertEquals("p", chain.next());
+        assertEquals("x", chain.next());
+        // only the current word is used, so this picks from {a, b}
+        String last = chain.next();
+        assertTrue(last.equals("a") || last.equals("b"));
+        assertFalse(chain.hasNext());
+    }
+
+    @Test
+    public void testTrainDuringWalk() {
+        NGramMarkovChain chain = new NGramMarkovChain(2, new ListNumberGenerator(Arrays.asList(0, 1)));
+        train(chain, "p q");
+        chain.reset("p");
+        assertEquals("p", chain.next());
+        // "p q" is now followed by "r" twice and by the end once, so index 1
+        // picks "r" in whatever order the row is laid out
+        train(chain, "p q r");
+        train(chain, "p q r");
+        assertEquals("q", chain.next());
+        assertEquals("r", chain.next());
+        assertFalse(chain.hasNext());
+    }
+
+    @Test
+    public void testBackOffFromUnseenContext() {
+        NGramMarkovChain chain = new NGramMarkovChain(3);
+        train(chain, "the cat sat");
+        train(chain, "a big cat ran");
+        // "the" then "big" was never seen, so the third word backs off to
+        // what follows "big" alone
+        chain.reset("big");
+        assertEquals("big", chain.next());
+        assertEquals("cat", chain.next());
+        String next = chain.next();
+        assertTrue(next.equals("sat") || next.equals("ran"));
+        assertFalse(chain.hasNext());
+    }
+
+    @Test
+    public void testResetUnknownWord() {
+        NGramMarkovChain chain = new NGramMarkovChain(2);
+        train(chain, "a b");
+        chain.reset("zebra");
+        assertTrue(chain.hasNext());
+        assertEquals("zebra", chain.next());
+        assertFalse(chain.hasNext());
+        assertThrows(NoSuchElementException.class, chain::next);
+    }
+
+    @Test
+    public void testEmptyChain() {
+        NGramMarkovChain chain = new NGramMarkovChain(2);
+        chain.reset();
+        assertFalse(chain.hasNext());
+        assertThrows(NoSuchElementException.class, chain::next);
+    }
+
+    @Test
+    public void testTrainingAfterWalk() {
+        NGramMarkovChain chain = new NGramMarkovChain(2);
+        train(chain, "one");
+        chain.reset();
+        assertEquals("one", walk(chain));
+        train(chain, "two three");
+        chain.reset("two");
+        assertEquals("two three", walk(chain));
+    }
+
+    @Test
+    public void testLongSentence() {
+        NGramMarkovChain chain = new NGramMarkovChain(3);
+        StringBuilder sb = new StringBuilder("w0");
+        for (int i = 1; i < 100; i++) {
+            sb.append(" w").append(i);
+        }
+        train(chain, sb.toString());
+        chain.reset();
+        assertEquals(sb.toString(), walk(chain));
+    }
+}
@@ -0,0 +1,295 @@
+package org.cis120;
+
+import java.io.BufferedReader;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * A NoveltyFilter catches generated tweets that copy too much of a training
+ * tweet word for word.
+ * <p>
+ * The filter indexes every run of n = maxCopied + 1 consecutive words (an
+ * n-gram) in the training sentences. A generated tweet copies more than
+ * maxCopied words in a row from some training sentence exactly when one of
+ * its n-grams is in the index, so checking a tweet takes one hash lookup per
+ * word: the n-gram hashes are rolled along each sentence, and a tweet is
+ * parsed and cleaned by TweetParser exactly as the training data is.
+ * <p>
+ * To stay small, the index stores only a 32-bit fingerprint of each distinct
+ * n-gram in an open-addressing table of ints that is kept at most half
+ * full, so it takes at most 8 bytes per distinct n-gram (compared with
+ * several objects per transition in a MarkovChain). Two different n-grams
+ * can share a fingerprint, so a novel tweet is very occasionally rejected,
+ * but a copied one is never accepted.
+ * <p>
+ * The filter implements Consumer so that it can be fed by
+ * TweetParser.csvDataToTrainingData, for example alongside training:
+ * {@code sentence -> { mc.train(sentence.iterator()); filter.accept(sentence); }}
+ * <p>
+ * Adding sentences must not overlap with checking tweets, but once it is
+ * built, any number of threads may check tweets at once.
+ */
+public class NoveltyFilter implements Consumer<List<String>> {
+    // the multiplier of the rolling polynomial hash
+    private static final long BASE = 0x9E3779B97F4A7C15L;
+    private static final int EMPTY = 0;
+
+    private final int n;
+    // BASE^(n - 1), to remove the oldest word from a rolling hash
+    private final long outgoing;
+    private int[] slots;
+    private int size;
+
+    /**
+     * Creates an empty filter.
+     *
+     * @param maxCopied - the most consecutive words a tweet may share with a
+     *                  training sentence
+     * @throws IllegalArgumentException if maxCopied is less than 1
+     */
+    public NoveltyFilter(int maxCopied) {
+        if (maxCopied < 1) {
+            throw new IllegalArgumentException("maxCopied must be at least 1");
+        }
+        this.n = maxCopied + 1;
+        long power = 1;
+        for (int i = 1; i < n; i++) {
+            power *= BASE;
+        }
+        this.outgoing = power;
+        this.slots = new int[16];
+    }
+
+    /**
+     * Builds a filter over the training data in a CSV file.
+     *
+     * @param br          - a BufferedReader that contains the tweets
+     * @param tweetColumn - the number of the column in the buffered reader that
+     *                    contains the tweet
+     * @param maxCopied   - the most consecutive words a tweet may share with a
+     *                    training sentence
+     * @return the filter
+     * @throws IllegalArgumentException if br is null or maxCopied is less
+     *                                  than 1
+     */
+    public static NoveltyFilter fromCsv(BufferedReader br, int tweetColumn, int maxCopied) {
+        NoveltyFilter filter = new NoveltyFilter(maxCopied);
+        TweetParser.csvDataToTrainingData(br, tweetColumn, filter);
+        return filter;
+    }
+
+    /**
+     * Indexes the n-grams of one training sentence.
+     *
+     * @param sentence - a (non-null) cleaned training sentence
+     * @throws IllegalArgumentException if sentence is null
+     */
+    @Override
+    public void accept(List<String> sentence) {
+        if (sentence == null) {
+            throw new IllegalArgumentException("sentence cannot be null");
+        }
+        long[] window = new long[n];
+        long hash = 0;
+        int i = 0;
+        for (String word : sentence) {
+            long w = wordHash(word);
+            hash = roll(hash, window[i % n], w, i);
+            window[i % n] = w;
+            i++;
+            if (i >= n) {
+                insert(fingerprint(hash));
+            }
+        }
+    }
+
+    /**
+     * Returns whether tweet shares no more than maxCopied consecutive words
+     * with any training sentence.
+     *
+     * @param tweet - a (non-null) generated tweet
+     * @return true if the tweet is novel enough
+     * @throws IllegalArgumentException if tweet is null
+     */
+    public boolean isNovel(String tweet) {
+        return longestCopiedSpan(tweet) < n;
+    }
+
+    /**
+     * Returns the length in words of the longest run of the tweet that is
+     * covered by indexed n-grams, which is the longest span it copies from
+     * the training data when that span is longer than maxCopied words. Spans
+     * of maxCopied words or fewer are not indexed, so 0 is returned for
+     * them.
+     * <p>
+     * Overlapping n-grams are assumed to come from the same training
+     * sentence, so a span stitched together from several sentences counts as
+     * one span.
+     *
+     * @param tweet - a (non-null) generated tweet
+     * @return the longest copied span, or 0 if the tweet is novel
+     * @throws IllegalArgumentException if tweet is null
+     */
+    public int longestCopiedSpan(String tweet) {
+        if (tweet == null) {
+            throw new IllegalArgumentException("tweet cannot be null");
+        }
+        int longest = 0;
+        long[] window = new long[n];
+        for (List<String> sentence : TweetParser.parseAndCleanTweet(tweet)) {
+            long hash = 0;
+            int i = 0;
+            int run = 0;
+            for (String word : sentence) {
+                long w = wordHash(word);
+                hash = roll(hash, window[i % n], w, i);
+                window[i % n] = w;
+                i++;
+                if (i < n) {
+                    continue;
+                }
+                if (contains(fingerprint(hash))) {
+                    // the first hit covers n words, each later one adds one
+                    run = (run == 0) ? n : run + 1;
+                    longest = Math.max(longest, run);
+                } else {
+                    run = 0;
+                }
+            }
+        }
+        return longest;
+    }
+
+    /**
+     * Calls generator until it produces a novel tweet.
+     *
+     * @param generator   - a (non-null) source of candidate tweets
+     * @param maxAttempts - the most candidates to try
+     * @return the first novel candidate, or null if none of maxAttempts
+     *         candidates was novel
+     * @throws IllegalArgumentException if generator is null or maxAttempts
+     *                                  is negative
+     */
+    public String generate(Supplier<String> generator, int maxAttempts) {
+        if (generator == null || maxAttempts < 0) {
+            throw new IllegalArgumentException(
+                    "generator cannot be null and maxAttempts cannot be negative"
+            );
+        }
+        for (int attempt = 0; attempt < maxAttempts; attempt++) {
+            String tweet = generator.get();
+            if (tweet != null && isNovel(tweet)) {
+                return tweet;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the most consecutive words a tweet may share with a training
+     *         sentence
+     */
+    public int getMaxCopied() {
+        return n - 1;
+    }
+
+    /**
+     * @return the number of distinct n-grams indexed
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the number of bytes used by the index
+     */
+    public long memoryBytes() {
+        return 4L * slots.length + 16;
+    }
+
+    /**
+     * Adds w to a rolling hash of the last n words, removing out if the hash
+     * already covers n words (i is the number of words hashed so far).
+     */
+    private long roll(long hash, long out, long w, int i) {
+        if (i >= n) {
+            hash -= out * outgoing;
+        }
+        return hash * BASE + w;
+    }
+
+    /**
+     * 64-bit FNV-1a hash of a word.
+     */
+    private static long wordHash(String word) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < word.length(); i++) {
+            h ^= word.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+
+    /**
+     * The MurmurHash3 fmix64 finalizer, so that every bit of the rolling
+     * hash affects the fingerprint.
+     */
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * Returns the fingerprint stored for an n-gram hash. The fingerprint is
+     * also its own slot in the table, so the table can be grown from the
+     * fingerprints alone.
+     */
+    private static int fingerprint(long hash) {
+        int f = (int) (mix(hash) >>> 32);
+        return (f == EMPTY) ? 1 : f;
+    }
+
+    private boolean contains(int fingerprint) {
+        int[] table = slots;
+        int mask = table.length - 1;
+        for (int i = fingerprint & mask; ; i = (i + 1) & mask) {
+            if (table[i] == fingerprint) {
+                return true;
+            }
+            if (table[i] == EMPTY) {
+                return false;
+            }
+        }
+    }
+
+    private void insert(int fingerprint) {
+        if (contains(fingerprint)) {
+            return;
+        }
+        if (2 * (size + 1) > slots.length) {
+            int[] bigger = new int[slots.length * 2];
+            for (int f : slots) {
+                if (f != EMPTY) {
+                    place(bigger, f);
+                }
+            }
+            slots = bigger;
+        }
+        place(slots, fingerprint);
+        size++;
+    }
+
+    private static void place(int[] table, int fingerprint) {
+        int mask = table.length - 1;
+        int i = fingerprint & mask;
+        while (table[i] != EMPTY) {
+            i = (i + 1) & mask;
+        }
+        table[i] = fingerprint;
+    }
+}
@@ -0,0 +1,114 @@
+package org.cis120;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Tests for NoveltyFilter */
+public class NoveltyFilterTest {
+
+    private static final String TWEETS = "0, the dog is good. the cat is bad.\n"
+            + "1, a dog sat on the mat! the dog ran far.\n"
+            + "2, my very old dog likes to sleep on the warm mat all day.";
+
+    private static NoveltyFilter filter(int maxCopied) {
+        return NoveltyFilter.fromCsv(new BufferedReader(new StringReader(TWEETS)), 1, maxCopied);
+    }
+
+    @Test
+    public void testVerbatimTweetIsRejected() {
+        NoveltyFilter f = filter(3);
+        assertFalse(f.isNovel("My very old dog likes to sleep on the warm mat all day!"));
+        assertEquals(13, f.longestCopiedSpan("my very old dog likes to sleep on the warm mat all day."));
+    }
+
+    @Test
+    public void testShortCopiesAreAllowed() {
+        NoveltyFilter f = filter(3);
+        // "the dog is" is three words, "dog is good" too, but never four in a row
+        assertTrue(f.isNovel("the dog is bad. my very old cat."));
+        assertEquals(0, f.longestCopiedSpan("the dog is bad. my very old cat."));
+        assertFalse(f.isNovel("the dog is good."));
+        assertEquals(4, f.longestCopiedSpan("the dog is good."));
+    }
+
+    @Test
+    public void testSpansDoNotCrossSentences() {
+        NoveltyFilter f = filter(2);
+        // "far" ends one training sentence and "my" starts another
+        assertTrue(f.isNovel("ran far my very"));
+        assertFalse(f.isNovel("the dog ran far; my very"));
+        assertTrue(f.isNovel("dog ran. far my very."));
+    }
+
+    @Test
+    public void testLongestSpanInMiddle() {
+        NoveltyFilter f = filter(2);
+        assertEquals(5, f.longestCopiedSpan("cats like to sleep on the warm bed."));
+        assertEquals(3, f.longestCopiedSpan("the dog is bad. likes to sleep."));
+    }
+
+    @Test
+    public void testCleansTweetsLikeTrainingData() {
+        NoveltyFilter f = filter(3);
+        assertFalse(f.isNovel("THE DOG IS GOOD http://example.com"));
+    }
+
+    @Test
+    public void testGenerateRegenerates() {
+        NoveltyFilter f = filter(3);
+        Iterator<String> candidates = Arrays.asList(
+                "the dog is good.", "the cat is bad.", "the dog is bad."
+        ).iterator();
+        assertEquals("the dog is bad.", f.generate(candidates::next, 3));
+        Iterator<String> copies = Arrays.asList("the dog is good.", "the cat is bad.").iterator();
+        assertNull(f.generate(copies::next, 2));
+    }
+
+    @Test
+    public void testGeneratedTweetsFromBot() {
+        TwitterBot bot = new TwitterBot(new BufferedReader(new StringReader(TWEETS)), 1);
+        NoveltyFilter f = filter(4);
+        Random r = new Random(120);
+        NumberGenerator ng = r::nextInt;
+        for (int i = 0; i < 50; i++) {
+            String tweet = f.generate(() -> bot.generateTweetChars(60, ng), 100);
+            assertNotNull(tweet);
+            assertTrue(f.longestCopiedSpan(tweet) <= 4);
+        }
+    }
+
+    @Test
+    public void testIndexGrowsAndCountsDistinctNGrams() {
+        NoveltyFilter f = new NoveltyFilter(1);
+        List<String> sentence = new ArrayList<String>();
+        for (int i = 0; i < 1000; i++) {
+            sentence.add("w" + i);
+        }
+        f.accept(sentence);
+        f.accept(sentence);
+        assertEquals(999, f.size());
+        assertTrue(f.memoryBytes() <= 8 * 1024 + 16);
+        assertFalse(f.isNovel("w500 w501"));
+        assertTrue(f.isNovel("w501 w500"));
+    }
+
+    @Test
+    public void testBadArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new NoveltyFilter(0));
+        NoveltyFilter f = new NoveltyFilter(2);
+        assertThrows(IllegalArgumentException.class, () -> f.accept(null));
+        assertThrows(IllegalArgumentException.class, () -> f.isNovel(null));
+        assertThrows(IllegalArgumentException.class, () -> f.generate(null, 1));
+        assertThrows(IllegalArgumentException.class, () -> f.generate(() -> "a", -1));
+        assertEquals(2, f.getMaxCopied());
+    }
+}
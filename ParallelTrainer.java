@@ -0,0 +1,224 @@
+package org.cis120;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * ParallelTrainer trains a MarkovChain from a CSV file of tweets using
+ * several threads.
+ * <p>
+ * The file is split into byte ranges. Each range is read and parsed on its
+ * own (with TweetParser, exactly as csvDataToTrainingData() would parse it)
+ * into a separate partial MarkovChain, and the partial chains are then
+ * combined with MarkovChain.merge(). Because training only counts bigrams
+ * and start words, the result is the same as training on the whole file in
+ * order.
+ * <p>
+ * A line belongs to the range that contains its first byte, so a range
+ * skips the end of a line that started in the range before it and reads
+ * past its own end to finish its last line. Lines are decoded as UTF-8 and
+ * may end in "\n" or "\r\n".
+ */
+public class ParallelTrainer {
+
+    /**
+     * Ranges smaller than this are not split any further.
+     */
+    static final long DEFAULT_CHUNK_BYTES = 1 << 20;
+
+    private ParallelTrainer() {
+    }
+
+    /**
+     * Trains a MarkovChain on the tweets in a CSV file, using up to
+     * parallelism threads.
+     *
+     * @param filePath    - the path to the CSV file
+     * @param tweetColumn - the column of the file that contains the tweets
+     * @param parallelism - the number of threads to use
+     * @param ng          - the NumberGenerator for the returned MarkovChain
+     * @return a MarkovChain trained on every tweet in the file
+     * @throws IllegalArgumentException if filePath or ng is null, if
+     *                                  parallelism is not positive, or if the
+     *                                  file cannot be read
+     */
+    public static MarkovChain train(
+            String filePath, int tweetColumn, int parallelism,
+            NumberGenerator ng
+    ) {
+        if (filePath == null) {
+            throw new IllegalArgumentException("filePath cannot be null");
+        }
+        return train(Paths.get(filePath), tweetColumn, parallelism, ng, DEFAULT_CHUNK_BYTES);
+    }
+
+    /**
+     * Trains a MarkovChain as above, splitting the file into ranges of about
+     * chunkBytes bytes.
+     */
+    static MarkovChain train(
+            Path file, int tweetColumn, int parallelism, NumberGenerator ng,
+            long chunkBytes
+    ) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be positive");
+        }
+        if (ng == null) {
+            throw new IllegalArgumentException("NumberGenerator cannot be null");
+        }
+        long size;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            size = channel.size();
+        } catch (IOException e) {
+            throw new IllegalArgumentException("cannot read " + file, e);
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            // every shard's chain is created with ng, so the merged chain
+            // that comes back already walks with it
+            MarkovChain mc = pool.invoke(
+                    new Shard(file, tweetColumn, 0, size, Math.max(1, chunkBytes), ng)
+            );
+            Metrics metrics = Instrumentation.metrics();
+            if (metrics.enabled()) {
+                mc.recordVocabulary(metrics);
+            }
+            return mc;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Trains a partial MarkovChain on the lines that start in [start, end),
+     * splitting the range in half while it is larger than chunkBytes.
+     */
+    private static class Shard extends RecursiveTask<MarkovChain> {
+        private static final long serialVersionUID = 1L;
+
+        private final Path file;
+        private final int tweetColumn;
+        private final long start;
+        private final long end;
+        private final long chunkBytes;
+        private final NumberGenerator ng;
+
+        Shard(
+                Path file, int tweetColumn, long start, long end, long chunkBytes,
+                NumberGenerator ng
+        ) {
+            this.file = file;
+            this.tweetColumn = tweetColumn;
+            this.start = start;
+            this.end = end;
+            this.chunkBytes = chunkBytes;
+            this.ng = ng;
+        }
+
+        @Override
+        protected MarkovChain compute() {
+            if (end - start > chunkBytes) {
+                long mid = start + (end - start) / 2;
+                Shard right = new Shard(file, tweetColumn, mid, end, chunkBytes, ng);
+                right.fork();
+                MarkovChain left = new Shard(file, tweetColumn, start, mid, chunkBytes, ng)
+                        .compute();
+                left.merge(right.join());
+                return left;
+            }
+            MarkovChain mc = new MarkovChain(ng);
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                trainRange(channel, mc);
+            } catch (IOException e) {
+                throw new IllegalArgumentException("cannot read " + file, e);
+            }
+            return mc;
+        }
+
+        private void trainRange(FileChannel channel, MarkovChain mc) throws IOException {
+            LineReader lines = new LineReader(channel, start == 0 ? 0 : start - 1);
+            if (start > 0) {
+                // skip the rest of the line that started before this range
+                lines.readLine();
+            }
+            while (lines.position() < end) {
+                String line = lines.readLine();
+                if (line == null) {
+                    return;
+                }
+                TweetParser.csvLineToTrainingData(
+                        line, tweetColumn, sentence -> mc.train(sentence.iterator())
+                );
+            }
+        }
+    }
+
+    /**
+     * Reads UTF-8 lines from a FileChannel while keeping track of the byte
+     * position of the next line.
+     */
+    private static class LineReader {
+        private final FileChannel channel;
+        private final ByteBuffer buffer;
+        private long position;
+        private byte[] line;
+
+        LineReader(FileChannel channel, long position) throws IOException {
+            this.channel = channel;
+            this.buffer = ByteBuffer.allocate(64 * 1024);
+            this.buffer.limit(0);
+            this.position = position;
+            this.line = new byte[256];
+            channel.position(position);
+        }
+
+        long position() {
+            return position;
+        }
+
+        /**
+         * Returns the next line without its terminator, or null at the end of
+         * the file.
+         */
+        String readLine() throws IOException {
+            int length = 0;
+            boolean any = false;
+            while (true) {
+                if (!buffer.hasRemaining()) {
+                    buffer.clear();
+                    int read = channel.read(buffer);
+                    buffer.flip();
+                    if (read <= 0) {
+                        break;
+                    }
+                }
+                any = true;
+                byte b = buffer.get();
+                position++;
+                if (b == '\n') {
+                    break;
+                }
+                if (length == line.length) {
+                    line = Arrays.copyOf(line, length * 2);
+                }
+                line[length++] = b;
+            }
+            if (!any) {
+                return null;
+            }
+            if (length > 0 && line[length - 1] == '\r') {
+                length--;
+            }
+            return new String(line, 0, length, StandardCharsets.UTF_8);
+        }
+    }
+}
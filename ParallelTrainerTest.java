@@ -0,0 +1,109 @@
+package org.cis120;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Tests for ParallelTrainer and MarkovChain.merge */
+public class ParallelTrainerTest {
+
+    private static final String CSV = "0, The end should come here.\n"
+            + "1, This comes from data with no duplicate words!\r\n"
+            + "2, the dog is a good dog. the dog is happy\n"
+            + "\n"
+            + "3\n"
+            + "4, caf\u00e9 time? see http://t.co/abc. the end\n"
+            + "5, a very long line that will certainly span more than one of the "
+            + "tiny chunks used in this test so that it gets skipped and finished "
+            + "correctly\n"
+            + "6, last line without a newline";
+
+    private static MarkovChain sequential(String csv) {
+        MarkovChain mc = new MarkovChain();
+        TweetParser.csvDataToTrainingData(
+                new BufferedReader(new StringReader(csv)), 1,
+                sentence -> mc.train(sentence.iterator())
+        );
+        return mc;
+    }
+
+    private static void assertSameChain(MarkovChain expected, MarkovChain actual) {
+        assertEquals(expected.toString(), actual.toString());
+        assertEquals(expected.startWords.getRecords(), actual.startWords.getRecords());
+    }
+
+    @Test
+    public void testMerge() {
+        MarkovChain both = new MarkovChain();
+        both.train(Arrays.stream("CIS 120 rocks".split(" ")).iterator());
+        both.train(Arrays.stream("CIS 120 beats CIS 160".split(" ")).iterator());
+
+        MarkovChain first = new MarkovChain();
+        first.train(Arrays.stream("CIS 120 rocks".split(" ")).iterator());
+        MarkovChain second = new MarkovChain();
+        second.train(Arrays.stream("CIS 120 beats CIS 160".split(" ")).iterator());
+        first.merge(second);
+
+        assertSameChain(both, first);
+        assertEquals(3, first.get("CIS").getTotal());
+    }
+
+    @Test
+    public void testMergeNull() {
+        MarkovChain mc = new MarkovChain();
+        assertThrows(IllegalArgumentException.class, () -> {
+            mc.merge(null);
+        });
+    }
+
+    @Test
+    public void testParallelMatchesSequential() throws IOException {
+        Path file = Files.createTempFile("tweets", ".csv");
+        try {
+            Files.write(file, CSV.getBytes(StandardCharsets.UTF_8));
+            MarkovChain expected = sequential(CSV);
+            for (long chunk = 1; chunk <= CSV.length() + 1; chunk += 7) {
+                MarkovChain actual = ParallelTrainer.train(
+                        file, 1, 4, new RandomNumberGenerator(), chunk
+                );
+                assertSameChain(expected, actual);
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testEmptyFile() throws IOException {
+        Path file = Files.createTempFile("tweets", ".csv");
+        try {
+            MarkovChain mc = ParallelTrainer.train(file.toString(), 1, 2,
+                    new RandomNumberGenerator());
+            assertEquals(0, mc.chain.size());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testMissingFile() {
+        assertThrows(IllegalArgumentException.class, () -> {
+            ParallelTrainer.train("no/such/file.csv", 1, 2, new RandomNumberGenerator());
+        });
+    }
+
+    @Test
+    public void testBadParallelism() {
+        assertThrows(IllegalArgumentException.class, () -> {
+            ParallelTrainer.train("no/such/file.csv", 1, 0, new RandomNumberGenerator());
+        });
+    }
+}
@@ -0,0 +1,36 @@
+package org.cis120;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/** Chains and number generators shared by the tests */
+final class TestChains {
+
+    private TestChains() {
+    }
+
+    /**
+     * @return a MarkovChain trained on the sentences, each split at spaces
+     */
+    static MarkovChain chainOf(String... sentences) {
+        MarkovChain mc = new MarkovChain();
+        for (String s : sentences) {
+            mc.train(Arrays.asList(s.split(" ")).iterator());
+        }
+        return mc;
+    }
+
+    /**
+     * @return a CompactMarkovChain of chainOf(sentences)
+     */
+    static CompactMarkovChain compactOf(String... sentences) {
+        return new CompactMarkovChain(chainOf(sentences));
+    }
+
+    /**
+     * @return a NumberGenerator that repeats for the same seed
+     */
+    static NumberGenerator seeded(long seed) {
+        return new Random(seed)::nextInt;
+    }
+}
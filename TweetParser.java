@@ -1,7 +1,11 @@
 package org.cis120;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
 import java.io.BufferedReader;
 
 /**
@@ -13,6 +17,9 @@ import java.io.BufferedReader;
  * <p>
  * Note: TweetParser's public methods are csvDataToTrainingData() and
  * getPunctuation(). These are the only methods that other classes should call.
+ * The variant of csvDataToTrainingData() that takes a Consumer streams the
+ * sentences out one CSV line at a time instead of collecting them, so that
+ * large files can be used for training without holding them in memory.
  * <p>
  * All of the other methods provided are helper methods that build up the code
  * you'll need to write those public methods. They have "package" (default, no
@@ -54,6 +61,18 @@ public class TweetParser {
     private static final String URL_REGEX_END_SPACE = "\\bhttp\\S*\\.\\s";
     private static final String URL_REGEX_END_STRING = "\\bhttp\\S*\\.$";
 
+    /**
+     * BADWORD_REGEX compiled once, rather than by every call to
+     * String.matches().
+     */
+    private static final Pattern BADWORD_PATTERN = Pattern.compile(BADWORD_REGEX);
+
+    /**
+     * Matches "http" at the start of a word, as URL_REGEX does. Only used
+     * when the character before "http" is not ASCII.
+     */
+    private static final Pattern URL_START_PATTERN = Pattern.compile("\\bhttp");
+
     /**
      * Valid punctuation marks.
      */
@@ -94,7 +113,7 @@ public class TweetParser {
      *         from the tweet
      */
     static List<String> tweetSplit(String tweet) {
-        List<String> sentences = new LinkedList<String>();
+        List<String> sentences = new ArrayList<String>();
         for (String sentence : replacePunctuation(tweet).split("\\.")) {
             sentence = sentence.trim();
             if (!sentence.equals("")) {
@@ -110,11 +129,16 @@ public class TweetParser {
      * to extract from, return the contents of that column from the String.
      * Columns in the buffered reader are zero indexed.
      * <p>
-     * You may find the String.split() method useful here. Your solution should
-     * be relatively short.
+     * Quoted fields are handled as in RFC 4180: a field that starts with a
+     * double quote runs to the matching closing quote, may contain commas,
+     * and uses two double quotes for one literal double quote. The quotes
+     * themselves are not part of the returned contents. (Fields that span
+     * several lines are not supported, since the CSV data is read one line
+     * at a time; an unclosed quote runs to the end of the line.) Unquoted
+     * fields are returned exactly as they appear, including any spaces.
      * <p>
-     * You may assume that the column contents themselves don't have any
-     * commas.
+     * The line is scanned only up to the end of the requested column, and
+     * no String is created for any other column.
      *
      * @param csvLine   - a line extracted from a buffered reader
      * @param csvColumn - the column of the CSV line whose contents ought to be
@@ -123,11 +147,89 @@ public class TweetParser {
      *         If the csvLine is null or has no appropriate csvColumn, return null
      */
     static String extractColumn(String csvLine, int csvColumn) {
-        String[] sentences = csvLine.split(",", -1);
-        if (csvLine == null || csvColumn < 0 || csvColumn >= sentences.length) {
+        if (csvLine == null || csvColumn < 0) {
             return null;
         }
-        return sentences[csvColumn];
+        int start = 0;
+        for (int column = 0; column < csvColumn; column++) {
+            start = nextField(csvLine, start);
+            if (start < 0) {
+                return null;
+            }
+        }
+        return readField(csvLine, start);
+    }
+
+    /**
+     * Returns the position just after the comma that ends the field starting
+     * at start, or -1 if that field is the last one on the line.
+     */
+    private static int nextField(String csvLine, int start) {
+        int from = start;
+        if (start < csvLine.length() && csvLine.charAt(start) == '"') {
+            from = closingQuote(csvLine, start);
+            if (from < 0) {
+                return -1;
+            }
+        }
+        int comma = csvLine.indexOf(',', from);
+        return comma < 0 ? -1 : comma + 1;
+    }
+
+    /**
+     * Returns the position of the quote that closes the quoted field opening
+     * at start, or -1 if the quote is never closed.
+     */
+    private static int closingQuote(String csvLine, int start) {
+        int i = start + 1;
+        while (true) {
+            int quote = csvLine.indexOf('"', i);
+            if (quote < 0) {
+                return -1;
+            }
+            if (quote + 1 < csvLine.length() && csvLine.charAt(quote + 1) == '"') {
+                i = quote + 2;
+            } else {
+                return quote;
+            }
+        }
+    }
+
+    /**
+     * Returns the contents of the field starting at start.
+     */
+    private static String readField(String csvLine, int start) {
+        int length = csvLine.length();
+        if (start >= length || csvLine.charAt(start) != '"') {
+            int comma = csvLine.indexOf(',', start);
+            return csvLine.substring(start, comma < 0 ? length : comma);
+        }
+
+        int close = closingQuote(csvLine, start);
+        int contentEnd = close < 0 ? length : close;
+        String contents;
+        int quote = csvLine.indexOf('"', start + 1);
+        if (quote < 0 || quote >= contentEnd) {
+            contents = csvLine.substring(start + 1, contentEnd);
+        } else {
+            // unescape each pair of quotes
+            StringBuilder field = new StringBuilder(contentEnd - start);
+            int from = start + 1;
+            while (quote >= 0 && quote < contentEnd) {
+                field.append(csvLine, from, quote + 1);
+                from = quote + 2;
+                quote = csvLine.indexOf('"', from);
+            }
+            field.append(csvLine, from, contentEnd);
+            contents = field.toString();
+        }
+        if (close < 0) {
+            return contents;
+        }
+        // anything between the closing quote and the next comma is kept
+        int comma = csvLine.indexOf(',', close + 1);
+        int end = comma < 0 ? length : comma;
+        return end == close + 1 ? contents : contents + csvLine.substring(close + 1, end);
     }
 
     /**
@@ -144,15 +246,12 @@ public class TweetParser {
      *         yet cleaned)
      */
     static List<String> csvDataToTweets(BufferedReader br, int tweetColumn) {
-        List<String> l = new LinkedList<String>();
+        List<String> l = new ArrayList<String>();
         FileLineIterator f = new FileLineIterator(br);
         while (f.hasNext()) {
-            String line = f.next();
-            int size = (line.split(",", -1)).length;
-            if (size > tweetColumn && tweetColumn >= 0) {
-                if (extractColumn(line, tweetColumn) != null) {
-                    l.add(extractColumn(line, tweetColumn));
-                }
+            String tweet = extractColumn(f.next(), tweetColumn);
+            if (tweet != null) {
+                l.add(tweet);
             }
         }
         return l;
@@ -171,7 +270,7 @@ public class TweetParser {
      */
     static String cleanWord(String word) {
         String cleaned = word.trim().toLowerCase();
-        if (cleaned.matches(BADWORD_REGEX) || cleaned.isEmpty()) {
+        if (BADWORD_PATTERN.matcher(cleaned).matches() || cleaned.isEmpty()) {
             return null;
         }
         return cleaned;
@@ -181,9 +280,13 @@ public class TweetParser {
      * Splits a String representing a sentence into a sequence of words,
      * filtering out any "bad" words from the sentence.
      * <p>
-     * Hint: use the String split method and the cleanWord helper defined above.
-     * You should be splitting on one space of whitespace since words are
-     * delimited by spaces.
+     * The result is the same as splitting the sentence on single spaces and
+     * calling cleanWord() on each piece, but the sentence is scanned only
+     * once: each word is trimmed and checked for illegal characters in place,
+     * and a String is only created for words that are kept. Words containing
+     * characters the scan cannot judge by itself (non-ASCII characters, line
+     * breaks, or any upper case letter when the default locale lower-cases
+     * letters differently, as Turkish does) are handed to cleanWord().
      *
      * @param sentence - a (non-null) String representing one sentence with no
      *                 end punctuation from a tweet
@@ -191,14 +294,101 @@ public class TweetParser {
      *         sentence. Any "bad" words are just dropped.
      */
     static List<String> parseAndCleanSentence(String sentence) {
-        List<String> words = new LinkedList<String>();
-        String[] wordsUncleaned = sentence.split(" ", -1);
-        for (int i = 0; i < wordsUncleaned.length; i++) {
-            if (cleanWord(wordsUncleaned[i]) != null) {
-                words.add(cleanWord(wordsUncleaned[i]));
+        List<String> words = new ArrayList<String>();
+        cleanWords(sentence, asciiLowerCaseLocale(), words);
+        return words;
+    }
+
+    /**
+     * Adds the clean words of sentence to words, as parseAndCleanSentence()
+     * does.
+     */
+    private static void cleanWords(
+            CharSequence sentence, boolean asciiLowerCase, List<String> words
+    ) {
+        int length = sentence.length();
+        int start = 0;
+        int rejected = 0;
+        while (start <= length) {
+            int end = start;
+            while (end < length && sentence.charAt(end) != ' ') {
+                end++;
+            }
+            String word = cleanWord(sentence, start, end, asciiLowerCase);
+            if (word != null) {
+                words.add(word);
+            } else if (end > start) {
+                rejected++;
             }
+            start = end + 1;
+        }
+        if (rejected > 0) {
+            Instrumentation.metrics().increment(Instrumentation.WORDS_REJECTED, rejected);
         }
-        return words;
+    }
+
+    /**
+     * @return true if String.toLowerCase() maps the ASCII letters 'A' to 'Z'
+     *         to 'a' to 'z' in the default locale
+     */
+    private static boolean asciiLowerCaseLocale() {
+        String language = Locale.getDefault().getLanguage();
+        return !language.equals("tr") && !language.equals("az");
+    }
+
+    /**
+     * Cleans sentence[start, end) the same way cleanWord() would clean
+     * sentence.substring(start, end), without creating the substring unless
+     * the word is kept.
+     */
+    private static String cleanWord(
+            CharSequence sentence, int start, int end, boolean asciiLowerCase
+    ) {
+        // trim() removes every character up to and including ' '
+        while (start < end && sentence.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && sentence.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        if (start == end) {
+            return null;
+        }
+
+        boolean upper = false;
+        boolean bad = false;
+        for (int i = start; i < end; i++) {
+            char c = sentence.charAt(i);
+            if (c >= 'a' && c <= 'z' || c >= '0' && c <= '9' || c == '_' || c == '\'') {
+                continue;
+            }
+            if (c >= 'A' && c <= 'Z') {
+                upper = true;
+                continue;
+            }
+            if (c >= 0x80 || c == '\n' || c == '\r') {
+                // line breaks change what BADWORD_REGEX matches, since '.'
+                // does not match them
+                return cleanWord(sentence.subSequence(start, end).toString());
+            }
+            bad = true;
+        }
+
+        if (bad) {
+            return null;
+        }
+        if (!upper) {
+            return sentence.subSequence(start, end).toString();
+        }
+        if (!asciiLowerCase) {
+            return cleanWord(sentence.subSequence(start, end).toString());
+        }
+        char[] lower = new char[end - start];
+        for (int i = start; i < end; i++) {
+            char c = sentence.charAt(i);
+            lower[i - start] = (c >= 'A' && c <= 'Z') ? (char) (c + ('a' - 'A')) : c;
+        }
+        return new String(lower);
     }
 
     /**
@@ -219,10 +409,17 @@ public class TweetParser {
 
     /**
      * Processes a tweet in to a list of sentences, where each sentence is
-     * itself a (non-empty) list of cleaned words. Before breaking up the tweet
-     * into sentences, this method uses removeURLs to sanitize the tweet.
+     * itself a (non-empty) list of cleaned words. The result is the same as
+     * using removeURLs followed by tweetSplit and parseAndCleanSentence, but
+     * the tweet is scanned only once: URLs, sentence-ending punctuation and
+     * the text of each sentence are all recognized in the same pass, and the
+     * words of a sentence are cleaned as soon as the sentence ends.
      * <p>
-     * Hint: use removeURLs followed by tweetSplit and parseAndCleanSentence
+     * A URL is "http" at the start of a word up to the next whitespace. As in
+     * removeURLs, a URL that ends in a period keeps that period, so it still
+     * ends its sentence. Tweets containing line breaks are parsed with the
+     * separate methods, since '$' and '.' in the URL regular expressions
+     * treat line breaks specially.
      *
      * @param tweet - a String that will be split into sentences, each of which
      *              is cleaned as described above (assumed to be non-null)
@@ -230,16 +427,147 @@ public class TweetParser {
      *         sequence of clean words drawn from the tweet.
      */
     static List<List<String>> parseAndCleanTweet(String tweet) {
-        List<List<String>> sentencesFinal = new LinkedList<List<String>>();
-        String tweetNoUrl = removeURLs(tweet);
-        List<String> sentences = tweetSplit(tweetNoUrl);
-        for (int i = 0; i < sentences.size(); i++) {
-            List<String> words = parseAndCleanSentence(sentences.get(i));
-            sentencesFinal.add(words);
+        int length = tweet.length();
+        for (int i = 0; i < length; i++) {
+            if (isLineBreak(tweet.charAt(i))) {
+                return parseAndCleanTweetInSteps(tweet);
+            }
+        }
+
+        List<List<String>> sentences = new ArrayList<List<String>>();
+        boolean asciiLowerCase = asciiLowerCaseLocale();
+        StringBuilder sentence = new StringBuilder();
+        int i = 0;
+        while (i < length) {
+            char c = tweet.charAt(i);
+            if (c == 'h' && tweet.startsWith("http", i) && startsWord(tweet, i)) {
+                int end = i + 4;
+                while (end < length && !isWhitespace(tweet.charAt(end))) {
+                    end++;
+                }
+                if (end > i + 4 && tweet.charAt(end - 1) == '.') {
+                    endSentence(sentence, asciiLowerCase, sentences);
+                }
+                i = end;
+            } else if (isPunctuation(c)) {
+                endSentence(sentence, asciiLowerCase, sentences);
+                i++;
+            } else {
+                sentence.append(c);
+                i++;
+            }
+        }
+        endSentence(sentence, asciiLowerCase, sentences);
+        return sentences;
+    }
+
+    /**
+     * Parses a tweet with removeURLs, tweetSplit and parseAndCleanSentence.
+     */
+    static List<List<String>> parseAndCleanTweetInSteps(String tweet) {
+        List<List<String>> sentencesFinal = new ArrayList<List<String>>();
+        for (String sentence : tweetSplit(removeURLs(tweet))) {
+            sentencesFinal.add(parseAndCleanSentence(sentence));
         }
         return sentencesFinal;
     }
 
+    /**
+     * Adds the words of sentence to sentences if it has any non-whitespace
+     * characters (tweetSplit skips sentences that trim to ""), then clears
+     * sentence.
+     */
+    private static void endSentence(
+            StringBuilder sentence, boolean asciiLowerCase,
+            List<List<String>> sentences
+    ) {
+        for (int i = 0; i < sentence.length(); i++) {
+            if (sentence.charAt(i) > ' ') {
+                List<String> words = new ArrayList<String>();
+                cleanWords(sentence, asciiLowerCase, words);
+                sentences.add(words);
+                break;
+            }
+        }
+        sentence.setLength(0);
+    }
+
+    /**
+     * @return true if "http" at position i of s is at the start of a word,
+     *         in the sense of the regular expression \b
+     */
+    private static boolean startsWord(String s, int i) {
+        if (i == 0) {
+            return true;
+        }
+        char before = s.charAt(i - 1);
+        if (before < 0x80) {
+            return !(before >= 'a' && before <= 'z' || before >= 'A' && before <= 'Z'
+                    || before >= '0' && before <= '9' || before == '_');
+        }
+        return URL_START_PATTERN.matcher(s).region(i, s.length())
+                .useTransparentBounds(true).lookingAt();
+    }
+
+    /**
+     * @return true if c is whitespace in the sense of the regular expression
+     *         \s (line breaks are handled separately)
+     */
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\u000B' || c == '\f';
+    }
+
+    /**
+     * @return true if c is a line terminator for regular expressions
+     */
+    private static boolean isLineBreak(char c) {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+
+    /**
+     * @return true if c is one of PUNCS
+     */
+    private static boolean isPunctuation(char c) {
+        for (char p : PUNCS) {
+            if (c == p) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Extracts the tweet in tweetColumn from one CSV line, cleans it, and
+     * passes each of its sentences to sink in order. Lines for which
+     * tweetColumn is out of bounds produce no sentences.
+     *
+     * @param csvLine     - a line extracted from a buffered reader
+     * @param tweetColumn - the column of the CSV line that contains the tweet
+     * @param sink        - receives each sentence of the tweet
+     */
+    static void csvLineToTrainingData(
+            String csvLine,
+            int tweetColumn,
+            Consumer<List<String>> sink
+    ) {
+        String tweet = extractColumn(csvLine, tweetColumn);
+        if (tweet == null) {
+            return;
+        }
+        Metrics metrics = Instrumentation.metrics();
+        List<List<String>> sentences;
+        if (metrics.enabled()) {
+            long start = System.nanoTime();
+            sentences = parseAndCleanTweet(tweet);
+            metrics.recordNanos(Instrumentation.PARSE_TIME, System.nanoTime() - start);
+        } else {
+            sentences = parseAndCleanTweet(tweet);
+        }
+        for (List<String> sentence : sentences) {
+            sink.accept(sentence);
+        }
+    }
+
     /**
      * Given a buffered reader and the column from which to extract the tweet
      * data, computes a training set. The training set is a list of sentences,
@@ -257,15 +585,48 @@ public class TweetParser {
             BufferedReader br,
             int tweetColumn
     ) {
-        List<List<String>> sentencesFinal = new LinkedList<List<String>>();
-        List<String> toBeCleaned = csvDataToTweets(br, tweetColumn);
-        for (int i = 0; i < toBeCleaned.size(); i++) {
-            sentencesFinal.addAll(parseAndCleanTweet(toBeCleaned.get(i)));
-        }
-
+        List<List<String>> sentencesFinal = new ArrayList<List<String>>();
+        csvDataToTrainingData(br, tweetColumn, sentencesFinal::add);
+        return sentencesFinal;
+    }
 
+    /**
+     * Streams the same training data as csvDataToTrainingData(br,
+     * tweetColumn) into sink instead of returning it. Each line is read,
+     * cleaned and handed to sink one sentence at a time before the next line
+     * is read, so only one tweet is held in memory at once, no matter how
+     * large the reader's data is.
+     *
+     * @param br          - a BufferedReader that contains the tweets
+     * @param tweetColumn - the number of the column in the buffered reader that
+     *                    contains the tweet
+     * @param sink        - receives each training data example in order
+     */
+    public static void csvDataToTrainingData(
+            BufferedReader br,
+            int tweetColumn,
+            Consumer<List<String>> sink
+    ) {
+        csvDataToTrainingData(new FileLineIterator(br), tweetColumn, sink);
+    }
 
-        return sentencesFinal;
+    /**
+     * Streams training data into sink as above, reading the CSV lines from
+     * any line iterator, such as a MappedLineIterator over a large file.
+     *
+     * @param lines       - an Iterator over the lines of the CSV data
+     * @param tweetColumn - the number of the column in the CSV data that
+     *                    contains the tweet
+     * @param sink        - receives each training data example in order
+     */
+    public static void csvDataToTrainingData(
+            Iterator<String> lines,
+            int tweetColumn,
+            Consumer<List<String>> sink
+    ) {
+        while (lines.hasNext()) {
+            csvLineToTrainingData(lines.next(), tweetColumn, sink);
+        }
     }
 
 }
@@ -5,7 +5,9 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
 
 import java.io.BufferedReader;
+import java.io.IOException;
 import java.io.StringReader;
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -303,6 +305,171 @@ public class TweetParserTest {
         );
     }
 
+    @Test
+    public void testCsvDataToTrainingDataConsumerMatchesList() {
+        String csv = "0, The end should come here.\n"
+                + "1, This comes from data with no duplicate words! @bad ok\n"
+                + "2\n"
+                + "3, see http://t.co/x. Done";
+        List<List<String>> expected = TweetParser.csvDataToTrainingData(
+                new BufferedReader(new StringReader(csv)), 1
+        );
+        List<List<String>> streamed = new LinkedList<List<String>>();
+        TweetParser.csvDataToTrainingData(
+                new BufferedReader(new StringReader(csv)), 1, streamed::add
+        );
+        assertEquals(expected, streamed);
+    }
 
-}
+    @Test
+    public void testCsvDataToTrainingDataStreamsOneLineAtATime() {
+        int[] linesRead = { 0 };
+        BufferedReader br = new BufferedReader(
+                new StringReader("0, One. Two!\n1, Three\n2, Four")
+        ) {
+            @Override
+            public String readLine() throws IOException {
+                linesRead[0]++;
+                return super.readLine();
+            }
+        };
+        List<List<String>> sentences = new LinkedList<List<String>>();
+        List<Integer> readWhenSeen = new LinkedList<Integer>();
+        TweetParser.csvDataToTrainingData(br, 1, sentence -> {
+            sentences.add(sentence);
+            readWhenSeen.add(linesRead[0]);
+        });
+
+        List<List<String>> expected = new LinkedList<List<String>>();
+        expected.add(singleton("one"));
+        expected.add(singleton("two"));
+        expected.add(singleton("three"));
+        expected.add(singleton("four"));
+        assertEquals(expected, sentences);
+        // the iterator reads one line ahead, but never more than that
+        assertEquals(Arrays.asList(2, 2, 3, 4), readWhenSeen);
+    }
+
+    // splits on single spaces and cleans each piece with cleanWord
+    private static List<String> cleanEachWord(String sentence) {
+        List<String> words = new LinkedList<String>();
+        for (String word : sentence.split(" ", -1)) {
+            String cleaned = TweetParser.cleanWord(word);
+            if (cleaned != null) {
+                words.add(cleaned);
+            }
+        }
+        return words;
+    }
+
+    @Test
+    public void parseAndCleanSentenceMatchesCleanWord() {
+        String[] sentences = {
+            "The Quick  brown_fox CAN'T  stop",
+            "  leading and trailing  ",
+            "tabs\tinside \tand\t around\t",
+            "@user #tag e-mail x.y ok",
+            "caf\u00e9 na\u00efve plain",
+            "\u212aelvin sign lower-cases to ascii",
+            "a\n\nb two line breaks hide a bad word",
+            "#b\u2028\u2028c",
+            "",
+            " ",
+            "'''",
+        };
+        for (String sentence : sentences) {
+            assertEquals(cleanEachWord(sentence), TweetParser.parseAndCleanSentence(sentence));
+        }
+    }
+
+    @Test
+    public void parseAndCleanTweetMatchesSteps() {
+        String[] tweets = {
+            "Check http://t.co/abc. It is great!",
+            "trailing url http://t.co/abc.",
+            "trailing url http://t.co/abc",
+            "see http://a.b.c\tnext? and http://x.y.\tafter",
+            "no boundary xhttp://t.co stays, but x-http://t.co goes",
+            "http. http: https://t.co/x?y=1;z",
+            "@user what?! ;; ..  ok",
+            "caf\u00e9http://t.co/x caf\u00e9 http://t.co/y",
+            "line\nbreak http://t.co/x.\n",
+            "",
+            "   ",
+        };
+        for (String tweet : tweets) {
+            assertEquals(
+                    TweetParser.parseAndCleanTweetInSteps(tweet),
+                    TweetParser.parseAndCleanTweet(tweet)
+            );
+        }
+    }
+
+    @Test
+    public void testExtractColumnQuotedWithCommas() {
+        String line = "1,\"hello, world\",\"a, b, and c\",last";
+        assertEquals("hello, world", TweetParser.extractColumn(line, 1));
+        assertEquals("a, b, and c", TweetParser.extractColumn(line, 2));
+        assertEquals("last", TweetParser.extractColumn(line, 3));
+        assertNull(TweetParser.extractColumn(line, 4));
+    }
+
+    @Test
+    public void testExtractColumnEscapedQuotes() {
+        String line = "1,\"she said \"\"hi, there\"\"\",\"\"\"\",2";
+        assertEquals("she said \"hi, there\"", TweetParser.extractColumn(line, 1));
+        assertEquals("\"", TweetParser.extractColumn(line, 2));
+        assertEquals("2", TweetParser.extractColumn(line, 3));
+    }
+
+    @Test
+    public void testExtractColumnEmptyFields() {
+        String line = "\"\",,";
+        assertEquals("", TweetParser.extractColumn(line, 0));
+        assertEquals("", TweetParser.extractColumn(line, 1));
+        assertEquals("", TweetParser.extractColumn(line, 2));
+        assertNull(TweetParser.extractColumn(line, 3));
+    }
+
+    @Test
+    public void testExtractColumnUnclosedQuote() {
+        String line = "1,\"never closed, at all";
+        assertEquals("never closed, at all", TweetParser.extractColumn(line, 1));
+        assertNull(TweetParser.extractColumn(line, 2));
+    }
+
+    @Test
+    public void testExtractColumnTextAfterClosingQuote() {
+        String line = "1,\"quoted\" rest,2";
+        assertEquals("quoted rest", TweetParser.extractColumn(line, 1));
+        assertEquals("2", TweetParser.extractColumn(line, 2));
+    }
+
+    @Test
+    public void testExtractColumnQuoteInsideUnquotedField() {
+        String line = "1, say \"hi\", 2";
+        assertEquals(" say \"hi\"", TweetParser.extractColumn(line, 1));
+        assertEquals(" 2", TweetParser.extractColumn(line, 2));
+    }
 
+    @Test
+    public void testExtractColumnNullLine() {
+        assertNull(TweetParser.extractColumn(null, 0));
+    }
+
+    @Test
+    public void testCsvDataToTweetsQuotedCSV() {
+        StringReader sr = new StringReader(
+                "0,\"Hello, world!\"\n" +
+                        "1,\"He said \"\"hi\"\"\"\n" +
+                        "2"
+        );
+        BufferedReader br = new BufferedReader(sr);
+        List<String> tweets = TweetParser.csvDataToTweets(br, 1);
+        List<String> expected = new LinkedList<String>();
+        expected.add("Hello, world!");
+        expected.add("He said \"hi\"");
+        assertEquals(expected, tweets);
+    }
+
+}
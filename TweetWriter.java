@@ -0,0 +1,167 @@
+package org.cis120;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A TweetWriter writes tweets to a file as UTF-8 text, one tweet per line
+ * ("\n" after each tweet), optionally gzip-compressed.
+ * <p>
+ * Tweets are buffered and written in large blocks, so millions of them can be
+ * streamed to disk as they are generated without keeping them in memory.
+ * Everything written is on disk once close() returns, so a TweetWriter should
+ * be used in a try-with-resources statement. A TweetWriter is also a
+ * Consumer, so it can be used directly as the sink of a BatchGenerator.
+ * <p>
+ * Appending to a gzip file adds another gzip member to it; GZIPInputStream
+ * (and gunzip) read such files as one stream.
+ * <p>
+ * IOExceptions are rethrown as IllegalArgumentExceptions, like everywhere
+ * else in this project.
+ */
+public class TweetWriter implements Closeable, Consumer<String> {
+
+    /**
+     * The buffer size used when none is given, in bytes.
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private final String filePath;
+    private final Writer out;
+    private boolean closed;
+
+    /**
+     * Opens a file for writing uncompressed tweets.
+     *
+     * @param filePath - the path to the file to write
+     * @param append   - whether to add to the end of the file rather than
+     *                 overwrite it
+     * @throws IllegalArgumentException if filePath is null or the file
+     *                                  cannot be opened
+     */
+    public TweetWriter(String filePath, boolean append) {
+        this(filePath, append, false, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Opens a file for writing tweets.
+     *
+     * @param filePath   - the path to the file to write
+     * @param append     - whether to add to the end of the file rather than
+     *                   overwrite it
+     * @param gzip       - whether to compress the output with gzip
+     * @param bufferSize - the size of the write buffers, in bytes
+     * @throws IllegalArgumentException if filePath is null, bufferSize is not
+     *                                  positive, or the file cannot be opened
+     */
+    public TweetWriter(String filePath, boolean append, boolean gzip, int bufferSize) {
+        if (filePath == null) {
+            throw new IllegalArgumentException("filePath cannot be null");
+        }
+        if (bufferSize < 1) {
+            throw new IllegalArgumentException("bufferSize must be positive");
+        }
+        this.filePath = filePath;
+        Path file = Paths.get(filePath);
+        OutputStream stream = null;
+        try {
+            stream = new BufferedOutputStream(
+                    Files.newOutputStream(
+                            file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                            append ? StandardOpenOption.APPEND
+                                    : StandardOpenOption.TRUNCATE_EXISTING
+                    ),
+                    bufferSize
+            );
+            if (gzip) {
+                stream = new GZIPOutputStream(stream, bufferSize);
+            }
+            this.out = new BufferedWriter(
+                    new OutputStreamWriter(stream, StandardCharsets.UTF_8), bufferSize
+            );
+        } catch (IOException e) {
+            if (stream != null) {
+                try {
+                    stream.close();
+                } catch (IOException suppressed) {
+                    e.addSuppressed(suppressed);
+                }
+            }
+            throw new IllegalArgumentException("cannot open " + filePath, e);
+        }
+    }
+
+    /**
+     * Writes a tweet followed by a newline.
+     *
+     * @param tweet - the (non-null) tweet to write
+     * @throws IllegalArgumentException if tweet is null or writing fails,
+     *                                  for example because the writer was
+     *                                  closed
+     */
+    public void write(CharSequence tweet) {
+        if (tweet == null) {
+            throw new IllegalArgumentException("tweet cannot be null");
+        }
+        try {
+            out.append(tweet).write('\n');
+        } catch (IOException e) {
+            throw new IllegalArgumentException("cannot write " + filePath, e);
+        }
+    }
+
+    /**
+     * Writes a tweet followed by a newline, as write() does.
+     *
+     * @param tweet - the (non-null) tweet to write
+     */
+    @Override
+    public void accept(String tweet) {
+        write(tweet);
+    }
+
+    /**
+     * Writes out everything buffered so far (compressed data may still be
+     * held back until close()).
+     *
+     * @throws IllegalArgumentException if writing fails
+     */
+    public void flush() {
+        try {
+            out.flush();
+        } catch (IOException e) {
+            throw new IllegalArgumentException("cannot write " + filePath, e);
+        }
+    }
+
+    /**
+     * Writes out everything buffered and closes the file. Closing a closed
+     * TweetWriter does nothing.
+     *
+     * @throws IllegalArgumentException if writing fails
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            out.close();
+        } catch (IOException e) {
+            throw new IllegalArgumentException("cannot write " + filePath, e);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package org.cis120;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Tests for TweetWriter */
+public class TweetWriterTest {
+
+    private static List<String> readGzip(Path file) throws IOException {
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader br = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(file)), StandardCharsets.UTF_8
+        ))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                lines.add(line);
+            }
+        }
+        return lines;
+    }
+
+    @Test
+    public void testOneTweetPerLine() throws IOException {
+        Path file = Files.createTempFile("tweets", ".txt");
+        try {
+            try (TweetWriter out = new TweetWriter(file.toString(), false)) {
+                out.write("the dog is good.");
+                out.write("caf\u00e9 time!");
+            }
+            assertEquals(
+                    "the dog is good.\ncaf\u00e9 time!\n",
+                    new String(Files.readAllBytes(file), StandardCharsets.UTF_8)
+            );
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testAppendAndOverwrite() throws IOException {
+        Path file = Files.createTempFile("tweets", ".txt");
+        try {
+            try (TweetWriter out = new TweetWriter(file.toString(), false)) {
+                out.write("one.");
+            }
+            try (TweetWriter out = new TweetWriter(file.toString(), true)) {
+                out.write("two.");
+            }
+            assertEquals(Arrays.asList("one.", "two."), Files.readAllLines(file));
+            try (TweetWriter out = new TweetWriter(file.toString(), false)) {
+                out.write("three.");
+            }
+            assertEquals(Arrays.asList("three."), Files.readAllLines(file));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testGzipWithSmallBuffer() throws IOException {
+        Path file = Files.createTempFile("tweets", ".txt.gz");
+        try {
+            List<String> expected = new ArrayList<>();
+            try (TweetWriter out = new TweetWriter(file.toString(), false, true, 16)) {
+                for (int i = 0; i < 1000; i++) {
+                    String tweet = "tweet number " + i + "!";
+                    out.accept(tweet);
+                    expected.add(tweet);
+                }
+            }
+            try (TweetWriter out = new TweetWriter(file.toString(), true, true, 16)) {
+                out.write("appended.");
+                expected.add("appended.");
+            }
+            assertEquals(expected, readGzip(file));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testWriteAfterClose() throws IOException {
+        Path file = Files.createTempFile("tweets", ".txt");
+        try {
+            TweetWriter out = new TweetWriter(file.toString(), false);
+            out.write("done.");
+            out.close();
+            out.close();
+            assertThrows(IllegalArgumentException.class, () -> {
+                out.write("too late.");
+            });
+            assertEquals(Arrays.asList("done."), Files.readAllLines(file));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testBadArguments() throws IOException {
+        assertThrows(IllegalArgumentException.class, () -> {
+            new TweetWriter(null, false);
+        });
+        assertThrows(IllegalArgumentException.class, () -> {
+            new TweetWriter("unused.txt", false, false, 0);
+        });
+        Path dir = Files.createTempDirectory("tweets");
+        try {
+            assertThrows(IllegalArgumentException.class, () -> {
+                new TweetWriter(dir.resolve("missing/tweets.txt").toString(), false);
+            });
+        } finally {
+            Files.delete(dir);
+        }
+    }
+}
@@ -1,9 +1,7 @@
 package org.cis120;
 
 import java.io.*;
-import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.LinkedList;
 import java.util.List;
 
 /**
@@ -30,6 +28,9 @@ public class TwitterBot {
     static final String PATH_TO_TWEETS = "files/dog_feelings_tweets.csv";
     static final int TWEET_COLUMN = 2;
     static final String PATH_TO_OUTPUT_TWEETS = "files/generated_tweets.txt";
+    // the most characters a tweet buffer is created with; buffers for longer
+    // tweets grow as needed
+    private static final int MAX_INITIAL_CAPACITY = 512;
 
     // The MarkovChain you'll be using to generate tweets
     MarkovChain mc;
@@ -37,10 +38,19 @@ public class TwitterBot {
     private int tweetC;
     BufferedReader f;
 
+    // a read-only copy of mc, rebuilt on first use after mc.version() changes
+    private volatile CompactMarkovChain model;
+    // the reverse index of model, built on first constrained generation
+    private volatile ConstrainedGenerator constrained;
+    // the termination statistics of model, built on first targeted
+    // generation
+    private volatile LengthAwareSampler lengthSampler;
+
     /**
      * Given a column and a buffered reader, initializes the TwitterBot by
      * training the MarkovChain with sentences sourced from the reader. Uses
-     * the RandomNumberGenerator().
+     * the RandomNumberGenerator(), and since the output does not need to be
+     * reproducible, samples through the MarkovChain's AliasTables.
      *
      * @param br          - a buffered reader containing tweet data
      * @param tweetColumn - the column in the reader where the text of the tweet
@@ -48,6 +58,7 @@ public class TwitterBot {
      */
     public TwitterBot(BufferedReader br, int tweetColumn) {
         this(br, tweetColumn, new RandomNumberGenerator());
+        mc.setAliasSampling(true);
     }
 
     /**
@@ -66,23 +77,84 @@ public class TwitterBot {
         this.ng = ng;
         tweetC = tweetColumn;
         f = br;
-        List<List<String>> words = TweetParser.csvDataToTrainingData(f, tweetC);
-        for (int i = 0; i < words.size(); i++) {
-            this.mc.train((words.get(i)).iterator());
+        TweetParser.csvDataToTrainingData(
+                f, tweetC, sentence -> this.mc.train(sentence.iterator())
+        );
+        Metrics metrics = Instrumentation.metrics();
+        if (metrics.enabled()) {
+            mc.recordVocabulary(metrics);
+            mc.recordFanout(metrics);
+        }
+    }
+
+    /**
+     * Initializes the TwitterBot with a MarkovChain that has already been
+     * trained, for example by ParallelTrainer.
+     *
+     * @param mc - a (non-null) trained MarkovChain
+     * @param ng - A NumberGenerator for the ng field
+     * @throws IllegalArgumentException if mc or ng is null
+     */
+    public TwitterBot(MarkovChain mc, NumberGenerator ng) {
+        if (mc == null || ng == null) {
+            throw new IllegalArgumentException(
+                    "MarkovChain and NumberGenerator cannot be null"
+            );
         }
+        this.mc = mc;
+        this.ng = ng;
+    }
+
+    /**
+     * Adds tweets to the training data of a bot that may be generating tweets
+     * at the same time. The tweets are cleaned and split into sentences as
+     * in TweetParser, and all of their sentences are added to the chain in
+     * one MarkovChain.update(), so calls to generateTweetChars(numChars, ng)
+     * on other threads keep running while they are added. The next call to
+     * getModel() builds a new copy that includes them.
+     *
+     * @param tweets - the (non-null) text of the tweets to add
+     * @throws IllegalArgumentException if tweets or any tweet is null
+     */
+    public void addTweets(Iterable<String> tweets) {
+        if (tweets == null) {
+            throw new IllegalArgumentException("tweets cannot be null");
+        }
+        List<List<String>> sentences = new ArrayList<List<String>>();
+        for (String tweet : tweets) {
+            if (tweet == null) {
+                throw new IllegalArgumentException("tweets cannot be null");
+            }
+            sentences.addAll(TweetParser.parseAndCleanTweet(tweet));
+        }
+        mc.update(sentences);
+    }
+
+    /**
+     * Adds the tweets in CSV data to the training data of a bot that may be
+     * generating tweets at the same time, as addTweets() does.
+     *
+     * @param br          - a (non-null) buffered reader containing tweet data
+     * @param tweetColumn - the column in the reader where the text of the
+     *                    tweet itself is stored
+     * @throws IllegalArgumentException if br is null
+     */
+    public void addCsvData(BufferedReader br, int tweetColumn) {
+        List<List<String>> sentences = new ArrayList<List<String>>();
+        TweetParser.csvDataToTrainingData(br, tweetColumn, sentences::add);
+        mc.update(sentences);
     }
 
     /**
      * Given a List of Strings, prints those Strings to a file (one String per
-     * line in the file). This method uses BufferedWriter, the flip side to
-     * BufferedReader. Ensure that each tweet you generate is written on its own
-     * line in the file produced.
+     * line in the file). The file is written as UTF-8 through a TweetWriter,
+     * which is always closed, so everything is on disk when this method
+     * returns.
      * <p>
      * You may assume none of the arguments or strings passed in will be null.
      * <p>
-     * If the process of writing the data triggers an IOException, you should
-     * catch it and stop writing. (You can also print an error message to the
-     * terminal, but we will not test that behavior.)
+     * If the process of writing the data triggers an IOException, writing
+     * stops and an IllegalArgumentException is thrown.
      *
      * @param stringsToWrite - A List of Strings to write to the file
      * @param filePath       - the string containing the path to the file where
@@ -90,22 +162,17 @@ public class TwitterBot {
      * @param append         - a boolean indicating whether the new tweets
      *                       should be appended to the current file or should
      *                       overwrite its previous contents
+     * @throws IllegalArgumentException if the file cannot be written
      */
     public void writeStringsToFile(
             List<String> stringsToWrite, String filePath,
             boolean append
     ) {
-        try {
-            File file = Paths.get(filePath).toFile();
-            BufferedWriter bw = new BufferedWriter(new FileWriter(file, append));
-            for (int i = 0; i < stringsToWrite.size(); i++) {
-                bw.write(stringsToWrite.get(i));
+        try (TweetWriter out = new TweetWriter(filePath, append)) {
+            for (String s : stringsToWrite) {
+                out.write(s);
             }
-        } catch (IOException e) {
-            throw new IllegalArgumentException();
         }
-
-
     }
 
     /**
@@ -117,12 +184,53 @@ public class TwitterBot {
      * @param append    - a boolean indicating whether the new tweets should be
      *                  appended to the current file or should overwrite its
      *                  previous contents
+     * @throws IllegalArgumentException if numChars is negative or the file
+     *                                  cannot be written
      */
     public void writeTweetsToFile(
             int numTweets, int numChars, String filePath,
             boolean append
     ) {
-        writeStringsToFile(generateTweets(numTweets, numChars), filePath, append);
+        writeTweetsToFile(
+                numTweets, numChars, filePath, append, false,
+                TweetWriter.DEFAULT_BUFFER_SIZE
+        );
+    }
+
+    /**
+     * Generates tweets and writes them to a file, one per line. Each tweet is
+     * written as soon as it is generated, so no more than one tweet is held
+     * in memory.
+     *
+     * @param numTweets  - the number of tweets that should be written
+     * @param numChars   - the number of characters in each tweet
+     * @param filePath   - the path to a file to write the tweets to
+     * @param append     - a boolean indicating whether the new tweets should
+     *                   be appended to the current file or should overwrite
+     *                   its previous contents
+     * @param gzip       - whether to compress the file with gzip
+     * @param bufferSize - the size of the write buffers, in bytes
+     * @throws IllegalArgumentException if numChars is negative, bufferSize is
+     *                                  not positive, or the file cannot be
+     *                                  written
+     */
+    public void writeTweetsToFile(
+            int numTweets, int numChars, String filePath,
+            boolean append, boolean gzip, int bufferSize
+    ) {
+        if (numChars < 0) {
+            throw new IllegalArgumentException(
+                    "tweet length cannot be negative"
+            );
+        }
+        try (TweetWriter out = new TweetWriter(filePath, append, gzip, bufferSize)) {
+            StringBuilder tweet = tweetBuilder(numChars);
+            for (int i = 0; i < numTweets; i++) {
+                tweet.setLength(0);
+                appendTweetChars(tweet, mc, ng, numChars);
+                out.write(tweet);
+            }
+        }
     }
 
     /**
@@ -160,6 +268,8 @@ public class TwitterBot {
      * @throws IllegalArgumentException if numWords is negative
      */
     public String generateTweet(int numWords) {
+        Metrics metrics = Instrumentation.metrics();
+        long startTime = metrics.enabled() ? System.nanoTime() : 0;
         String finalSentence = "";
         this.mc.reset();
         if (numWords < 0) {
@@ -169,41 +279,67 @@ public class TwitterBot {
             return "";
         }
 
-        for (int i = 0; i < numWords; i++) {
+        int i = 0;
+        while (i < numWords) {
+            String separator = " ";
             if (! mc.hasNext()) {
-                finalSentence += randomPunctuation() + " ";
+                separator = randomPunctuation() + " ";
                 mc.reset();
             }
-            finalSentence += mc.next();
-            if (i == numWords - 1) {
-                finalSentence += randomPunctuation();
-            } else if (mc.hasNext()) {
-                finalSentence += " ";
+            String word = mc.next();
+            if (FrequencyPruner.UNKNOWN.equals(word)) {
+                // a pruned word: end the sentence here
+                mc.reset(null);
+                continue;
             }
-
+            if (i > 0) {
+                finalSentence += separator;
+            }
+            finalSentence += word;
+            i++;
+        }
+        finalSentence += randomPunctuation();
+        if (metrics.enabled()) {
+            long nanos = Math.max(1, System.nanoTime() - startTime);
+            metrics.recordNanos(Instrumentation.GENERATION_LATENCY, nanos);
+            metrics.increment(Instrumentation.TOKENS_GENERATED, numWords);
+            metrics.record(Instrumentation.TOKENS_PER_SECOND, numWords * 1_000_000_000L / nanos);
         }
         return finalSentence;
     }
 
     /**
-     * Generates a series of tweets using generateTweetChars().
+     * Generates a series of tweets as generateTweetChars() would, reusing
+     * one builder for all of them.
      *
      * @param numTweets - the number of tweets to generate
      * @param numChars  - the number of characters that each generated tweet
      *                  should have.
      * @return a List of Strings where each element is a tweet
+     * @throws IllegalArgumentException if numChars is negative
      */
     public List<String> generateTweets(int numTweets, int numChars) {
+        if (numChars < 0) {
+            throw new IllegalArgumentException(
+                    "tweet length cannot be negative"
+            );
+        }
         List<String> tweets = new ArrayList<String>();
+        StringBuilder tweet = tweetBuilder(numChars);
         while (numTweets > 0) {
-            tweets.add(generateTweetChars(numChars));
+            tweet.setLength(0);
+            appendTweetChars(tweet, mc, ng, numChars);
+            tweets.add(tweet.toString());
             numTweets--;
         }
         return tweets;
     }
 
     /**
-     * Generates a tweet using generateTweet().
+     * Generates the longest tweet that fits in the given number of characters.
+     * The MarkovChain is walked only once: words are appended to a single
+     * builder until the next word (plus the closing punctuation) would go
+     * over numChars.
      *
      * @param numChars - The desired number of characters of the tweet to be
      *                 produced
@@ -216,17 +352,242 @@ public class TwitterBot {
                     "tweet length cannot be negative"
             );
         }
+        StringBuilder tweet = tweetBuilder(numChars);
+        appendTweetChars(tweet, mc, ng, numChars);
+        return tweet.toString();
+    }
+
+    /**
+     * Generates a tweet as generateTweetChars(numChars) does, but walks mc
+     * with a new MarkovChain.Walker driven by the given NumberGenerator
+     * instead of walking mc itself. Nothing in the bot is changed, so any
+     * number of threads may call this method at once, each with its own
+     * NumberGenerator, and also while addTweets() or addCsvData() add to the
+     * chain. With the same random numbers, the result is the same as
+     * generateTweetChars(numChars) when mc does not use alias sampling.
+     *
+     * @param numChars - The desired number of characters of the tweet to be
+     *                 produced
+     * @param ng       - the (non-null) NumberGenerator for this call only
+     * @return a String representing a generated tweet
+     * @throws IllegalArgumentException if numChars is negative or ng is null
+     */
+    public String generateTweetChars(int numChars, NumberGenerator ng) {
+        if (numChars < 0) {
+            throw new IllegalArgumentException(
+                    "tweet length cannot be negative"
+            );
+        }
+        ChainWalker walker = mc.walker(ng);
+        StringBuilder tweet = tweetBuilder(numChars);
+        appendTweetChars(tweet, walker, ng, numChars);
+        return tweet.toString();
+    }
+
+    /**
+     * Generates a tweet of at most numChars characters by walking walker, as
+     * generateTweetChars(numChars, ng) does for a bot's own chain. This lets
+     * tweets be generated from chains that are not inside a TwitterBot, such
+     * as those kept by a ModelRegistry.
+     *
+     * @param walker   - the (non-null) walker that picks the words
+     * @param numChars - The desired number of characters of the tweet
+     * @param ng       - the (non-null) NumberGenerator that picks the
+     *                 punctuation
+     * @return a String representing a generated tweet
+     * @throws IllegalArgumentException if numChars is negative or walker or
+     *                                  ng is null
+     */
+    static String generateTweetChars(ChainWalker walker, int numChars, NumberGenerator ng) {
+        if (numChars < 0) {
+            throw new IllegalArgumentException(
+                    "tweet length cannot be negative"
+            );
+        }
+        if (walker == null || ng == null) {
+            throw new IllegalArgumentException(
+                    "walker and NumberGenerator cannot be null"
+            );
+        }
+        StringBuilder tweet = tweetBuilder(numChars);
+        appendTweetChars(tweet, walker, ng, numChars);
+        return tweet.toString();
+    }
 
-        String tweet = "";
-        int numWords = 1;
+    /**
+     * Returns a read-only copy of the trained MarkovChain that can be shared
+     * between threads, building it on the first call (and on the first call
+     * after tweets are added).
+     *
+     * @return the shared CompactMarkovChain
+     */
+    public CompactMarkovChain getModel() {
+        CompactMarkovChain m = model;
+        if (m != null && m.version == mc.version()) {
+            return m;
+        }
+        CompactMarkovChain built = new CompactMarkovChain(mc);
+        synchronized (this) {
+            // another thread may have built a copy of a later version in
+            // the meantime; never replace it with an older one
+            if (model == null || model.version < built.version) {
+                model = built;
+            }
+            return model;
+        }
+    }
+
+    /**
+     * Returns a ConstrainedGenerator over getModel(), building its reverse
+     * index on the first call (and on the first call after tweets are
+     * added).
+     *
+     * @return the shared ConstrainedGenerator
+     */
+    public ConstrainedGenerator getConstrainedGenerator() {
+        CompactMarkovChain m = getModel();
+        ConstrainedGenerator cg = constrained;
+        if (cg == null || cg.getModel() != m) {
+            cg = new ConstrainedGenerator(m);
+            constrained = cg;
+        }
+        return cg;
+    }
+
+    /**
+     * Generates a tweet of at most numChars characters whose first sentence
+     * contains phrase (see ConstrainedGenerator).
+     *
+     * @param phrase   - the (non-null) required words, separated by spaces
+     * @param numChars - The desired number of characters of the tweet
+     * @param ng       - the (non-null) NumberGenerator for this tweet
+     * @return a String representing a generated tweet, or null if no
+     *         sentence containing phrase fits in numChars
+     * @throws IllegalArgumentException if phrase or ng is null, phrase has
+     *                                  no words, or numChars is negative
+     */
+    public String generateTweetContaining(String phrase, int numChars, NumberGenerator ng) {
+        return getConstrainedGenerator().generateTweetContaining(phrase, numChars, ng);
+    }
+
+    /**
+     * Returns a LengthAwareSampler over getModel(), computing its statistics
+     * on the first call (and on the first call after tweets are added).
+     *
+     * @return the shared LengthAwareSampler
+     */
+    public LengthAwareSampler getLengthSampler() {
+        CompactMarkovChain m = getModel();
+        LengthAwareSampler ls = lengthSampler;
+        if (ls == null || ls.getModel() != m) {
+            ls = new LengthAwareSampler(m);
+            lengthSampler = ls;
+        }
+        return ls;
+    }
+
+    /**
+     * Generates a tweet of at most numChars characters that is steered to end
+     * near numChars at the end of a sentence (see LengthAwareSampler),
+     * instead of stopping at the first word that does not fit as
+     * generateTweetChars does.
+     *
+     * @param numChars - The desired number of characters of the tweet
+     * @param ng       - the (non-null) NumberGenerator for this tweet
+     * @return a String representing a generated tweet
+     * @throws IllegalArgumentException if numChars is negative or ng is null
+     */
+    public String generateTweetToLength(int numChars, NumberGenerator ng) {
+        return getLengthSampler().generateTweet(numChars, ng);
+    }
+
+    /**
+     * Appends a generated tweet of at most numChars characters to the end of
+     * tweet. Sentences are ended with a random punctuation mark and the walker
+     * is reset between them exactly as in generateTweet(), so the result is
+     * what generateTweet() would produce for the largest word count that
+     * still fits. Nothing is appended if not even one word fits. A sentence
+     * also ends where the walk reaches FrequencyPruner.UNKNOWN.
+     *
+     * @param tweet    - the builder to append the tweet to
+     * @param walker   - the walker that picks the words
+     * @param ng       - the NumberGenerator that picks the punctuation
+     * @param numChars - the maximum number of characters to append
+     */
+    private static void appendTweetChars(
+            StringBuilder tweet, ChainWalker walker, NumberGenerator ng,
+            int numChars
+    ) {
+        Metrics metrics = Instrumentation.metrics();
+        long startTime = metrics.enabled() ? System.nanoTime() : 0;
+        int words = appendWords(tweet, walker, ng, numChars);
+        if (metrics.enabled()) {
+            long nanos = Math.max(1, System.nanoTime() - startTime);
+            metrics.recordNanos(Instrumentation.GENERATION_LATENCY, nanos);
+            metrics.increment(Instrumentation.TOKENS_GENERATED, words);
+            metrics.record(Instrumentation.TOKENS_PER_SECOND, words * 1_000_000_000L / nanos);
+        }
+    }
+
+    /**
+     * Does the work of appendTweetChars().
+     *
+     * @return the number of words appended
+     */
+    private static int appendWords(
+            StringBuilder tweet, ChainWalker walker, NumberGenerator ng,
+            int numChars
+    ) {
+        int start = tweet.length();
+        int words = 0;
+        walker.reset();
+        if (!walker.hasNext()) {
+            return 0;
+        }
+
+        boolean sentenceEnded = false;
         while (true) {
-            String newTweet = generateTweet(numWords);
-            if (newTweet.length() > numChars) {
-                return tweet;
+            if (!walker.hasNext()) {
+                sentenceEnded = true;
+                walker.reset();
+            }
+            String word = walker.next();
+            if (FrequencyPruner.UNKNOWN.equals(word)) {
+                // a pruned word: end the sentence here
+                walker.reset(null);
+                continue;
             }
-            tweet = newTweet;
-            numWords++;
+            int used = tweet.length() - start;
+            int separator = 0;
+            if (used > 0) {
+                separator = sentenceEnded ? 2 : 1;
+            }
+            // the closing punctuation always takes one more character
+            if (used + separator + word.length() + 1 > numChars) {
+                break;
+            }
+            if (separator == 2) {
+                tweet.append(randomPunctuation(ng)).append(' ');
+            } else if (separator == 1) {
+                tweet.append(' ');
+            }
+            tweet.append(word);
+            words++;
+            sentenceEnded = false;
         }
+
+        if (tweet.length() > start) {
+            tweet.append(randomPunctuation(ng));
+        }
+        return words;
+    }
+
+    /**
+     * Creates a buffer for a tweet of at most numChars characters, sized for
+     * the whole tweet unless numChars is very large.
+     */
+    static StringBuilder tweetBuilder(int numChars) {
+        return new StringBuilder(Math.min(numChars, MAX_INITIAL_CAPACITY) + 1);
     }
 
     /**
@@ -236,6 +597,10 @@ public class TwitterBot {
      *         '.' 70% of the time and ';', '?', and '!' each 10% of the time.
      */
     public String randomPunctuation() {
+        return randomPunctuation(ng);
+    }
+
+    static String randomPunctuation(NumberGenerator ng) {
         char[] puncs = { ';', '?', '!' };
         int m = ng.next(10);
         if (m < puncs.length) {
@@ -350,10 +715,8 @@ public class TwitterBot {
                         .collect(java.util.stream.Collectors.toList()),
                 true
         );
-        List<Integer> puncIndices = new LinkedList<>();
-        for (int i = 0; i < tweet.size(); i++) {
-            String curWord = tweet.get(i);
-
+        List<Integer> puncIndices = new ArrayList<>();
+        for (String curWord : tweet) {
             if (isPunctuation(curWord)) {
                 puncIndices.add(fixPunctuation(curWord.charAt(0)));
             }
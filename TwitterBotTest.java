@@ -3,12 +3,20 @@ package org.cis120;
 import org.junit.jupiter.api.Test;
 
 import java.io.BufferedReader;
+import java.io.IOException;
 import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.cis120.TestChains.*;
 
 /** Tests for TwitterBot class */
 public class TwitterBotTest {
@@ -94,5 +102,203 @@ public class TwitterBotTest {
 
     }
 
-}
+    @Test
+    public void testGenerateTweetCharsStopsAtBudget() {
+        List<String> desiredTweet = new ArrayList<>(
+                Arrays.asList(
+                        "this", "comes", "from", "data", "with", "no", "duplicate", "words", ".",
+                        "the", "end", "should", "come", "."
+                )
+        );
+        String words = "0, The end should come here.\n"
+                + "1, This comes from data with no duplicate words!";
+        StringReader sr = new StringReader(words);
+        BufferedReader br = new BufferedReader(sr);
+        TwitterBot t = new TwitterBot(br, 1);
+        t.fixDistribution(desiredTweet);
+        // "the" would need 5 more characters, so the tweet stops after "words"
+        String expected = "this comes from data with no duplicate words.";
+        String actual = TweetParser.replacePunctuation(t.generateTweetChars(48));
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void testGenerateTweetCharsAcrossSentences() {
+        List<String> desiredTweet = new ArrayList<>(
+                Arrays.asList(
+                        "this", "comes", "from", "data", "with", "no", "duplicate", "words", ".",
+                        "the", "end", "should", "come", "."
+                )
+        );
+        String words = "0, The end should come.\n"
+                + "1, This comes from data with no duplicate words!";
+        StringReader sr = new StringReader(words);
+        BufferedReader br = new BufferedReader(sr);
+        TwitterBot t = new TwitterBot(br, 1);
+        t.fixDistribution(desiredTweet);
+        String expected = "this comes from data with no duplicate words. the end should come.";
+        String actual = TweetParser.replacePunctuation(t.generateTweetChars(66));
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void testGenerateTweetCharsTooShortForAnyWord() {
+        String words = "0, The end should come here.";
+        StringReader sr = new StringReader(words);
+        BufferedReader br = new BufferedReader(sr);
+        TwitterBot t = new TwitterBot(br, 1);
+        assertEquals("", t.generateTweetChars(3));
+    }
+
+    @Test
+    public void testGenerateTweetCharsEmptyChain() {
+        StringReader sr = new StringReader("");
+        BufferedReader br = new BufferedReader(sr);
+        TwitterBot t = new TwitterBot(br, 1);
+        assertEquals("", t.generateTweetChars(280));
+    }
 
+    private static final String MANY_SENTENCES = "0, the dog is good. the cat is bad.\n"
+            + "1, a dog sat on the mat! the dog ran far.\n"
+            + "2, is the cat on the mat? a cat ran to the dog.";
+
+    @Test
+    public void testGenerateTweetCharsWithOwnNumberGenerator() {
+        BufferedReader br = new BufferedReader(new StringReader(MANY_SENTENCES));
+        TwitterBot t = new TwitterBot(br, 1, seeded(7));
+        String expected = t.generateTweetChars(140);
+        assertEquals(expected, t.generateTweetChars(140, seeded(7)));
+    }
+
+    @Test
+    public void testGenerateTweetCharsNullNumberGenerator() {
+        BufferedReader br = new BufferedReader(new StringReader(MANY_SENTENCES));
+        TwitterBot t = new TwitterBot(br, 1);
+        assertThrows(IllegalArgumentException.class, () -> {
+            t.generateTweetChars(140, null);
+        });
+    }
+
+    @Test
+    public void testGenerateTweetCharsConcurrently() throws Exception {
+        BufferedReader br = new BufferedReader(new StringReader(MANY_SENTENCES));
+        TwitterBot t = new TwitterBot(br, 1);
+        int n = 200;
+        String[] expected = new String[n];
+        for (int i = 0; i < n; i++) {
+            expected[i] = t.generateTweetChars(280, seeded(i));
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < n; i++) {
+                long seed = i;
+                results.add(pool.submit(() -> t.generateTweetChars(280, seeded(seed))));
+            }
+            for (int i = 0; i < n; i++) {
+                assertEquals(expected[i], results.get(i).get());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testWriteStringsToFileOnePerLine() throws IOException {
+        BufferedReader br = new BufferedReader(new StringReader(MANY_SENTENCES));
+        TwitterBot t = new TwitterBot(br, 1);
+        Path file = Files.createTempFile("tweets", ".txt");
+        try {
+            t.writeStringsToFile(Arrays.asList("one.", "two!"), file.toString(), false);
+            t.writeStringsToFile(Arrays.asList("three?"), file.toString(), true);
+            assertEquals(Arrays.asList("one.", "two!", "three?"), Files.readAllLines(file));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testWriteTweetsToFileMatchesGenerateTweets() throws IOException {
+        Path file = Files.createTempFile("tweets", ".txt");
+        try {
+            TwitterBot written = new TwitterBot(
+                    new BufferedReader(new StringReader(MANY_SENTENCES)), 1, seeded(3)
+            );
+            written.writeTweetsToFile(50, 140, file.toString(), false);
+            TwitterBot listed = new TwitterBot(
+                    new BufferedReader(new StringReader(MANY_SENTENCES)), 1, seeded(3)
+            );
+            assertEquals(listed.generateTweets(50, 140), Files.readAllLines(file));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testAddTweets() {
+        TwitterBot t = new TwitterBot(new BufferedReader(new StringReader("")), 1);
+        assertEquals("", t.generateTweetChars(280, seeded(1)));
+        t.addTweets(Arrays.asList("Hello world!"));
+        assertEquals("hello world.", TweetParser.replacePunctuation(
+                t.generateTweetChars(12, seeded(1))
+        ));
+        assertThrows(IllegalArgumentException.class, () -> {
+            t.addTweets(null);
+        });
+    }
+
+    @Test
+    public void testAddCsvData() {
+        TwitterBot t = new TwitterBot(new BufferedReader(new StringReader("0, one")), 1);
+        t.addCsvData(new BufferedReader(new StringReader("1, two three")), 1);
+        assertEquals(1, t.mc.get("two").count("three"));
+        assertEquals(1, t.mc.startWords.count("one"));
+        assertEquals(1, t.mc.startWords.count("two"));
+        assertEquals(3, t.getModel().getVocabulary().size());
+    }
+
+    @Test
+    public void testModelFollowsUpdates() {
+        TwitterBot t = new TwitterBot(new BufferedReader(new StringReader("0, one")), 1);
+        CompactMarkovChain first = t.getModel();
+        assertSame(first, t.getModel());
+        t.addTweets(Arrays.asList("two three"));
+        CompactMarkovChain second = t.getModel();
+        assertNotSame(first, second);
+        assertEquals(3, second.getVocabulary().size());
+    }
+
+    @Test
+    public void testBuildModelWhileAdding() throws InterruptedException {
+        TwitterBot t = new TwitterBot(new BufferedReader(new StringReader(MANY_SENTENCES)), 1);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread writer = new Thread(() -> {
+            try {
+                for (int i = 0; i < 300; i++) {
+                    t.addTweets(Arrays.asList("the dog w" + i + " is good. w" + i + " ran far."));
+                }
+            } catch (Throwable e) {
+                failure.set(e);
+            }
+        });
+        writer.start();
+        while (writer.isAlive()) {
+            CompactMarkovChain m = t.getModel();
+            NumberGenerator ng = seeded(1);
+            assertTrue(TwitterBot.generateTweetChars(m.walker(ng), 60, ng).length() <= 60);
+        }
+        writer.join();
+        assertNull(failure.get());
+        Vocabulary vocab = t.getModel().getVocabulary();
+        assertNotEquals(Vocabulary.NONE, vocab.id("w299"));
+    }
+
+    @Test
+    public void testHugeCharacterLimit() {
+        TwitterBot t = new TwitterBot(new BufferedReader(new StringReader("")), 1);
+        assertEquals("", t.generateTweetChars(Integer.MAX_VALUE, seeded(1)));
+        assertEquals("", t.getLengthSampler().generateTweet(Integer.MAX_VALUE, seeded(1)));
+        assertEquals(513, TwitterBot.tweetBuilder(Integer.MAX_VALUE).capacity());
+    }
+}
@@ -0,0 +1,99 @@
+package org.cis120;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A Vocabulary interns words to dense int ids. The first word interned gets
+ * id 0, the next new word gets id 1, and so on, so ids can be used directly
+ * as indices into primitive arrays (see CompactMarkovChain).
+ * <p>
+ * Looking up a word's id costs one hash lookup; looking up the word for an
+ * id is a plain array access. Ids are never reused or removed.
+ * <p>
+ * A Vocabulary may be shared between threads (ModelRegistry shares one
+ * between all of its chains): intern() is synchronized, and id(), word()
+ * and size() can be called at any time without locking.
+ */
+public class Vocabulary {
+
+    /**
+     * The id returned by id() for words that are not in the vocabulary.
+     */
+    public static final int NONE = -1;
+
+    private final Map<String, Integer> ids;
+    private volatile String[] words;
+    private volatile int size;
+
+    /**
+     * Creates an empty vocabulary.
+     */
+    public Vocabulary() {
+        this.ids = new ConcurrentHashMap<String, Integer>();
+        this.words = new String[16];
+        this.size = 0;
+    }
+
+    /**
+     * Returns the id of word, assigning it the next free id if it has not
+     * been seen before.
+     *
+     * @param word - a (non-null) word
+     * @return the id of word
+     * @throws IllegalArgumentException if word is null
+     */
+    public synchronized int intern(String word) {
+        if (word == null) {
+            throw new IllegalArgumentException("cannot intern a null word");
+        }
+        Integer id = ids.get(word);
+        if (id != null) {
+            return id;
+        }
+        if (size == words.length) {
+            words = Arrays.copyOf(words, size * 2);
+        }
+        int next = size;
+        words[next] = word;
+        size = next + 1;
+        ids.put(word, next);
+        return next;
+    }
+
+    /**
+     * Returns the id of word without adding it to the vocabulary.
+     *
+     * @param word - the word to look up
+     * @return the id of word, or NONE if word is null or unknown
+     */
+    public int id(String word) {
+        if (word == null) {
+            return NONE;
+        }
+        Integer id = ids.get(word);
+        return id == null ? NONE : id;
+    }
+
+    /**
+     * Returns the word with the given id.
+     *
+     * @param id - an id previously returned by intern()
+     * @return the word with that id
+     * @throws IllegalArgumentException if no word has that id
+     */
+    public String word(int id) {
+        if (id < 0 || id >= size) {
+            throw new IllegalArgumentException("no word with id " + id);
+        }
+        return words[id];
+    }
+
+    /**
+     * @return the number of distinct words interned so far
+     */
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,56 @@
+package org.cis120;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Tests for Vocabulary */
+public class VocabularyTest {
+
+    @Test
+    public void testInternAssignsDenseIds() {
+        Vocabulary v = new Vocabulary();
+        assertEquals(0, v.intern("cis"));
+        assertEquals(1, v.intern("120"));
+        assertEquals(0, v.intern("cis"));
+        assertEquals(2, v.size());
+        assertEquals("120", v.word(1));
+    }
+
+    @Test
+    public void testIdOfUnknownWord() {
+        Vocabulary v = new Vocabulary();
+        v.intern("cis");
+        assertEquals(Vocabulary.NONE, v.id("160"));
+        assertEquals(Vocabulary.NONE, v.id(null));
+        assertEquals(1, v.size());
+    }
+
+    @Test
+    public void testInternGrowsPastInitialCapacity() {
+        Vocabulary v = new Vocabulary();
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, v.intern("w" + i));
+        }
+        assertEquals(100, v.size());
+        assertEquals("w99", v.word(99));
+        assertEquals(42, v.id("w42"));
+    }
+
+    @Test
+    public void testInternNull() {
+        Vocabulary v = new Vocabulary();
+        assertThrows(IllegalArgumentException.class, () -> {
+            v.intern(null);
+        });
+    }
+
+    @Test
+    public void testWordOutOfRange() {
+        Vocabulary v = new Vocabulary();
+        v.intern("cis");
+        assertThrows(IllegalArgumentException.class, () -> {
+            v.word(1);
+        });
+    }
+}
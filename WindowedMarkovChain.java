@@ -0,0 +1,335 @@
+package org.cis120;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * A WindowedMarkovChain is a Markov chain that only remembers recent
+ * training data, so that it follows how the language of a live feed changes.
+ * <p>
+ * Training happens in time buckets. Sentences passed to train() go into the
+ * current bucket, and advance() closes it and starts a new one (for example
+ * once an hour). Only the last windowSize buckets count: when a bucket falls
+ * out of the window, its counts are subtracted again. Each bucket keeps its
+ * own bigram and start-word counts, already combined per bigram, so this
+ * subtraction only touches the bigrams that occurred in that bucket, and the
+ * memory used never depends on how much data came before the window.
+ * <p>
+ * Within the window, counts can also decay exponentially: with a decay of d,
+ * an occurrence from k buckets ago weighs d^k as much as one from the current
+ * bucket. Only the ratios between the weights of one word's successors are
+ * ever used, so each row keeps its weights relative to the last bucket in
+ * which it was trained: the first time a row is trained in a new bucket, its
+ * weights are multiplied by d^k, where k is the number of buckets since then,
+ * and the new occurrence weighs 1. Weights therefore never exceed the row's
+ * count, and a weight that underflows to 0 belongs to an occurrence that is
+ * outweighed more than 10^300 times by a newer one in the same row. Rows
+ * that are not trained are never touched by advance(). A decay of 1 gives a
+ * plain sliding window.
+ * <p>
+ * Walking the chain works as in MarkovChain: reset() picks a start word, and
+ * next() returns the current word and picks one of its successors in
+ * proportion to their (decayed) weights.
+ */
+public class WindowedMarkovChain implements ChainWalker {
+
+    // the random numbers used for a pick are in [0, 2^30)
+    private static final int RESOLUTION = 1 << 30;
+
+    private final int windowSize;
+    private final double decay;
+    private final NumberGenerator ng;
+
+    private final ArrayDeque<Bucket> buckets;
+    private final Map<String, Row> rows;
+    private final Row startRow;
+    private long time;
+
+    private String now;
+
+    /**
+     * The counts recorded in one time bucket, combined per bigram.
+     */
+    private static class Bucket {
+        final long time;
+        final Map<String, Map<String, Integer>> bigrams =
+                new HashMap<String, Map<String, Integer>>();
+        final Map<String, Integer> starts = new HashMap<String, Integer>();
+
+        Bucket(long time) {
+            this.time = time;
+        }
+    }
+
+    /**
+     * The successors of one word (or the start words) within the window: for
+     * each successor, its number of occurrences and its weight, relative to
+     * an occurrence in bucket time.
+     */
+    private static class Row {
+        final Map<String, Entry> entries = new HashMap<String, Entry>();
+        double total;
+        long time;
+    }
+
+    private static class Entry {
+        int count;
+        double weight;
+    }
+
+    /**
+     * Creates an empty chain that remembers the last windowSize buckets,
+     * without decay, and uses a RandomNumberGenerator.
+     *
+     * @param windowSize - the number of buckets in the window
+     * @throws IllegalArgumentException if windowSize is not positive
+     */
+    public WindowedMarkovChain(int windowSize) {
+        this(windowSize, 1, new RandomNumberGenerator());
+    }
+
+    /**
+     * Creates an empty chain that remembers the last windowSize buckets.
+     *
+     * @param windowSize - the number of buckets in the window
+     * @param decay      - how much an occurrence weighs compared to one a
+     *                   bucket later, between 0 (exclusive) and 1
+     * @param ng         - A (non-null) NumberGenerator used to walk the chain
+     * @throws IllegalArgumentException if windowSize is not positive, decay
+     *                                  is not in (0, 1], or ng is null
+     */
+    public WindowedMarkovChain(int windowSize, double decay, NumberGenerator ng) {
+        if (windowSize < 1) {
+            throw new IllegalArgumentException("windowSize must be positive");
+        }
+        if (!(decay > 0 && decay <= 1)) {
+            throw new IllegalArgumentException("decay must be in (0, 1]");
+        }
+        if (ng == null) {
+            throw new IllegalArgumentException(
+                    "NumberGenerator input cannot be null"
+            );
+        }
+        this.windowSize = windowSize;
+        this.decay = decay;
+        this.ng = ng;
+        this.buckets = new ArrayDeque<Bucket>();
+        this.rows = new HashMap<String, Row>();
+        this.startRow = new Row();
+        buckets.add(new Bucket(0));
+    }
+
+    /**
+     * Adds a sentence's training data to the current bucket, as
+     * MarkovChain.train() does. Empty Strings are skipped, and an empty
+     * sentence does nothing.
+     *
+     * @param sentence - an iterator representing one sentence of training data
+     * @throws IllegalArgumentException if the sentence Iterator is null
+     */
+    public void train(Iterator<String> sentence) {
+        if (sentence == null) {
+            throw new IllegalArgumentException();
+        }
+        Bucket current = buckets.peekLast();
+        String prev = null;
+        while (sentence.hasNext()) {
+            String word = sentence.next();
+            if (word == null || word.isEmpty()) {
+                continue;
+            }
+            if (prev == null) {
+                current.starts.merge(word, 1, Integer::sum);
+                age(startRow);
+                add(startRow, word, 1, 1);
+            } else {
+                record(current, prev, word);
+            }
+            prev = word;
+        }
+        if (prev != null) {
+            record(current, prev, null);
+        }
+    }
+
+    private void record(Bucket bucket, String first, String second) {
+        bucket.bigrams.computeIfAbsent(first, w -> new HashMap<String, Integer>())
+                .merge(second, 1, Integer::sum);
+        Row row = rows.get(first);
+        if (row == null) {
+            row = new Row();
+            row.time = time;
+            rows.put(first, row);
+        }
+        age(row);
+        add(row, second, 1, 1);
+    }
+
+    /**
+     * Brings the weights of row up to the current bucket, by multiplying
+     * them by the decay once for every bucket since the row's time.
+     */
+    private void age(Row row) {
+        if (row.time == time) {
+            return;
+        }
+        if (decay < 1) {
+            double factor = Math.pow(decay, time - row.time);
+            row.total = 0;
+            for (Entry e : row.entries.values()) {
+                e.weight *= factor;
+                row.total += e.weight;
+            }
+        }
+        row.time = time;
+    }
+
+    /**
+     * Adds count occurrences of word, each with the given weight, to row
+     * (or removes them, if count is negative). Entries with no occurrences
+     * left are dropped.
+     */
+    private static void add(Row row, String word, int count, double weight) {
+        Entry e = row.entries.get(word);
+        if (e == null) {
+            e = new Entry();
+            row.entries.put(word, e);
+        }
+        e.count += count;
+        if (e.count == 0) {
+            row.entries.remove(word);
+            row.total -= e.weight;
+        } else {
+            // older occurrences always weigh less than what remains, so
+            // subtracting them cannot go below 0 except by rounding
+            double before = e.weight;
+            e.weight = Math.max(0, e.weight + count * weight);
+            row.total += e.weight - before;
+        }
+        if (row.entries.isEmpty()) {
+            // no rounding errors survive an empty row
+            row.total = 0;
+        }
+    }
+
+    /**
+     * Closes the current bucket and starts a new one. If the window then
+     * holds more than windowSize buckets, the counts of the oldest bucket
+     * are subtracted and the bucket is dropped.
+     */
+    public void advance() {
+        time++;
+        buckets.add(new Bucket(time));
+        if (buckets.size() > windowSize) {
+            expire(buckets.poll());
+        }
+    }
+
+    private void expire(Bucket old) {
+        for (Map.Entry<String, Integer> s : old.starts.entrySet()) {
+            add(startRow, s.getKey(), -s.getValue(), weightIn(startRow, old));
+        }
+        for (Map.Entry<String, Map<String, Integer>> b : old.bigrams.entrySet()) {
+            Row row = rows.get(b.getKey());
+            double weight = weightIn(row, old);
+            for (Map.Entry<String, Integer> s : b.getValue().entrySet()) {
+                add(row, s.getKey(), -s.getValue(), weight);
+            }
+            if (row.entries.isEmpty()) {
+                rows.remove(b.getKey());
+            }
+        }
+    }
+
+    /**
+     * Returns the weight of one occurrence from bucket in the units of row
+     * (the row was trained in that bucket, so its time is not earlier).
+     */
+    private double weightIn(Row row, Bucket bucket) {
+        return (decay == 1) ? 1 : Math.pow(decay, row.time - bucket.time);
+    }
+
+    /**
+     * @return the number of distinct words that have successors in the
+     *         window
+     */
+    public int size() {
+        return rows.size();
+    }
+
+    /**
+     * @return the number of buckets in the window, counting the current one
+     */
+    public int buckets() {
+        return buckets.size();
+    }
+
+    /**
+     * @return the number of times second followed first in the window
+     *         (second may be null for the end of a sentence)
+     */
+    int count(String first, String second) {
+        Row row = rows.get(first);
+        Entry e = (row == null) ? null : row.entries.get(second);
+        return (e == null) ? 0 : e.count;
+    }
+
+    /**
+     * @return the probability that second is picked after first
+     */
+    double probability(String first, String second) {
+        Row row = rows.get(first);
+        Entry e = (row == null) ? null : row.entries.get(second);
+        return (e == null) ? 0 : e.weight / row.total;
+    }
+
+    /**
+     * Picks a word from row in proportion to its weight.
+     */
+    private String pick(Row row) {
+        double target = (ng.next(RESOLUTION) + 0.5) / RESOLUTION * row.total;
+        double running = 0;
+        String last = null;
+        for (Map.Entry<String, Entry> e : row.entries.entrySet()) {
+            double weight = e.getValue().weight;
+            if (weight > 0) {
+                running += weight;
+                last = e.getKey();
+                if (running > target) {
+                    return last;
+                }
+            }
+        }
+        // only reached through rounding: take the last word with any weight
+        return last;
+    }
+
+    @Override
+    public void reset() {
+        now = startRow.entries.isEmpty() ? null : pick(startRow);
+    }
+
+    @Override
+    public void reset(String start) {
+        now = start;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return now != null;
+    }
+
+    @Override
+    public String next() {
+        if (now == null) {
+            throw new NoSuchElementException();
+        }
+        String current = now;
+        Row row = rows.get(current);
+        now = (row == null) ? null : pick(row);
+        return current;
+    }
+}
@@ -0,0 +1,163 @@
+package org.cis120;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Tests for WindowedMarkovChain */
+public class WindowedMarkovChainTest {
+
+    private static void train(WindowedMarkovChain chain, String sentence) {
+        chain.train(Arrays.stream(sentence.split(" ")).iterator());
+    }
+
+    @Test
+    public void testBadArguments() {
+        assertThrows(IllegalArgumentException.class, () -> {
+            new WindowedMarkovChain(0);
+        });
+        assertThrows(IllegalArgumentException.class, () -> {
+            new WindowedMarkovChain(2, 0, new RandomNumberGenerator());
+        });
+        assertThrows(IllegalArgumentException.class, () -> {
+            new WindowedMarkovChain(2, 1.5, new RandomNumberGenerator());
+        });
+        assertThrows(IllegalArgumentException.class, () -> {
+            new WindowedMarkovChain(2, 1, null);
+        });
+        assertThrows(IllegalArgumentException.class, () -> {
+            new WindowedMarkovChain(2).train(null);
+        });
+    }
+
+    @Test
+    public void testOldBucketsExpire() {
+        WindowedMarkovChain chain = new WindowedMarkovChain(2);
+        train(chain, "a b");
+        chain.advance();
+        train(chain, "a c");
+        assertEquals(1, chain.count("a", "b"));
+        assertEquals(1, chain.count("a", "c"));
+        assertEquals(3, chain.size());
+
+        chain.advance();
+        assertEquals(2, chain.buckets());
+        assertEquals(0, chain.count("a", "b"));
+        assertEquals(1, chain.count("a", "c"));
+        // "b" had no other occurrences, so it is gone entirely
+        assertEquals(2, chain.size());
+
+        chain.advance();
+        assertEquals(0, chain.size());
+        chain.reset();
+        assertFalse(chain.hasNext());
+    }
+
+    @Test
+    public void testCountsWithinWindowAddUp() {
+        WindowedMarkovChain chain = new WindowedMarkovChain(3);
+        train(chain, "a b");
+        train(chain, "a b");
+        chain.advance();
+        train(chain, "a b");
+        train(chain, "a c");
+        assertEquals(3, chain.count("a", "b"));
+        assertEquals(0.75, chain.probability("a", "b"), 1e-12);
+        chain.advance();
+        chain.advance();
+        assertEquals(1, chain.count("a", "b"));
+        assertEquals(0.5, chain.probability("a", "b"), 1e-12);
+    }
+
+    @Test
+    public void testDecay() {
+        WindowedMarkovChain chain = new WindowedMarkovChain(
+                3, 0.5, new RandomNumberGenerator()
+        );
+        train(chain, "a b");
+        chain.advance();
+        train(chain, "a c");
+        // "a b" is one bucket older, so it weighs half as much
+        assertEquals(1.0 / 3, chain.probability("a", "b"), 1e-12);
+        chain.advance();
+        train(chain, "a c");
+        assertEquals(1.0 / 7, chain.probability("a", "b"), 1e-12);
+        chain.advance();
+        assertEquals(0, chain.probability("a", "b"), 1e-12);
+        assertEquals(1, chain.probability("a", "c"), 1e-12);
+    }
+
+    @Test
+    public void testLongRunKeepsProbabilities() {
+        WindowedMarkovChain chain = new WindowedMarkovChain(
+                2, 0.25, new RandomNumberGenerator()
+        );
+        for (int i = 0; i < 1000; i++) {
+            train(chain, "a b");
+            train(chain, "a " + (i % 2 == 0 ? "c" : "d"));
+            chain.advance();
+        }
+        train(chain, "a c");
+        // bucket 999 (weight 1): b, d ; bucket 1000 (weight 4): c
+        assertEquals(1.0 / 6, chain.probability("a", "b"), 1e-9);
+        assertEquals(1.0 / 6, chain.probability("a", "d"), 1e-9);
+        assertEquals(4.0 / 6, chain.probability("a", "c"), 1e-9);
+    }
+
+    @Test
+    public void testWideWindowWithStrongDecay() {
+        // 0.5^1200 and 0.01^168 are far below the smallest double
+        WindowedMarkovChain chain = new WindowedMarkovChain(
+                1200, 0.5, new Random(4)::nextInt
+        );
+        for (int i = 0; i < 3000; i++) {
+            train(chain, "a b");
+            chain.advance();
+        }
+        train(chain, "a c");
+        // the older "a b"s weigh 1/2 + 1/4 + ... = 1 in all
+        assertEquals(0.5, chain.probability("a", "b"), 1e-9);
+        assertEquals(0.5, chain.probability("a", "c"), 1e-9);
+
+        WindowedMarkovChain hourly = new WindowedMarkovChain(
+                168, 0.01, new Random(5)::nextInt
+        );
+        train(hourly, "x y");
+        for (int i = 0; i < 167; i++) {
+            hourly.advance();
+        }
+        // only "x y" is in the window, however little it weighs
+        assertEquals(1, hourly.probability("x", "y"), 1e-12);
+        hourly.reset();
+        assertEquals("x", hourly.next());
+        assertEquals("y", hourly.next());
+        train(hourly, "x z");
+        assertEquals(1, hourly.probability("x", "z"), 1e-12);
+        assertEquals(0, hourly.probability("x", "y"), 1e-12);
+        assertEquals(2, hourly.count("x", "y") + hourly.count("x", "z"));
+    }
+
+    @Test
+    public void testWalkFollowsWindow() {
+        WindowedMarkovChain chain = new WindowedMarkovChain(
+                1, 1, new Random(3)::nextInt
+        );
+        train(chain, "old words here");
+        chain.advance();
+        train(chain, "new slang");
+        for (int i = 0; i < 10; i++) {
+            chain.reset();
+            assertEquals("new", chain.next());
+            assertEquals("slang", chain.next());
+            assertFalse(chain.hasNext());
+        }
+        assertThrows(NoSuchElementException.class, chain::next);
+        chain.reset("old");
+        assertEquals("old", chain.next());
+        assertFalse(chain.hasNext());
+    }
+}
@@ -0,0 +1,47 @@
+package org.cis120;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmark suite with the GC profiler, so that every result comes
+ * with its allocation rate (gc.alloc.rate.norm is bytes allocated per
+ * operation), and writes the results to jmh-result.json.
+ * <p>
+ * The benchmarks use JMH (org.openjdk.jmh:jmh-core and
+ * jmh-generator-annprocess) and are compiled together with the main
+ * sources. Arguments are regular expressions selecting the benchmarks to
+ * run, and the "tweets" system property can narrow the corpus sizes, for
+ * example:
+ * <pre>
+ *   java ... org.cis120.BenchmarkMain ParseBenchmark.parseAndCleanTweet
+ *   java -Dtweets=10000,1000000 ... org.cis120.BenchmarkMain Chain
+ * </pre>
+ * Corpora are generated once by SyntheticCorpus and cached in the temporary
+ * directory. The 10M-tweet runs need a heap of several gigabytes.
+ */
+public class BenchmarkMain {
+
+    public static void main(String[] args) throws RunnerException {
+        OptionsBuilder options = new OptionsBuilder();
+        if (args.length == 0) {
+            options.include("org\\.cis120\\..*Benchmark");
+        }
+        for (String include : args) {
+            options.include(include);
+        }
+        String tweets = System.getProperty("tweets");
+        if (tweets != null) {
+            options.param("tweets", tweets.split(","));
+        }
+        Options opts = options
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .build();
+        new Runner(opts).run();
+    }
+}
@@ -0,0 +1,95 @@
+package org.cis120;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for MarkovChain: training on one more sentence, and walking
+ * the chain, for models trained on corpora of different sizes. Running all
+ * sizes gives the scaling curve of each operation.
+ */
+@Fork(value = 1, jvmArgsAppend = "-Xmx16g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ChainBenchmark {
+
+    /**
+     * A MarkovChain trained on a generated corpus, plus a pool of extra
+     * sentences to train on.
+     */
+    @State(Scope.Thread)
+    public static class Model {
+        @Param({ "10000", "1000000", "10000000" })
+        int tweets;
+
+        @Param({ "false", "true" })
+        boolean aliasSampling;
+
+        MarkovChain mc;
+        CompactMarkovChain.Walker compact;
+        List<List<String>> sentences;
+        int next;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            mc = ParallelTrainer.train(
+                    SyntheticCorpus.csv(tweets, SyntheticCorpus.DEFAULT_SEED).toString(),
+                    SyntheticCorpus.TWEET_COLUMN,
+                    Runtime.getRuntime().availableProcessors(),
+                    new RandomNumberGenerator()
+            );
+            mc.setAliasSampling(aliasSampling);
+            compact = new CompactMarkovChain(mc).walker(new RandomNumberGenerator());
+
+            sentences = new ArrayList<List<String>>();
+            for (String tweet : new SyntheticCorpus(7L, 10_000).tweets(10_000)) {
+                sentences.addAll(TweetParser.parseAndCleanTweet(tweet));
+            }
+        }
+
+        List<String> nextSentence() {
+            List<String> sentence = sentences.get(next);
+            next = (next + 1) % sentences.size();
+            return sentence;
+        }
+    }
+
+    @Benchmark
+    public MarkovChain train(Model model) {
+        model.mc.train(model.nextSentence().iterator());
+        return model.mc;
+    }
+
+    @Benchmark
+    public String next(Model model) {
+        if (!model.mc.hasNext()) {
+            model.mc.reset();
+        }
+        return model.mc.next();
+    }
+
+    @Benchmark
+    public String nextCompact(Model model) {
+        if (!model.compact.hasNext()) {
+            model.compact.reset();
+        }
+        return model.compact.next();
+    }
+}
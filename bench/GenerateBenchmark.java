@@ -0,0 +1,62 @@
+package org.cis120;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for generating whole tweets with TwitterBot.
+ */
+@Fork(value = 1, jvmArgsAppend = "-Xmx16g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class GenerateBenchmark {
+
+    /**
+     * A TwitterBot trained on a generated corpus.
+     */
+    @State(Scope.Thread)
+    public static class Bot {
+        @Param({ "10000", "1000000", "10000000" })
+        int tweets;
+
+        TwitterBot bot;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            NumberGenerator ng = new RandomNumberGenerator();
+            MarkovChain mc = ParallelTrainer.train(
+                    SyntheticCorpus.csv(tweets, SyntheticCorpus.DEFAULT_SEED).toString(),
+                    SyntheticCorpus.TWEET_COLUMN,
+                    Runtime.getRuntime().availableProcessors(),
+                    ng
+            );
+            mc.setAliasSampling(true);
+            bot = new TwitterBot(mc, ng);
+        }
+    }
+
+    @Benchmark
+    public String generateTweet(Bot state) {
+        return state.bot.generateTweet(20);
+    }
+
+    @Benchmark
+    public String generateTweetChars(Bot state) {
+        return state.bot.generateTweetChars(280);
+    }
+}
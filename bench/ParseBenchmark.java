@@ -0,0 +1,105 @@
+package org.cis120;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for TweetParser: cleaning single tweets, and turning a whole
+ * CSV file into training data.
+ */
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ParseBenchmark {
+
+    /**
+     * A pool of generated tweets that the per-tweet benchmarks cycle
+     * through, so that the branch predictor cannot learn a single tweet.
+     */
+    @State(Scope.Thread)
+    public static class Tweets {
+        String[] tweets;
+        int next;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            tweets = new SyntheticCorpus(SyntheticCorpus.DEFAULT_SEED, 10_000).tweets(10_000);
+        }
+
+        String nextTweet() {
+            String tweet = tweets[next];
+            next = (next + 1) % tweets.length;
+            return tweet;
+        }
+    }
+
+    /**
+     * A generated CSV file with a given number of tweets.
+     */
+    @State(Scope.Benchmark)
+    public static class Corpus {
+        @Param({ "10000", "1000000", "10000000" })
+        int tweets;
+
+        Path file;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            file = SyntheticCorpus.csv(tweets, SyntheticCorpus.DEFAULT_SEED);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<List<String>> parseAndCleanTweet(Tweets state) {
+        return TweetParser.parseAndCleanTweet(state.nextTweet());
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<List<String>> parseAndCleanTweetInSteps(Tweets state) {
+        return TweetParser.parseAndCleanTweetInSteps(state.nextTweet());
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 3)
+    public void csvDataToTrainingData(Corpus corpus, Blackhole bh) throws IOException {
+        try (BufferedReader br = Files.newBufferedReader(corpus.file, StandardCharsets.UTF_8)) {
+            TweetParser.csvDataToTrainingData(br, SyntheticCorpus.TWEET_COLUMN, bh::consume);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 3)
+    public void csvDataToTrainingDataMapped(Corpus corpus, Blackhole bh) {
+        MappedLineIterator lines = new MappedLineIterator(corpus.file.toString());
+        TweetParser.csvDataToTrainingData(lines, SyntheticCorpus.TWEET_COLUMN, bh::consume);
+    }
+}
@@ -0,0 +1,144 @@
+package org.cis120;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.SplittableRandom;
+
+/**
+ * SyntheticCorpus generates reproducible, tweet-like CSV data for the
+ * benchmarks. The same size and seed always produce the same tweets.
+ * <p>
+ * Words are drawn from a Zipf-like vocabulary, so a few words ("the", "i",
+ * "my") have very many successors while most words are rare, as in real
+ * tweets. Tweets mix in the things TweetParser has to clean up: @mentions,
+ * #hashtags, URLs (some ending a sentence), upper case, and the four kinds
+ * of sentence punctuation. Each CSV line has the form
+ * {@code id,"tweet"} (column 1 holds the tweet), and tweets never contain
+ * double quotes, so the line can also be split on commas.
+ */
+public class SyntheticCorpus {
+
+    static final long DEFAULT_SEED = 120L;
+    static final int TWEET_COLUMN = 1;
+
+    private static final String[] COMMON = {
+        "the", "i", "my", "a", "to", "is", "and", "you", "it", "of", "in",
+        "dog", "good", "so", "very", "me", "for", "this", "that", "be",
+        "can't", "don't", "it's", "i'm", "what", "love", "today", "day",
+    };
+    private static final String[] ENDINGS = { ".", ".", ".", "?", "!", ";" };
+
+    private final SplittableRandom random;
+    private final int vocabulary;
+
+    /**
+     * Creates a generator with the given seed and number of rare words.
+     *
+     * @param seed       - the random seed
+     * @param vocabulary - how many distinct rare words to draw from
+     */
+    public SyntheticCorpus(long seed, int vocabulary) {
+        this.random = new SplittableRandom(seed);
+        this.vocabulary = vocabulary;
+    }
+
+    /**
+     * Creates a generator whose vocabulary grows with the corpus, about as
+     * fast as it does in real tweet archives.
+     *
+     * @param seed   - the random seed
+     * @param tweets - the number of tweets that will be generated
+     */
+    public static SyntheticCorpus forSize(long seed, int tweets) {
+        return new SyntheticCorpus(seed, Math.max(1000, (int) Math.sqrt(tweets) * 40));
+    }
+
+    /**
+     * @return a word, common words being much more likely than rare ones
+     */
+    private String word() {
+        if (random.nextInt(2) == 0) {
+            return COMMON[(int) (COMMON.length * Math.pow(random.nextDouble(), 2))];
+        }
+        // rank r is picked with probability about proportional to 1 / r
+        int rank = (int) Math.pow(vocabulary, random.nextDouble());
+        return "w" + Integer.toString(rank, 36);
+    }
+
+    /**
+     * @return the next generated tweet
+     */
+    public String tweet() {
+        StringBuilder tweet = new StringBuilder(160);
+        int sentences = 1 + random.nextInt(3);
+        for (int s = 0; s < sentences; s++) {
+            int words = 3 + random.nextInt(12);
+            for (int w = 0; w < words; w++) {
+                if (tweet.length() > 0) {
+                    tweet.append(' ');
+                }
+                int kind = random.nextInt(40);
+                if (kind == 0) {
+                    tweet.append('@').append(word());
+                } else if (kind == 1) {
+                    tweet.append('#').append(word());
+                } else if (kind == 2) {
+                    tweet.append("https://t.co/").append(Long.toString(random.nextLong() >>> 24, 36));
+                } else if (kind == 3) {
+                    String word = word();
+                    tweet.append(Character.toUpperCase(word.charAt(0))).append(word, 1, word.length());
+                } else {
+                    tweet.append(word());
+                }
+            }
+            tweet.append(ENDINGS[random.nextInt(ENDINGS.length)]);
+        }
+        return tweet.toString();
+    }
+
+    /**
+     * @return the next n generated tweets
+     */
+    public String[] tweets(int n) {
+        String[] tweets = new String[n];
+        for (int i = 0; i < n; i++) {
+            tweets[i] = tweet();
+        }
+        return tweets;
+    }
+
+    /**
+     * Returns a CSV file holding the given number of tweets generated from
+     * seed. Files are cached in the temporary directory, since the largest
+     * corpora take a while to write.
+     *
+     * @param tweets - the number of tweets in the file
+     * @param seed   - the random seed
+     * @return the path of the CSV file
+     * @throws IOException if the file cannot be written
+     */
+    public static Path csv(int tweets, long seed) throws IOException {
+        Path dir = Paths.get(System.getProperty("java.io.tmpdir"), "twitterbot-bench");
+        Files.createDirectories(dir);
+        Path file = dir.resolve("corpus-" + tweets + "-" + seed + ".csv");
+        if (Files.exists(file)) {
+            return file;
+        }
+        Path partial = Files.createTempFile(dir, "corpus", ".tmp");
+        SyntheticCorpus corpus = forSize(seed, tweets);
+        try (BufferedWriter out = Files.newBufferedWriter(partial, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < tweets; i++) {
+                out.write(Integer.toString(i));
+                out.write(",\"");
+                out.write(corpus.tweet());
+                out.write("\"\n");
+            }
+        }
+        Files.move(partial, file);
+        return file;
+    }
+}